@@ -0,0 +1,229 @@
+/* CacheModel.java
+ * The processor caches of a simulation with affinity.  Each processor
+ * remembers the working sets of the last few jobs it ran, least recently
+ * run first out.  A job dispatched to a processor that still holds its
+ * working set (a hit) pays for what has decayed since it last ran there;
+ * any other job that has run before (a miss) reloads its whole footprint.
+ * A job's first dispatch is cold everywhere, so it pays nothing extra.
+ * The costs are in time units and are counted in the StatShards: hits,
+ * misses and the cost paid by jobs that migrated.
+ */
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.concurrent.locks.ReentrantLock;
+
+public class CacheModel
+{
+    // The working sets one processor holds, most recently run last.  Only
+    // its processor changes them, but thieves read them, so they are
+    // guarded by a lock, which unlike a monitor does not pin a virtual
+    // thread to its carrier.
+    private static class Cache
+    {
+        private final int[] jobIDs;
+        private final long[] lastRun;
+        private int size = 0;
+        private final ReentrantLock lock = new ReentrantLock();
+
+        Cache(int capacity)
+        {
+            jobIDs = new int[capacity];
+            lastRun = new long[capacity];
+        }
+
+        // Returns when job jobID last ran here, or -1 if it is not held.
+        long lastRun(int jobID)
+        {
+            lock.lock();
+            try
+            {
+                for(int i = size - 1; i >= 0; i--)
+                    if (jobIDs[i] == jobID)
+                        return lastRun[i];
+                return -1;
+            }
+            finally
+            {
+                lock.unlock();
+            }
+        }
+
+        // Makes job jobID, run at time now, the most recently run,
+        // evicting the least recently run job if the cache is full.
+        void touch(int jobID, long now)
+        {
+            lock.lock();
+            try
+            {
+                int i = size - 1;
+                while(i >= 0 && jobIDs[i] != jobID)
+                    i--;
+                if (i < 0)
+                {
+                    if (size == jobIDs.length)
+                        i = 0;
+                    else
+                        i = size++;
+                }
+                System.arraycopy(jobIDs, i + 1, jobIDs, i, size - 1 - i);
+                System.arraycopy(lastRun, i + 1, lastRun, i, size - 1 - i);
+                jobIDs[size - 1] = jobID;
+                lastRun[size - 1] = now;
+            }
+            finally
+            {
+                lock.unlock();
+            }
+        }
+
+        // Write the working sets held to out, least recently run first.
+        void save(DataOutput out) throws IOException
+        {
+            lock.lock();
+            try
+            {
+                out.writeInt(size);
+                for(int i = 0; i < size; i++)
+                {
+                    out.writeInt(jobIDs[i]);
+                    out.writeLong(lastRun[i]);
+                }
+            }
+            finally
+            {
+                lock.unlock();
+            }
+        }
+
+        // Replace the working sets held with those save() wrote to in.
+        void restore(DataInput in) throws IOException
+        {
+            lock.lock();
+            try
+            {
+                int n = in.readInt();
+                if (n < 0 || n > jobIDs.length)
+                    throw new IOException("Cache of " + n + " jobs, not at most "
+                            + jobIDs.length);
+                size = n;
+                for(int i = 0; i < size; i++)
+                {
+                    jobIDs[i] = in.readInt();
+                    lastRun[i] = in.readLong();
+                }
+            }
+            finally
+            {
+                lock.unlock();
+            }
+        }
+    }
+
+    private final Cache[] caches;
+    private final StatShard[] shards;
+
+    // Time units to reload the working set of a short or long job, and
+    // the time over which a held working set goes 63% cold.
+    private final long shortFootprint;
+    private final long longFootprint;
+    private final double decay;
+
+    /**
+     * CacheModel() constructor.
+     * Models the caches of the processors whose statistics are shards,
+     * with the sizes and costs config gives.
+     */
+    public CacheModel(SimulationConfig config, StatShard[] shards)
+    {
+        this.shards = shards;
+        caches = new Cache[shards.length];
+        for(int k = 0; k < caches.length; k++)
+            caches[k] = new Cache(config.getCacheJobs());
+        shortFootprint = (long) config.getShortFootprint() * config.getDebugFactor();
+        longFootprint = (long) config.getLongFootprint() * config.getDebugFactor();
+        decay = (double) config.getCacheDecay() * config.getDebugFactor();
+    }
+
+    /**
+     * reloadCost() method.
+     * Returns the time units a job would spend reloading its working set
+     * if it were dispatched to processor processorID at time now, without
+     * dispatching it.  The job last ran on lastProcessorID, or -1 if it
+     * has not run.
+     */
+    public long reloadCost(int processorID, int jobID, boolean shortJob,
+            int lastProcessorID, long now)
+    {
+        if (lastProcessorID == -1)
+            return 0;
+        return cost(caches[processorID].lastRun(jobID), shortJob, now);
+    }
+
+    /**
+     * dispatch() method.
+     * Dispatches a job to processor processorID at time now and returns
+     * the time units it spends reloading its working set, as reloadCost()
+     * gives them.  The job last ran on lastProcessorID, or -1 if it has
+     * not run.  Only the processor itself may call it.
+     */
+    public long dispatch(int processorID, int jobID, boolean shortJob,
+            int lastProcessorID, long now)
+    {
+        Cache cache = caches[processorID];
+        long cost = 0;
+        if (lastProcessorID != -1)
+        {
+            StatShard stats = shards[processorID];
+            long last = cache.lastRun(jobID);
+            cost = cost(last, shortJob, now);
+            stats.add(last == -1 ? StatShard.CACHE_MISSES : StatShard.CACHE_HITS, 1);
+            if (lastProcessorID != processorID)
+                stats.add(StatShard.MIGRATION_COST, cost);
+        }
+        cache.touch(jobID, now);
+        return cost;
+    }
+
+    // The cost of reloading a working set that last ran at time last, or
+    // -1 if it is not held: all of it on a miss, what has decayed on a hit.
+    private long cost(long last, boolean shortJob, long now)
+    {
+        long footprint = shortJob ? shortFootprint : longFootprint;
+        if (last == -1)
+            return footprint;
+        if (decay > 0)
+            return Math.round(footprint * -Math.expm1(-(now - last) / decay));
+        return 0;
+    }
+
+    /**
+     * isWarm() method.
+     * Returns true if processor processorID holds the working set of job
+     * jobID.  Any thread may ask.
+     */
+    public boolean isWarm(int processorID, int jobID)
+    {
+        return caches[processorID].lastRun(jobID) != -1;
+    }
+
+    /**
+     * save() method.  Writes what every processor's cache holds to out.
+     */
+    public void save(DataOutput out) throws IOException
+    {
+        for(int k = 0; k < caches.length; k++)
+            caches[k].save(out);
+    }
+
+    /**
+     * restore() method.
+     * Replaces what the caches hold with what save() wrote to in.
+     */
+    public void restore(DataInput in) throws IOException
+    {
+        for(int k = 0; k < caches.length; k++)
+            caches[k].restore(in);
+    }
+}
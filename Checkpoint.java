@@ -0,0 +1,178 @@
+/* Checkpoint.java
+ * Snapshots of a run of the compact discrete-event engine, so a long run
+ * that dies can be resumed from the last one and end exactly as it would
+ * have.  A snapshot is taken between two events, when nothing is in
+ * motion.  The engine writes its state to the stream begin() returns,
+ * which only fills a buffer in memory, and commit() hands the buffer to a
+ * thread that writes it out, so the run stops for no longer than copying
+ * its state takes.  The thread writes a temporary file, forces it to
+ * disk and renames it over the last snapshot, so a crash leaves either
+ * the old snapshot or the new one, whole.
+ *
+ * A snapshot is the MAGIC number, the VERSION and the settings of the run
+ * as a UTF string, and then the state, in the order the engine writes it
+ * (see Simulation).  Only a run with the same settings, apart from where
+ * its output goes, may resume from it.  All numbers are big-endian, as
+ * DataOutput writes them.
+ */
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+public class Checkpoint implements Closeable
+{
+    public static final int MAGIC = 0x50435252;  // "RRCP"
+    public static final int VERSION = 4;
+
+    private final Path file;
+    private final Path temporary;
+    private final String settings;
+
+    // The snapshot being taken, and the thread writing the one before.
+    private final ByteArrayOutputStream bytes = new ByteArrayOutputStream(1 << 16);
+    private final DataOutputStream out = new DataOutputStream(bytes);
+    private Thread writer;
+    private volatile IOException failure;
+
+    /**
+     * Checkpoint() constructor.
+     * Writes the snapshots of a run with config's settings to file.
+     */
+    public Checkpoint(String file, SimulationConfig config)
+    {
+        this.file = Paths.get(file);
+        temporary = Paths.get(file + ".tmp");
+        settings = settings(config);
+    }
+
+    /**
+     * begin() method.
+     * Starts a snapshot and returns the stream to write the state to.
+     */
+    public DataOutputStream begin() throws IOException
+    {
+        bytes.reset();
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeUTF(settings);
+        return out;
+    }
+
+    /**
+     * commit() method.
+     * Writes the snapshot out in the background.  Waits for the one before
+     * to be written first, and throws IOException if it was not.
+     */
+    public void commit() throws IOException
+    {
+        await();
+        byte[] snapshot = bytes.toByteArray();
+        writer = new Thread(() -> write(snapshot), "Checkpoint");
+        writer.start();
+    }
+
+    /**
+     * close() method.  Waits for the last snapshot to be written, and
+     * throws IOException if it was not.
+     */
+    public void close() throws IOException
+    {
+        await();
+    }
+
+    /**
+     * open() method.
+     * Opens the snapshot in file for a run with config's settings, and
+     * returns the stream to read its state from.  Throws IOException if it
+     * is not a snapshot or is one of a run with other settings.
+     */
+    public static DataInputStream open(String file, SimulationConfig config)
+            throws IOException
+    {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(
+                Files.newInputStream(Paths.get(file)), 1 << 16));
+        try
+        {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION)
+                throw new IOException(file + " is not a checkpoint");
+            if (!in.readUTF().equals(settings(config)))
+                throw new IOException(file + " is a checkpoint of a run with "
+                        + "other settings");
+            return in;
+        }
+        catch(IOException e)
+        {
+            in.close();
+            throw e;
+        }
+    }
+
+    // The settings a run must share with the run it resumes: all but where
+    // its output goes.
+    private static String settings(SimulationConfig config)
+    {
+        return config.with("checkpoint", "").with("checkpointInterval", 1)
+                .with("resume", "").with("eventLog", "").with("results", "")
+                .with("jmx", false)
+                .toString();
+    }
+
+    // Wait for the snapshot being written, if there is one, and throw
+    // IOException if it was not.
+    private void await() throws IOException
+    {
+        if (writer != null)
+        {
+            boolean interrupted = false;
+            while(writer.isAlive())
+            {
+                try { writer.join(); }
+                    catch(InterruptedException e) { interrupted = true; }
+            }
+            writer = null;
+            if (interrupted)
+                Thread.currentThread().interrupt();
+        }
+        if (failure != null)
+            throw failure;
+    }
+
+    // Write a snapshot to the temporary file and rename it over the last one.
+    private void write(byte[] snapshot)
+    {
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE))
+        {
+            ByteBuffer buffer = ByteBuffer.wrap(snapshot);
+            while (buffer.hasRemaining())
+                channel.write(buffer);
+            channel.force(true);
+        }
+        catch(IOException e)
+        {
+            failure = e;
+            return;
+        }
+
+        try
+        {
+            Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        }
+        catch(IOException e)
+        {
+            failure = e;
+        }
+    }
+}
@@ -0,0 +1,28 @@
+/* ConstantDistribution.java
+ * Always the same value: the fixed service times and job frequencies
+ * of the original simulation.
+ */
+
+import java.util.SplittableRandom;
+
+public class ConstantDistribution implements Distribution
+{
+    private final double value;
+
+    public ConstantDistribution(double value)
+    {
+        if (value < 0)
+            throw new IllegalArgumentException("Negative constant: " + value);
+        this.value = value;
+    }  // ConstantDistribution()
+
+    public double sample(SplittableRandom random)
+    {
+        return value;
+    }  // sample()
+
+    public double getMean()
+    {
+        return value;
+    }  // getMean()
+}  // ConstantDistribution class
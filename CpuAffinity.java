@@ -0,0 +1,123 @@
+/* CpuAffinity.java
+ * Pins the calling thread to one Linux CPU with sched_setaffinity(2),
+ * called through the Foreign Function & Memory API.  The API is final in
+ * Java 22 and is looked up reflectively, so the simulator still builds for
+ * older JVMs, where pinning is simply not available.  Java 22 warns about
+ * the native call unless it is run with --enable-native-access=ALL-UNNAMED.
+ */
+
+import java.lang.invoke.MethodHandle;
+import java.lang.reflect.Array;
+import java.lang.reflect.Method;
+import java.util.Optional;
+
+public class CpuAffinity
+{
+    // int sched_setaffinity(pid_t pid, size_t cpusetsize, cpu_set_t *mask),
+    // or null if it cannot be called.
+    private static final MethodHandle SCHED_SETAFFINITY = schedSetaffinity();
+
+    // The FFM methods pin() needs, looked up with the handle.
+    private static Method ofConfined;
+    private static Method allocate;
+    private static Method setLong;
+    private static Method close;
+    private static Object javaLong;
+
+    /**
+     * isAvailable() getter.
+     * Returns true if this JVM can call sched_setaffinity.
+     */
+    public static boolean isAvailable()
+    {
+        return SCHED_SETAFFINITY != null;
+    }
+
+    /**
+     * pin() method.
+     * Pins the calling platform thread to CPU cpu.  Returns false if it
+     * cannot be pinned there.
+     */
+    public static boolean pin(int cpu)
+    {
+        if (SCHED_SETAFFINITY == null || cpu < 0)
+            return false;
+
+        // A cpu_set_t is a bit mask of longs, 1024 CPUs by default.
+        int longs = Math.max(16, cpu / 64 + 1);
+        try
+        {
+            Object arena = ofConfined.invoke(null);
+            try
+            {
+                Object mask = allocate.invoke(arena, (long) longs * 8);
+                setLong.invoke(mask, javaLong, (long) (cpu / 64) * 8, 1L << (cpu % 64));
+
+                // A pid of 0 is the calling thread.
+                int result = (Integer) SCHED_SETAFFINITY.invokeWithArguments(
+                        0, (long) longs * 8, mask);
+                return result == 0;
+            }
+            finally
+            {
+                close.invoke(arena);
+            }
+        }
+        catch(Throwable e)
+        {
+            return false;
+        }
+    }
+
+    // Linker.nativeLinker().downcallHandle() of sched_setaffinity, if
+    // there is an FFM API and the C library has the function.
+    private static MethodHandle schedSetaffinity()
+    {
+        if (!System.getProperty("os.name", "").startsWith("Linux"))
+            return null;
+        try
+        {
+            Class<?> linkerClass = Class.forName("java.lang.foreign.Linker");
+            Class<?> lookupClass = Class.forName("java.lang.foreign.SymbolLookup");
+            Class<?> segmentClass = Class.forName("java.lang.foreign.MemorySegment");
+            Class<?> layoutClass = Class.forName("java.lang.foreign.MemoryLayout");
+            Class<?> valueLayoutClass = Class.forName("java.lang.foreign.ValueLayout");
+            Class<?> ofLongClass = Class.forName("java.lang.foreign.ValueLayout$OfLong");
+            Class<?> descriptorClass = Class.forName("java.lang.foreign.FunctionDescriptor");
+            Class<?> optionClass = Class.forName("java.lang.foreign.Linker$Option");
+            Class<?> arenaClass = Class.forName("java.lang.foreign.Arena");
+
+            Object linker = linkerClass.getMethod("nativeLinker").invoke(null);
+            Object lookup = linkerClass.getMethod("defaultLookup").invoke(linker);
+            Optional<?> symbol = (Optional<?>) lookupClass.getMethod("find", String.class)
+                    .invoke(lookup, "sched_setaffinity");
+            if (symbol.isEmpty())
+                return null;
+
+            Object javaInt = valueLayoutClass.getField("JAVA_INT").get(null);
+            Object address = valueLayoutClass.getField("ADDRESS").get(null);
+            javaLong = valueLayoutClass.getField("JAVA_LONG").get(null);
+
+            Object args = Array.newInstance(layoutClass, 3);
+            Array.set(args, 0, javaInt);
+            Array.set(args, 1, javaLong);
+            Array.set(args, 2, address);
+            Object descriptor = descriptorClass.getMethod("of", layoutClass, args.getClass())
+                    .invoke(null, javaInt, args);
+
+            MethodHandle handle = (MethodHandle) linkerClass.getMethod("downcallHandle",
+                    segmentClass, descriptorClass, Array.newInstance(optionClass, 0).getClass())
+                    .invoke(linker, symbol.get(), descriptor, Array.newInstance(optionClass, 0));
+
+            ofConfined = arenaClass.getMethod("ofConfined");
+            allocate = arenaClass.getMethod("allocate", long.class);
+            setLong = segmentClass.getMethod("set", ofLongClass, long.class, long.class);
+            close = arenaClass.getMethod("close");
+            return handle;
+        }
+        catch(ReflectiveOperationException | RuntimeException e)
+        {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,171 @@
+/* CpuTopology.java
+ * The CPUs of a Linux host, read from /sys/devices/system/cpu, and the
+ * order the consumers of a simulation are pinned to them in.  A CPU list
+ * is written as the kernel writes one, such as 0-3,8-11.  Where sysfs has
+ * no topology, every CPU counts as a core of its own on socket 0.
+ */
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+public class CpuTopology
+{
+    private static final Path CPU_DIR = Paths.get("/sys/devices/system/cpu");
+
+    /**
+     * parseList() method.
+     * Returns the CPUs of a CPU list, in the order given.  Throws
+     * IllegalArgumentException if it is not a CPU list.
+     */
+    public static int[] parseList(String list)
+    {
+        List<Integer> cpus = new ArrayList<Integer>();
+        try
+        {
+            for(String range : list.trim().split(","))
+            {
+                if (range.isEmpty())
+                    continue;
+                int dash = range.indexOf('-');
+                int first = Integer.parseInt(dash < 0 ? range : range.substring(0, dash));
+                int last = dash < 0 ? first : Integer.parseInt(range.substring(dash + 1));
+                if (first < 0 || last < first)
+                    throw new IllegalArgumentException("Bad CPU range: " + range);
+                for(int cpu = first; cpu <= last; cpu++)
+                    cpus.add(cpu);
+            }
+        }
+        catch(NumberFormatException e)
+        {
+            throw new IllegalArgumentException("Not a CPU list: " + list);
+        }
+
+        int[] a = new int[cpus.size()];
+        for(int i = 0; i < a.length; i++)
+            a[i] = cpus.get(i);
+        return a;
+    }
+
+    /**
+     * onlineCpus() method.
+     * Returns the online CPUs, or as many CPUs as the JVM sees if sysfs
+     * cannot be read.
+     */
+    public static int[] onlineCpus()
+    {
+        String online = read(CPU_DIR.resolve("online"));
+        if (online != null)
+            return parseList(online);
+
+        int[] cpus = new int[Runtime.getRuntime().availableProcessors()];
+        for(int i = 0; i < cpus.length; i++)
+            cpus[i] = i;
+        return cpus;
+    }
+
+    /**
+     * assign() method.
+     * Returns the CPU each of numConsumers consumers is pinned to, taken
+     * from cpus in the order pin asks for.  Cpus takes them as listed.
+     * Cores takes one CPU of each physical core before any core's
+     * second hardware thread.  Sockets does the same, but also takes the
+     * cores of the sockets in turn.  With more consumers than CPUs, the
+     * CPUs are taken again from the start.
+     */
+    public static int[] assign(int[] cpus, SimulationConfig.pinType pin, int numConsumers)
+    {
+        Integer[] order = new Integer[cpus.length];
+        for(int i = 0; i < cpus.length; i++)
+            order[i] = cpus[i];
+
+        if (pin != SimulationConfig.pinType.Cpus)
+        {
+            // For each CPU: its socket, the rank of its core among the
+            // cores of the socket, and its rank among the core's threads.
+            int[] socket = new int[cpus.length];
+            int[] coreRank = new int[cpus.length];
+            int[] threadRank = new int[cpus.length];
+            List<long[]> cores = new ArrayList<long[]>();  // {socket, core, threads}
+            for(int i = 0; i < cpus.length; i++)
+            {
+                socket[i] = Math.max(0, topologyValue(cpus[i], "physical_package_id"));
+                int core = topologyValue(cpus[i], "core_id");
+                if (core < 0)
+                    core = cpus[i];
+                long[] c = null;
+                int rank = 0;
+                for(long[] known : cores)
+                {
+                    if (known[0] == socket[i])
+                    {
+                        if (known[1] == core)
+                        {
+                            c = known;
+                            break;
+                        }
+                        rank++;
+                    }
+                }
+                if (c == null)
+                {
+                    c = new long[] {socket[i], core, 0};
+                    cores.add(c);
+                }
+                coreRank[i] = rank;
+                threadRank[i] = (int) c[2]++;
+            }
+
+            Integer[] index = new Integer[cpus.length];
+            for(int i = 0; i < cpus.length; i++)
+                index[i] = i;
+            Comparator<Integer> byThread = Comparator.comparingInt(i -> threadRank[i]);
+            if (pin == SimulationConfig.pinType.Sockets)
+                Arrays.sort(index, byThread.thenComparingInt(i -> coreRank[i])
+                        .thenComparingInt(i -> socket[i]));
+            else
+                Arrays.sort(index, byThread.thenComparingInt(i -> socket[i])
+                        .thenComparingInt(i -> coreRank[i]));
+            for(int i = 0; i < cpus.length; i++)
+                order[i] = cpus[index[i]];
+        }
+
+        int[] assigned = new int[numConsumers];
+        for(int k = 0; k < numConsumers; k++)
+            assigned[k] = order[k % order.length];
+        return assigned;
+    }
+
+    // A topology value of a CPU, such as its core_id, or -1 if it has none.
+    private static int topologyValue(int cpu, String name)
+    {
+        String v = read(CPU_DIR.resolve("cpu" + cpu).resolve("topology").resolve(name));
+        try
+        {
+            return v == null ? -1 : Integer.parseInt(v);
+        }
+        catch(NumberFormatException e)
+        {
+            return -1;
+        }
+    }
+
+    // The first line of a sysfs file, or null if it cannot be read.
+    private static String read(Path file)
+    {
+        try
+        {
+            List<String> lines = Files.readAllLines(file);
+            return lines.isEmpty() ? null : lines.get(0).trim();
+        }
+        catch(IOException | SecurityException e)
+        {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,57 @@
+/* DirectJobTable.java
+ * JobTable whose columns are direct buffers outside the Java heap, in
+ * native byte order.  The garbage collector never scans or copies them,
+ * however many rows they hold.
+ */
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+public class DirectJobTable extends JobTable
+{
+    private ByteBuffer[] ints = new ByteBuffer[INT_COLUMNS];
+    private ByteBuffer[] longs = new ByteBuffer[LONG_COLUMNS];
+
+    public DirectJobTable(int capacity)
+    {
+        super(capacity);
+        resize(getCapacity());
+    }  // DirectJobTable()
+
+    protected int getInt(int column, int row)
+    {
+        return ints[column].getInt(row << 2);
+    }  // getInt()
+
+    protected void setInt(int column, int row, int value)
+    {
+        ints[column].putInt(row << 2, value);
+    }  // setInt()
+
+    protected long getLong(int column, int row)
+    {
+        return longs[column].getLong(row << 3);
+    }  // getLong()
+
+    protected void setLong(int column, int row, long value)
+    {
+        longs[column].putLong(row << 3, value);
+    }  // setLong()
+
+    protected void resize(int newCapacity)
+    {
+        for(int c = 0; c < INT_COLUMNS; c++)
+            ints[c] = copy(ints[c], newCapacity << 2);
+        for(int c = 0; c < LONG_COLUMNS; c++)
+            longs[c] = copy(longs[c], newCapacity << 3);
+    }  // resize()
+
+    // A new direct buffer of the given size holding the contents of old.
+    private static ByteBuffer copy(ByteBuffer old, int bytes)
+    {
+        ByteBuffer b = ByteBuffer.allocateDirect(bytes).order(ByteOrder.nativeOrder());
+        if (old != null)
+            b.put(old.duplicate().clear());
+        return b.clear();
+    }  // copy()
+}  // DirectJobTable class
@@ -0,0 +1,149 @@
+/* Distribution.java
+ * A probability distribution of times, sampled by a WorkloadGenerator
+ * for job inter-arrival gaps and service lengths.  A distribution keeps
+ * no state of its own: every sample is drawn from the random stream it
+ * is given, so producers with streams of their own never share anything,
+ * and a sample allocates nothing.  parse() reads a distribution from a
+ * setting:
+ *
+ *   5                         The constant 5
+ *   constant:5                The same
+ *   exponential:mean          Exponential, e.g. Poisson arrival gaps
+ *   pareto:shape:scale        Pareto of the given shape, at least scale
+ *   lognormal:mu:sigma        e^X, where X is normal with mean mu and
+ *                             standard deviation sigma
+ *   hyperexponential:p1:mean1:p2:mean2...
+ *                             Exponential of mean_i with probability p_i
+ *   empirical:v1=w1,v2=w2...  v_i with probability proportional to w_i
+ *   empirical:@file           The same, a "value weight" pair per line
+ */
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.SplittableRandom;
+
+public interface Distribution
+{
+    /**
+     * sample() method.  Returns a sample drawn from random.
+     */
+    double sample(SplittableRandom random);
+
+    /**
+     * getMean() getter.  Returns the mean of the distribution, which may
+     * be infinite.
+     */
+    double getMean();
+
+    /**
+     * parse() method.
+     * Returns the distribution a setting describes.  Throws
+     * IllegalArgumentException if it describes none.
+     */
+    static Distribution parse(String spec)
+    {
+        String[] f = spec.trim().split(":", 2);
+        String name = f[0];
+        String args = f.length > 1 ? f[1] : "";
+        try
+        {
+            if (f.length == 1)
+                return new ConstantDistribution(Double.parseDouble(name));
+
+            double[] p = name.equals("empirical") ? null : numbers(args);
+            switch(name)
+            {
+                case "constant":
+                    checkCount(spec, p, 1);
+                    return new ConstantDistribution(p[0]);
+
+                case "exponential":
+                    checkCount(spec, p, 1);
+                    return new ExponentialDistribution(p[0]);
+
+                case "pareto":
+                    checkCount(spec, p, 2);
+                    return new ParetoDistribution(p[0], p[1]);
+
+                case "lognormal":
+                    checkCount(spec, p, 2);
+                    return new LognormalDistribution(p[0], p[1]);
+
+                case "hyperexponential":
+                    if (p.length == 0 || p.length % 2 != 0)
+                        throw new IllegalArgumentException(
+                                "hyperexponential needs probability:mean pairs: " + spec);
+                    double[] probabilities = new double[p.length / 2];
+                    double[] means = new double[p.length / 2];
+                    for(int i = 0; i < probabilities.length; i++)
+                    {
+                        probabilities[i] = p[2 * i];
+                        means[i] = p[2 * i + 1];
+                    }
+                    return new HyperexponentialDistribution(probabilities, means);
+
+                case "empirical":
+                    return empirical(args);
+
+                default:
+                    throw new IllegalArgumentException("Unknown distribution: " + spec);
+            }
+        }
+        catch(NumberFormatException e)
+        {
+            throw new IllegalArgumentException("Not a number in " + spec);
+        }
+    }
+
+    // The numbers of a colon-separated list.
+    private static double[] numbers(String list)
+    {
+        String[] f = list.split(":");
+        double[] p = new double[f.length];
+        for(int i = 0; i < f.length; i++)
+            p[i] = Double.parseDouble(f[i]);
+        return p;
+    }
+
+    private static void checkCount(String spec, double[] p, int count)
+    {
+        if (p.length != count)
+            throw new IllegalArgumentException(count + " parameters expected: " + spec);
+    }
+
+    // An empirical distribution of value=weight pairs, or of a file of
+    // "value weight" lines if the list is @file.
+    private static Distribution empirical(String list)
+    {
+        String[] pairs;
+        if (list.startsWith("@"))
+        {
+            try
+            {
+                List<String> lines = Files.readAllLines(Paths.get(list.substring(1)));
+                lines.removeIf(l -> l.trim().isEmpty() || l.trim().startsWith("#"));
+                pairs = lines.toArray(new String[0]);
+            }
+            catch(IOException e)
+            {
+                throw new IllegalArgumentException("Cannot read " + list.substring(1));
+            }
+        }
+        else
+            pairs = list.split(",");
+
+        double[] values = new double[pairs.length];
+        double[] weights = new double[pairs.length];
+        for(int i = 0; i < pairs.length; i++)
+        {
+            String[] vw = pairs[i].trim().split("[=\\s]+");
+            if (vw.length != 2)
+                throw new IllegalArgumentException("Expected value=weight: " + pairs[i]);
+            values[i] = Double.parseDouble(vw[0]);
+            weights[i] = Double.parseDouble(vw[1]);
+        }
+        return new EmpiricalDistribution(values, weights);
+    }
+}
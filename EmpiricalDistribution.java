@@ -0,0 +1,86 @@
+/* EmpiricalDistribution.java
+ * A distribution of observed values, each with a weight, such as the
+ * service lengths of a measured workload.  Sampled in constant time with
+ * Vose's alias method: one uniform column pick and one biased coin flip,
+ * however many values there are.
+ */
+
+import java.util.SplittableRandom;
+
+public class EmpiricalDistribution implements Distribution
+{
+    private final double[] values;
+    private final double[] probability;  // Chance column i keeps its own value
+    private final int[] alias;           // The value column i gives otherwise
+    private final double mean;
+
+    public EmpiricalDistribution(double[] values, double[] weights)
+    {
+        int n = values.length;
+        if (n == 0 || weights.length != n)
+            throw new IllegalArgumentException("Empirical needs a weight for each value");
+
+        double total = 0;
+        double weighted = 0;
+        for(int i = 0; i < n; i++)
+        {
+            if (!(weights[i] >= 0) || values[i] < 0)
+                throw new IllegalArgumentException(
+                        "Empirical values and weights must not be negative");
+            total += weights[i];
+            weighted += values[i] * weights[i];
+        }
+        if (!(total > 0))
+            throw new IllegalArgumentException("Empirical weights add up to 0");
+
+        this.values = values.clone();
+        probability = new double[n];
+        alias = new int[n];
+        mean = weighted / total;
+
+        // Scale the weights to an average of 1 and pair each column short
+        // of 1 with one over 1, which tops it up.
+        double[] scaled = new double[n];
+        int[] small = new int[n];
+        int[] large = new int[n];
+        int smallCount = 0;
+        int largeCount = 0;
+        for(int i = 0; i < n; i++)
+        {
+            scaled[i] = weights[i] * n / total;
+            if (scaled[i] < 1)
+                small[smallCount++] = i;
+            else
+                large[largeCount++] = i;
+        }
+        while (smallCount > 0 && largeCount > 0)
+        {
+            int s = small[--smallCount];
+            int l = large[--largeCount];
+            probability[s] = scaled[s];
+            alias[s] = l;
+            scaled[l] = scaled[l] + scaled[s] - 1;
+            if (scaled[l] < 1)
+                small[smallCount++] = l;
+            else
+                large[largeCount++] = l;
+        }
+
+        // What is left is 1 up to rounding.
+        while (largeCount > 0)
+            probability[large[--largeCount]] = 1;
+        while (smallCount > 0)
+            probability[small[--smallCount]] = 1;
+    }  // EmpiricalDistribution()
+
+    public double sample(SplittableRandom random)
+    {
+        int i = random.nextInt(values.length);
+        return random.nextDouble() < probability[i] ? values[i] : values[alias[i]];
+    }  // sample()
+
+    public double getMean()
+    {
+        return mean;
+    }  // getMean()
+}  // EmpiricalDistribution class
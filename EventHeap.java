@@ -0,0 +1,191 @@
+/* EventHeap.java
+ * The pending events of the compact discrete-event engine: a binary
+ * min-heap in parallel long arrays, ordered by time and then by the
+ * sequence they were added in, like SimEvent.  An event is a type, a job
+ * handle and a source ID (below 2^30) packed into one long, so adding an
+ * event allocates nothing once the heap has grown to its working size.
+ */
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+
+public class EventHeap
+{
+    private static final SimEvent.eventType[] TYPES = SimEvent.eventType.values();
+
+    private long[] times = new long[64];
+    private long[] sequences = new long[64];
+    private long[] payloads = new long[64];
+    private int size = 0;
+    private long nextSequence = 0;
+
+    // The event removed by the last poll().
+    private long time;
+    private long payload;
+
+    /**
+     * add() method.  Adds an event at a time.  handle is -1 for
+     * arrivals and dispatches.
+     */
+    public void add(long time, SimEvent.eventType type, int handle, int sourceID)
+    {
+        if (size == times.length)
+        {
+            times = Arrays.copyOf(times, size * 2);
+            sequences = Arrays.copyOf(sequences, size * 2);
+            payloads = Arrays.copyOf(payloads, size * 2);
+        }
+
+        long sequence = nextSequence++;
+        long p = ((long) handle << 32) | ((long) type.ordinal() << 30) | sourceID;
+
+        // Sift up from the new leaf.
+        int i = size++;
+        while (i > 0)
+        {
+            int parent = (i - 1) >>> 1;
+            if (!before(time, sequence, parent))
+                break;
+            move(parent, i);
+            i = parent;
+        }
+        times[i] = time;
+        sequences[i] = sequence;
+        payloads[i] = p;
+    }
+
+    /**
+     * poll() method.  Removes the earliest event, whose fields the getters
+     * then return.  Returns false if there are no events.
+     */
+    public boolean poll()
+    {
+        if (size == 0)
+            return false;
+        time = times[0];
+        payload = payloads[0];
+
+        // Sift the last leaf down from the root.
+        size--;
+        long lastTime = times[size];
+        long lastSequence = sequences[size];
+        long lastPayload = payloads[size];
+        int i = 0;
+        while (true)
+        {
+            int child = 2 * i + 1;
+            if (child >= size)
+                break;
+            if (child + 1 < size
+                    && before(times[child + 1], sequences[child + 1], child))
+                child++;
+            if (!before(times[child], sequences[child], lastTime, lastSequence))
+                break;
+            move(child, i);
+            i = child;
+        }
+        times[i] = lastTime;
+        sequences[i] = lastSequence;
+        payloads[i] = lastPayload;
+        return true;
+    }
+
+    /**
+     * getTime() getter.  Returns the time of the last event polled.
+     */
+    public long getTime()
+    {
+        return time;
+    }
+
+    /**
+     * getType() getter.  Returns the type of the last event polled.
+     */
+    public SimEvent.eventType getType()
+    {
+        return TYPES[(int) (payload >>> 30) & 3];
+    }
+
+    /**
+     * getHandle() getter.  Returns the job handle of the last event polled.
+     */
+    public int getHandle()
+    {
+        return (int) (payload >> 32);
+    }
+
+    /**
+     * getSourceID() getter.  Returns the source ID of the last event polled.
+     */
+    public int getSourceID()
+    {
+        return (int) payload & 0x3FFFFFFF;
+    }
+
+    /**
+     * size() getter.  Returns the number of pending events.
+     */
+    public int size()
+    {
+        return size;
+    }
+
+    /**
+     * save() method.  Writes the pending events, as they lie in the heap,
+     * and the next sequence number to out.
+     */
+    public void save(DataOutput out) throws IOException
+    {
+        out.writeLong(nextSequence);
+        out.writeInt(size);
+        for(int i = 0; i < size; i++)
+        {
+            out.writeLong(times[i]);
+            out.writeLong(sequences[i]);
+            out.writeLong(payloads[i]);
+        }
+    }
+
+    /**
+     * restore() method.
+     * Replaces the events with those save() wrote to in, in the same order.
+     */
+    public void restore(DataInput in) throws IOException
+    {
+        nextSequence = in.readLong();
+        size = in.readInt();
+        if (size < 0)
+            throw new IOException("Event heap of " + size + " events");
+        int length = Math.max(64, Integer.highestOneBit(Math.max(1, size)) * 2);
+        times = new long[length];
+        sequences = new long[length];
+        payloads = new long[length];
+        for(int i = 0; i < size; i++)
+        {
+            times[i] = in.readLong();
+            sequences[i] = in.readLong();
+            payloads[i] = in.readLong();
+        }
+    }
+
+    // True if the event (time, sequence) comes before the one at index i.
+    private boolean before(long time, long sequence, int i)
+    {
+        return before(time, sequence, times[i], sequences[i]);
+    }
+
+    private static boolean before(long time, long sequence, long otherTime,
+            long otherSequence)
+    {
+        return time < otherTime || (time == otherTime && sequence < otherSequence);
+    }
+
+    private void move(int from, int to)
+    {
+        times[to] = times[from];
+        sequences[to] = sequences[from];
+        payloads[to] = payloads[from];
+    }
+}
@@ -0,0 +1,256 @@
+/* EventLog.java
+ * A binary log of job events: arrivals, dispatches, preemptions,
+ * completions, and jobs shed by a LoadShedder.  Every thread that logs
+ * has a Writer of its own, which puts fixed-width records into a direct
+ * buffer with no locking and no allocation.  A full buffer is handed to a
+ * background thread that writes it to the file through a FileChannel,
+ * and the Writer carries on with an empty one, so logging an event costs
+ * a few stores.  The buffers are allocated up front: if the background
+ * thread falls behind, a Writer waits for one to be written rather than
+ * allocating another.  A record is RECORD_SIZE bytes, little-endian:
+ *
+ *   long  time           On the simulation's clock, from its start
+ *   int   jobID
+ *   int   sourceID       Processor, or producer for an arrival
+ *   int   serviceLength  Service left after the event
+ *   short event          eventType ordinal
+ *   short type           RRJob.jobType ordinal
+ *
+ * Each Writer's records are in order, but buffers from different Writers
+ * are interleaved, so sort by time to merge them.  main() prints a log as
+ * CSV.
+ */
+
+import java.io.Closeable;
+import java.io.BufferedInputStream;
+import java.io.BufferedWriter;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+public class EventLog implements Closeable
+{
+    public enum eventType {Arrival, Dispatch, Preemption, Completion, Shed};
+
+    public static final int RECORD_SIZE = 24;
+
+    // Records in each buffer, and the buffers shared by all the Writers
+    // besides the one each of them fills.
+    private static final int BUFFER_RECORDS = 8192;
+    private static final int SPARE_BUFFERS = 16;
+
+    private static final eventType[] EVENTS = eventType.values();
+    private static final RRJob.jobType[] TYPES = RRJob.jobType.values();
+
+    private final FileChannel channel;
+    private final Thread writerThread;
+
+    // Full buffers waiting to be written, and empty ones.  Every buffer is
+    // allocated up front, so a Writer that fills buffers faster than they
+    // are written waits for an empty one rather than allocating more.
+    private final LinkedBlockingQueue<ByteBuffer> full =
+            new LinkedBlockingQueue<ByteBuffer>();
+    private final LinkedBlockingQueue<ByteBuffer> spare =
+            new LinkedBlockingQueue<ByteBuffer>();
+
+    // Every Writer, so close() can hand in their last buffers.
+    private final ConcurrentLinkedQueue<Writer> writers =
+            new ConcurrentLinkedQueue<Writer>();
+
+    // A zero-capacity buffer put on the full queue to stop the writer thread.
+    private static final ByteBuffer END = ByteBuffer.allocate(0);
+
+    // The first write error of the background thread.
+    private volatile IOException error;
+
+    /**
+     * EventLog() constructor.
+     * Creates or replaces a log file and starts its writer thread.
+     */
+    public EventLog(String file) throws IOException
+    {
+        channel = FileChannel.open(Paths.get(file), StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+        for(int i = 0; i < SPARE_BUFFERS; i++)
+            spare.add(newBuffer());
+        writerThread = new Thread(() -> writeBuffers(), "EventLog");
+        writerThread.setDaemon(true);
+        writerThread.start();
+    }
+
+    /**
+     * newWriter() method.  Returns a Writer for one thread to log with,
+     * with a buffer of its own.
+     */
+    public Writer newWriter()
+    {
+        Writer w = new Writer(newBuffer());
+        writers.add(w);
+        return w;
+    }
+
+    /**
+     * close() method.
+     * Writes what every Writer has logged and closes the file.  The Writers
+     * must no longer be in use.  Throws the first write error, if any.
+     */
+    public void close() throws IOException
+    {
+        for(Writer w : writers)
+            w.handOff(null);
+        full.add(END);
+        try
+        {
+            writerThread.join();
+        }
+        catch(InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+        channel.close();
+        if (error != null)
+            throw error;
+    }
+
+    // Background thread: write full buffers until END.
+    private void writeBuffers()
+    {
+        while (true)
+        {
+            ByteBuffer b;
+            try { b = full.take(); }
+                catch(InterruptedException e) { continue; }
+            if (b == END)
+                return;
+
+            b.flip();
+            try
+            {
+                while (b.hasRemaining())
+                    channel.write(b);
+            }
+            catch(IOException e)
+            {
+                if (error == null)
+                    error = e;
+            }
+            b.clear();
+            spare.add(b);
+        }
+    }
+
+    // A new buffer, for the pool.
+    private static ByteBuffer newBuffer()
+    {
+        return ByteBuffer.allocateDirect(BUFFER_RECORDS * RECORD_SIZE)
+                .order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    // An empty buffer, waiting for the writer thread to write one out if
+    // none is.  An interrupt does not end the wait, but is kept.
+    private ByteBuffer emptyBuffer()
+    {
+        boolean interrupted = false;
+        ByteBuffer b = null;
+        while (b == null)
+        {
+            try { b = spare.take(); }
+                catch(InterruptedException e) { interrupted = true; }
+        }
+        if (interrupted)
+            Thread.currentThread().interrupt();
+        return b;
+    }
+
+    /* Writer class
+     * The log of one thread.  Only one thread may use a Writer at a time.
+     */
+    public class Writer
+    {
+        private ByteBuffer buffer;
+
+        private Writer(ByteBuffer buffer)
+        {
+            this.buffer = buffer;
+        }
+
+        /**
+         * log() method.  Logs an event of job jobID at time.
+         */
+        public void log(long time, eventType event, int jobID, RRJob.jobType type,
+                int sourceID, int serviceLength)
+        {
+            if (!buffer.hasRemaining())
+                handOff(emptyBuffer());
+            buffer.putLong(time);
+            buffer.putInt(jobID);
+            buffer.putInt(sourceID);
+            buffer.putInt(serviceLength);
+            buffer.putShort((short) event.ordinal());
+            buffer.putShort((short) type.ordinal());
+        }  // log()
+
+        // Queue the buffer for writing and carry on with next.
+        private void handOff(ByteBuffer next)
+        {
+            if (buffer != null && buffer.position() > 0)
+                full.add(buffer);
+            buffer = next;
+        }  // handOff()
+    }  // Writer class
+
+    /**
+     * main() method.  Prints a log file as CSV:
+     *   EventLog file
+     */
+    public static void main(String[] args)
+    {
+        if (args.length < 1)
+        {
+            System.err.println("usage: EventLog file");
+            System.exit(1);
+        }
+
+        byte[] record = new byte[RECORD_SIZE];
+        ByteBuffer b = ByteBuffer.wrap(record).order(ByteOrder.LITTLE_ENDIAN);
+        StringBuilder sb = new StringBuilder();
+        PrintWriter out = new PrintWriter(new BufferedWriter(
+                new OutputStreamWriter(System.out), 1 << 16));
+        out.println("time,event,jobID,type,sourceID,serviceLength");
+
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(new FileInputStream(args[0]), 1 << 16)))
+        {
+            while (true)
+            {
+                try { in.readFully(record); }
+                    catch(EOFException e) { break; }
+
+                sb.setLength(0);
+                sb.append(b.getLong(0)).append(',')
+                        .append(EVENTS[b.getShort(20)]).append(',')
+                        .append(b.getInt(8)).append(',')
+                        .append(TYPES[b.getShort(22)]).append(',')
+                        .append(b.getInt(12)).append(',')
+                        .append(b.getInt(16));
+                out.println(sb);
+            }
+            out.flush();
+        }
+        catch(IOException e)
+        {
+            System.err.println("EventLog: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+}
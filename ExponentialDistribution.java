@@ -0,0 +1,29 @@
+/* ExponentialDistribution.java
+ * Exponential times of a given mean.  As inter-arrival gaps they make
+ * the arrivals a Poisson process.  Sampled by inversion.
+ */
+
+import java.util.SplittableRandom;
+
+public class ExponentialDistribution implements Distribution
+{
+    private final double mean;
+
+    public ExponentialDistribution(double mean)
+    {
+        if (!(mean > 0))
+            throw new IllegalArgumentException("Exponential mean must be positive: " + mean);
+        this.mean = mean;
+    }  // ExponentialDistribution()
+
+    // 1 - nextDouble() is in (0, 1], so its log is finite.
+    public double sample(SplittableRandom random)
+    {
+        return -mean * Math.log(1.0 - random.nextDouble());
+    }  // sample()
+
+    public double getMean()
+    {
+        return mean;
+    }  // getMean()
+}  // ExponentialDistribution class
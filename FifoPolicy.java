@@ -0,0 +1,86 @@
+/* FifoPolicy.java
+ * First come, first served, as in OSScheduler.  A job runs to completion
+ * on the first processor that takes it.  The ready queue is a JobBuffer.
+ */
+
+public class FifoPolicy implements SchedulingPolicy
+{
+    private JobBuffer<RRJob> buffer;
+
+    public FifoPolicy(JobBuffer<RRJob> buffer)
+    {
+        this.buffer = buffer;
+    }  // FifoPolicy()
+
+    public void reserve() throws InterruptedException
+    {
+        buffer.reserve();
+    }  // reserve()
+
+    public boolean tryReserve()
+    {
+        return buffer.tryReserve();
+    }  // tryReserve()
+
+    public void enqueue(RRJob j)
+    {
+        buffer.publish(j);
+    }  // enqueue()
+
+    public void reserve(int n) throws InterruptedException
+    {
+        buffer.reserve(n);
+    }  // reserve()
+
+    public void enqueueAll(RRJob[] jobs, int n)
+    {
+        buffer.publishAll(jobs, n);
+    }  // enqueueAll()
+
+    public RRJob pickNext(int processorID) throws InterruptedException
+    {
+        return buffer.take();
+    }  // pickNext()
+
+    public int pickNext(int processorID, RRJob[] batch, int max)
+            throws InterruptedException
+    {
+        return buffer.take(batch, max);
+    }  // pickNext()
+
+    // The whole job, so it is never preempted.
+    public int timeslice(RRJob j)
+    {
+        return j.getServiceLength();
+    }  // timeslice()
+
+    public int timeslice(JobTable jobs, int h)
+    {
+        return jobs.getServiceLength(h);
+    }  // timeslice()
+
+    public void onQuantumExpiry(RRJob j, int processorID)
+    {
+        buffer.requeue(j);
+    }  // onQuantumExpiry()
+
+    public void onComplete(RRJob j, int processorID)
+    {
+    }  // onComplete()
+
+    // The head of the buffer.
+    public RRJob dropOldest()
+    {
+        return buffer.poll();
+    }  // dropOldest()
+
+    public int size()
+    {
+        return buffer.size();
+    }  // size()
+
+    public int remainingCapacity()
+    {
+        return buffer.remainingCapacity();
+    }  // remainingCapacity()
+}  // FifoPolicy class
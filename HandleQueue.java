@@ -0,0 +1,99 @@
+/* HandleQueue.java
+ * A first-in, first-out queue of int job handles: the ready queue of the
+ * compact discrete-event engine.  It is a ring that doubles when it is
+ * full and otherwise never allocates.  A policy that orders jobs another
+ * way returns its own subclass from SchedulingPolicy.newHandleQueue().
+ */
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+
+public class HandleQueue
+{
+    private int[] handles = new int[16];
+    private int head = 0;
+    private int count = 0;
+
+    /**
+     * add() method.  Adds a handle at the tail.
+     */
+    public void add(int h)
+    {
+        if (count == handles.length)
+            grow();
+        handles[(head + count) & (handles.length - 1)] = h;
+        count++;
+    }
+
+    /**
+     * addFirst() method.  Adds a handle at the head.
+     */
+    public void addFirst(int h)
+    {
+        if (count == handles.length)
+            grow();
+        head = (head - 1) & (handles.length - 1);
+        handles[head] = h;
+        count++;
+    }
+
+    /**
+     * poll() method.  Removes the handle at the head, or returns -1
+     * if the queue is empty.
+     */
+    public int poll()
+    {
+        if (count == 0)
+            return -1;
+        int h = handles[head];
+        head = (head + 1) & (handles.length - 1);
+        count--;
+        return h;
+    }
+
+    /**
+     * size() getter.  Returns the number of handles in the queue.
+     */
+    public int size()
+    {
+        return count;
+    }
+
+    /**
+     * save() method.  Writes the handles to out, head first.
+     */
+    public void save(DataOutput out) throws IOException
+    {
+        out.writeInt(count);
+        for(int i = 0; i < count; i++)
+            out.writeInt(handles[(head + i) & (handles.length - 1)]);
+    }
+
+    /**
+     * restore() method.
+     * Replaces the handles with those save() wrote to in, added in order.
+     */
+    public void restore(DataInput in) throws IOException
+    {
+        while(poll() != -1)
+            ;
+        int n = in.readInt();
+        for(int i = 0; i < n; i++)
+            add(in.readInt());
+    }
+
+    // Double the ring, unwrapping it so the head is at index 0.
+    private void grow()
+    {
+        int[] bigger = Arrays.copyOf(handles, handles.length * 2);
+        if (head != 0)
+        {
+            System.arraycopy(handles, head, bigger, 0, handles.length - head);
+            System.arraycopy(handles, 0, bigger, handles.length - head, head);
+        }
+        handles = bigger;
+        head = 0;
+    }
+}
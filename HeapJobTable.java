@@ -0,0 +1,47 @@
+/* HeapJobTable.java
+ * JobTable whose columns are int and long arrays on the Java heap.
+ */
+
+import java.util.Arrays;
+
+public class HeapJobTable extends JobTable
+{
+    private int[][] ints = new int[INT_COLUMNS][];
+    private long[][] longs = new long[LONG_COLUMNS][];
+
+    public HeapJobTable(int capacity)
+    {
+        super(capacity);
+        resize(getCapacity());
+    }  // HeapJobTable()
+
+    protected int getInt(int column, int row)
+    {
+        return ints[column][row];
+    }  // getInt()
+
+    protected void setInt(int column, int row, int value)
+    {
+        ints[column][row] = value;
+    }  // setInt()
+
+    protected long getLong(int column, int row)
+    {
+        return longs[column][row];
+    }  // getLong()
+
+    protected void setLong(int column, int row, long value)
+    {
+        longs[column][row] = value;
+    }  // setLong()
+
+    protected void resize(int newCapacity)
+    {
+        for(int c = 0; c < INT_COLUMNS; c++)
+            ints[c] = ints[c] == null ? new int[newCapacity]
+                    : Arrays.copyOf(ints[c], newCapacity);
+        for(int c = 0; c < LONG_COLUMNS; c++)
+            longs[c] = longs[c] == null ? new long[newCapacity]
+                    : Arrays.copyOf(longs[c], newCapacity);
+    }  // resize()
+}  // HeapJobTable class
@@ -0,0 +1,60 @@
+/* HyperexponentialDistribution.java
+ * A mixture of exponentials: with probability p_i, an exponential time
+ * of mean_i.  A few phases with far apart means give the high variance
+ * of a workload of mostly short jobs and a few long ones.
+ */
+
+import java.util.SplittableRandom;
+
+public class HyperexponentialDistribution implements Distribution
+{
+    private final double[] cumulative;  // p_1, p_1 + p_2, ... 1
+    private final double[] means;
+
+    public HyperexponentialDistribution(double[] probabilities, double[] means)
+    {
+        double total = 0;
+        for(int i = 0; i < probabilities.length; i++)
+        {
+            if (!(probabilities[i] >= 0) || !(means[i] > 0))
+                throw new IllegalArgumentException(
+                        "Hyperexponential probabilities and means must be positive");
+            total += probabilities[i];
+        }
+        if (Math.abs(total - 1) > 1e-9)
+            throw new IllegalArgumentException(
+                    "Hyperexponential probabilities must add up to 1: " + total);
+
+        cumulative = new double[probabilities.length];
+        double sum = 0;
+        for(int i = 0; i < probabilities.length; i++)
+        {
+            sum += probabilities[i];
+            cumulative[i] = sum;
+        }
+        cumulative[cumulative.length - 1] = 1;
+        this.means = means.clone();
+    }  // HyperexponentialDistribution()
+
+    // Pick a phase, then draw its exponential.
+    public double sample(SplittableRandom random)
+    {
+        double u = random.nextDouble();
+        int i = 0;
+        while (u >= cumulative[i])
+            i++;
+        return -means[i] * Math.log(1.0 - random.nextDouble());
+    }  // sample()
+
+    public double getMean()
+    {
+        double mean = 0;
+        double previous = 0;
+        for(int i = 0; i < means.length; i++)
+        {
+            mean += (cumulative[i] - previous) * means[i];
+            previous = cumulative[i];
+        }
+        return mean;
+    }  // getMean()
+}  // HyperexponentialDistribution class
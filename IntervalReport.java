@@ -0,0 +1,108 @@
+/* IntervalReport.java
+ * A snapshot of one reporting interval of a simulation: the jobs
+ * completed and the throughput of each job type, the utilization of each
+ * processor and the wait times of the jobs completed in the interval.
+ * Unlike the totals printStatistics() divides by the whole run, the
+ * intervals show warmup, bursts and drift.
+ */
+
+public class IntervalReport
+{
+    private final long startTime;
+    private final long endTime;
+    private final int debugFactor;
+
+    // The statistics of all processors in the interval, and the busy time
+    // of each one.
+    private final IntervalStats stats;
+    private final long[] busyTime;
+
+    /**
+     * IntervalReport() constructor.
+     * Merges the statistics processors recorded from startTime to endTime.
+     */
+    public IntervalReport(long startTime, long endTime, int debugFactor,
+            IntervalStats[] processors)
+    {
+        this.startTime = startTime;
+        this.endTime = endTime;
+        this.debugFactor = debugFactor;
+        stats = new IntervalStats();
+        busyTime = new long[processors.length];
+        for(int k = 0; k < processors.length; k++)
+        {
+            stats.add(processors[k]);
+            busyTime[k] = processors[k].getBusyTime();
+        }
+    }
+
+    /**
+     * getStartTime() getter.  Returns the time the interval started.
+     */
+    public long getStartTime()
+    {
+        return startTime;
+    }
+
+    /**
+     * getEndTime() getter.  Returns the time the interval ended.
+     */
+    public long getEndTime()
+    {
+        return endTime;
+    }
+
+    /**
+     * getStatistics() getter.
+     * Returns the completions, busy time and wait times of all processors
+     * in the interval.
+     */
+    public IntervalStats getStatistics()
+    {
+        return stats;
+    }
+
+    /**
+     * getThroughput() getter.
+     * Returns the short or long jobs completed per 100 time units of the
+     * interval, with the debug factor divided out.
+     */
+    public double getThroughput(boolean shortJob)
+    {
+        long completed = shortJob ? stats.getShortCompleted() : stats.getLongCompleted();
+        return completed / ((endTime - startTime) / (double) debugFactor) * 100;
+    }
+
+    /**
+     * getUtilization() getter.
+     * Returns the percentage of the interval a processor was busy.  A
+     * timeslice that spans intervals counts in each for the part of it
+     * there.
+     */
+    public double getUtilization(int processorID)
+    {
+        return (double) busyTime[processorID] / (endTime - startTime) * 100;
+    }
+
+    /**
+     * toString() method.  Returns the report as one line.
+     */
+    public String toString()
+    {
+        StringBuilder sb = new StringBuilder();
+        sb.append("Interval ").append(startTime / (double) debugFactor)
+                .append(" - ").append(endTime / (double) debugFactor)
+                .append(": completed ").append(stats.getShortCompleted())
+                .append(" short / ").append(stats.getLongCompleted())
+                .append(" long, throughput ").append(getThroughput(true))
+                .append(" / ").append(getThroughput(false))
+                .append(", utilization %");
+        for(int k = 0; k < busyTime.length; k++)
+            sb.append(k == 0 ? " " : " / ").append(getUtilization(k));
+        sb.append(", short wait p50/p90/p99/p99.9 ")
+                .append(stats.shortWaitTime.toPercentileString(debugFactor))
+                .append(", long wait p50/p90/p99/p99.9 ")
+                .append(stats.longWaitTime.toPercentileString(debugFactor));
+        return sb.toString();
+    }
+}
@@ -0,0 +1,128 @@
+/* IntervalStats.java
+ * The statistics of one processor over one reporting interval: jobs
+ * completed, busy time and wait times.  A StatShard keeps two of them and
+ * swaps them when an interval ends, so the processor records into one
+ * while the other is read.  The busy time of a timeslice that spans the
+ * end of an interval is split between the two (see StatShard); its
+ * completion and wait time count in the interval it ends in.
+ */
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+public class IntervalStats
+{
+    private long shortCompleted;
+    private long longCompleted;
+    private long busyTime;
+
+    // Wait times of the jobs completed in the interval.
+    public final LatencyHistogram shortWaitTime = new LatencyHistogram(true);
+    public final LatencyHistogram longWaitTime = new LatencyHistogram(true);
+
+    /**
+     * record() method.
+     * Records a timeslice of busyTime, and the wait time of its job if
+     * the job completed.
+     */
+    public void record(boolean completed, boolean shortJob, long waitTime,
+            long busyTime)
+    {
+        this.busyTime += busyTime;
+        if (!completed)
+            return;
+        if (shortJob)
+        {
+            shortCompleted++;
+            shortWaitTime.record(waitTime);
+        }
+        else
+        {
+            longCompleted++;
+            longWaitTime.record(waitTime);
+        }
+    }
+
+    /**
+     * addBusyTime() method.  Adds busyTime of a timeslice that goes on
+     * into the next interval.
+     */
+    public void addBusyTime(long busyTime)
+    {
+        this.busyTime += busyTime;
+    }
+
+    /**
+     * add() method.  Adds the statistics of another interval.
+     */
+    public void add(IntervalStats s)
+    {
+        shortCompleted += s.shortCompleted;
+        longCompleted += s.longCompleted;
+        busyTime += s.busyTime;
+        shortWaitTime.add(s.shortWaitTime);
+        longWaitTime.add(s.longWaitTime);
+    }
+
+    /**
+     * reset() method.  Clears the statistics for a new interval.
+     */
+    public void reset()
+    {
+        shortCompleted = 0;
+        longCompleted = 0;
+        busyTime = 0;
+        shortWaitTime.reset();
+        longWaitTime.reset();
+    }
+
+    /**
+     * save() method.  Writes the statistics to out.
+     */
+    public void save(DataOutput out) throws IOException
+    {
+        out.writeLong(shortCompleted);
+        out.writeLong(longCompleted);
+        out.writeLong(busyTime);
+        shortWaitTime.save(out);
+        longWaitTime.save(out);
+    }
+
+    /**
+     * restore() method.  Replaces the statistics with those save() wrote
+     * to in.
+     */
+    public void restore(DataInput in) throws IOException
+    {
+        shortCompleted = in.readLong();
+        longCompleted = in.readLong();
+        busyTime = in.readLong();
+        shortWaitTime.restore(in);
+        longWaitTime.restore(in);
+    }
+
+    /**
+     * getShortCompleted() getter.  Returns the short jobs completed.
+     */
+    public long getShortCompleted()
+    {
+        return shortCompleted;
+    }
+
+    /**
+     * getLongCompleted() getter.  Returns the long jobs completed.
+     */
+    public long getLongCompleted()
+    {
+        return longCompleted;
+    }
+
+    /**
+     * getBusyTime() getter.  Returns the time spent servicing jobs.
+     */
+    public long getBusyTime()
+    {
+        return busyTime;
+    }
+}
@@ -0,0 +1,121 @@
+/* JobBuffer.java
+ * The bounded buffer between the producer and consumer threads of the
+ * schedulers.  A producer reserves room for a job before creating it and
+ * then publishes it; consumers block in take() while the buffer is empty.
+ * The batch versions of the operations move several jobs for the cost of
+ * one handoff; the defaults here simply repeat the single ones.
+ */
+
+public interface JobBuffer<E>
+{
+    /**
+     * reserve() method.  Waits until there is room for one more job.
+     */
+    void reserve() throws InterruptedException;
+
+    /**
+     * tryReserve() method.  Takes room for one more job if there is some,
+     * without waiting.  Returns false if the buffer is full.
+     */
+    boolean tryReserve();
+
+    /**
+     * publish() method.  Adds a job to the tail, using room that was
+     * taken by a previous call to reserve().
+     */
+    void publish(E e);
+
+    /**
+     * take() method.  Removes the job at the head, waiting for one.
+     */
+    E take() throws InterruptedException;
+
+    /**
+     * poll() method.  Removes the job at the head, or returns null
+     * without waiting if the buffer is empty.
+     */
+    E poll();
+
+    /**
+     * requeue() method.  Puts a preempted job back at the tail without
+     * waiting.  The job counts against the capacity, so producers wait
+     * until the buffer drains below it again; each consumer holds at most
+     * one job, or one batch, so the buffer never exceeds capacity plus the
+     * jobs the consumers hold.
+     */
+    void requeue(E e);
+
+    /**
+     * admit() method.  Removes the job at the head as poll() does, but
+     * keeps its room taken, so the job still counts against the capacity
+     * until release() gives the room back.  For a consumer that keeps
+     * jobs queued in a run queue of its own.
+     */
+    E admit();
+
+    /**
+     * release() method.  Gives back the room of a job admit() removed,
+     * as take() would have when the job is taken to run.
+     */
+    void release();
+
+    /**
+     * hold() method.  Takes room for a preempted job queued outside the
+     * buffer, as requeue() would, without waiting.
+     */
+    void hold();
+
+    /**
+     * reserve() method.  Waits until there is room for n more jobs.
+     */
+    default void reserve(int n) throws InterruptedException
+    {
+        for(int i = 0; i < n; i++)
+            reserve();
+    }
+
+    /**
+     * publishAll() method.  Adds the first n jobs of jobs to the tail, in
+     * order, using room taken by reserve(n).
+     */
+    default void publishAll(E[] jobs, int n)
+    {
+        for(int i = 0; i < n; i++)
+            publish(jobs[i]);
+    }
+
+    /**
+     * take() method.  Removes up to max jobs from the head into batch,
+     * waiting for the first, and returns how many it removed.
+     */
+    default int take(E[] batch, int max) throws InterruptedException
+    {
+        batch[0] = take();
+        int n = 1;
+        E e;
+        while(n < max && (e = poll()) != null)
+            batch[n++] = e;
+        return n;
+    }
+
+    /**
+     * requeueAll() method.  Puts the first n jobs of jobs back at the
+     * tail, in order, without waiting.
+     */
+    default void requeueAll(E[] jobs, int n)
+    {
+        for(int i = 0; i < n; i++)
+            requeue(jobs[i]);
+    }
+
+    /**
+     * size() method.  Returns the number of jobs in the buffer.
+     */
+    int size();
+
+    /**
+     * remainingCapacity() method.  Returns how many more new jobs there
+     * is room for.  It is a sample, read without locking.
+     */
+    int remainingCapacity();
+}
@@ -0,0 +1,313 @@
+/* JobResultsReader.java
+ * Reads a file of job results in the format JobResultsWriter describes.
+ * The file is memory-mapped a window of whole blocks at a time, so it can
+ * be far larger than the heap, and a column is decoded straight out of
+ * the mapping.  Scanning one column reads the block headers and that
+ * column's bytes, and the pages of the other columns are never touched.
+ * nextBlock() moves to the next block, whose columns scanBlock() decodes;
+ * scan() decodes one column of the whole file.
+ */
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.UncheckedIOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.function.LongConsumer;
+
+public class JobResultsReader implements Closeable
+{
+    // Bytes in a mapped window by default: 1 GB, less any partial block.
+    private static final long WINDOW_BYTES = 1L << 30;
+
+    private static final JobResultsWriter.column[] COLUMNS =
+            JobResultsWriter.column.values();
+
+    private final String file;
+    private final FileChannel channel;
+    private final long size;
+    private final long windowBytes;
+
+    // The mapped window and the file position it starts at.
+    private MappedByteBuffer window;
+    private long windowStart;
+
+    // The current block: its offset in the window, its jobs and the
+    // offset of each column in it, and the file position of the next one.
+    private int block;
+    private int blockJobs;
+    private final int[] columnOffsets = new int[COLUMNS.length];
+    private long next = JobResultsWriter.HEADER_SIZE;
+
+    /**
+     * JobResultsReader() constructor.  Opens a results file.
+     */
+    public JobResultsReader(String file) throws IOException
+    {
+        this(file, WINDOW_BYTES);
+    }
+
+    /**
+     * JobResultsReader() constructor.
+     * Opens a results file, mapping at most windowBytes of it at a time,
+     * or one block if that is larger.  Throws IOException if the file is
+     * not a results file.
+     */
+    public JobResultsReader(String file, long windowBytes) throws IOException
+    {
+        this.file = file;
+        this.windowBytes = windowBytes;
+        channel = FileChannel.open(Paths.get(file), StandardOpenOption.READ);
+
+        try
+        {
+            size = channel.size();
+            if (size < JobResultsWriter.HEADER_SIZE)
+                throw new IOException(file + " is not a job results file");
+            MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY,
+                    0, JobResultsWriter.HEADER_SIZE);
+            header.order(ByteOrder.LITTLE_ENDIAN);
+            if (header.getInt(0) != JobResultsWriter.MAGIC
+                    || header.getInt(4) != JobResultsWriter.VERSION)
+                throw new IOException(file + " is not a job results file");
+        }
+        catch(IOException e)
+        {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * nextBlock() method.  Moves to the next block.  Returns false at the
+     * end of the file.  Throws UncheckedIOException if the block is
+     * truncated or its window of the file cannot be mapped.
+     */
+    public boolean nextBlock()
+    {
+        if (next == size)
+            return false;
+        if (next + JobResultsWriter.BLOCK_HEADER_SIZE > size)
+            throw new UncheckedIOException(new IOException(file + " is truncated"));
+        if (window == null || next + JobResultsWriter.BLOCK_HEADER_SIZE
+                > windowStart + window.capacity())
+            map(next, JobResultsWriter.BLOCK_HEADER_SIZE);
+
+        block = (int) (next - windowStart);
+        blockJobs = window.getInt(block);
+        long bytes = JobResultsWriter.BLOCK_HEADER_SIZE;
+        for(int i = 0; i < COLUMNS.length; i++)
+        {
+            columnOffsets[i] = (int) bytes;
+            bytes += window.getInt(block + 4 + 4 * i) & 0xFFFFFFFFL;
+        }
+        if (next + bytes > size)
+            throw new UncheckedIOException(new IOException(file + " is truncated"));
+
+        // Map a window that holds all of the block.
+        if (next + bytes > windowStart + window.capacity())
+        {
+            map(next, bytes);
+            block = 0;
+        }
+        next += bytes;
+        return true;
+    }
+
+    /**
+     * getBlockJobs() getter.  Returns the jobs in the current block.
+     */
+    public int getBlockJobs()
+    {
+        return blockJobs;
+    }
+
+    /**
+     * scanBlock() method.
+     * Passes the values of column c of the jobs in the current block to
+     * action, in order.
+     */
+    public void scanBlock(JobResultsWriter.column c, LongConsumer action)
+    {
+        int p = block + columnOffsets[c.ordinal()];
+        if (c == JobResultsWriter.column.Type)
+        {
+            for(int i = 0; i < blockJobs; i++)
+                action.accept(window.get(p + i));
+            return;
+        }
+
+        boolean delta = isDelta(c);
+        long last = 0;
+        for(int i = 0; i < blockJobs; i++)
+        {
+            // A zigzag varint, seven bits to a byte.
+            long z = 0;
+            int shift = 0;
+            byte b;
+            do
+            {
+                b = window.get(p++);
+                z |= (long) (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+            long v = (z >>> 1) ^ -(z & 1);
+
+            if (delta)
+                v = last += v;
+            action.accept(v);
+        }
+    }  // scanBlock()
+
+    /**
+     * scan() method.
+     * Passes the values of column c of every job in the file to action,
+     * a block at a time, and returns the number of jobs.
+     */
+    public long scan(JobResultsWriter.column c, LongConsumer action)
+    {
+        rewind();
+        long jobs = 0;
+        while (nextBlock())
+        {
+            scanBlock(c, action);
+            jobs += blockJobs;
+        }
+        return jobs;
+    }
+
+    /**
+     * rewind() method.  Moves back to before the first block.
+     */
+    public void rewind()
+    {
+        next = JobResultsWriter.HEADER_SIZE;
+        window = null;
+        blockJobs = 0;
+    }
+
+    /**
+     * close() method.  Closes the file.  The last window stays mapped until
+     * it is garbage collected.
+     */
+    public void close() throws IOException
+    {
+        channel.close();
+    }
+
+    // True if column c holds deltas from the job before.
+    private static boolean isDelta(JobResultsWriter.column c)
+    {
+        switch(c)
+        {
+            case JobID:
+            case Generation:
+            case FirstDispatch:
+            case Completion:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    // Map the window that starts at position, with at least bytes of it.
+    private void map(long position, long bytes)
+    {
+        long length = Math.min(Math.max(windowBytes, bytes), size - position);
+        try
+        {
+            window = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+        }
+        catch(IOException e)
+        {
+            throw new UncheckedIOException(e);
+        }
+        window.order(ByteOrder.LITTLE_ENDIAN);
+        windowStart = position;
+    }
+
+    /**
+     * main() method.
+     * Prints the count, minimum, mean and maximum of one column of a
+     * results file, or all of the file as CSV if no column is given:
+     *   JobResultsReader file [column]
+     */
+    public static void main(String[] args)
+    {
+        if (args.length < 1)
+        {
+            System.err.println("usage: JobResultsReader file [column]");
+            System.exit(1);
+        }
+
+        try (JobResultsReader in = new JobResultsReader(args[0]))
+        {
+            if (args.length > 1)
+            {
+                JobResultsWriter.column c = JobResultsWriter.column.valueOf(args[1]);
+                long[] summary = {0, Long.MAX_VALUE, Long.MIN_VALUE};
+                long jobs = in.scan(c, v ->
+                {
+                    summary[0] += v;
+                    summary[1] = Math.min(summary[1], v);
+                    summary[2] = Math.max(summary[2], v);
+                });
+                System.out.println(c + ": " + jobs + " jobs");
+                if (jobs > 0)
+                    System.out.printf("min %d, mean %.3f, max %d%n",
+                            summary[1], (double) summary[0] / jobs, summary[2]);
+                return;
+            }
+
+            PrintWriter out = new PrintWriter(new BufferedWriter(
+                    new OutputStreamWriter(System.out), 1 << 16));
+            StringBuilder sb = new StringBuilder();
+            for(JobResultsWriter.column c : COLUMNS)
+                sb.append(sb.length() > 0 ? "," : "").append(c);
+            out.println(sb);
+
+            RRJob.jobType[] types = RRJob.jobType.values();
+            long[][] values = new long[COLUMNS.length][];
+            while (in.nextBlock())
+            {
+                int jobs = in.getBlockJobs();
+                for(JobResultsWriter.column c : COLUMNS)
+                {
+                    long[] v = values[c.ordinal()];
+                    if (v == null || v.length < jobs)
+                        v = values[c.ordinal()] = new long[jobs];
+                    int[] i = {0};
+                    long[] column = v;
+                    in.scanBlock(c, x -> column[i[0]++] = x);
+                }
+                for(int j = 0; j < jobs; j++)
+                {
+                    sb.setLength(0);
+                    for(JobResultsWriter.column c : COLUMNS)
+                    {
+                        if (c.ordinal() > 0)
+                            sb.append(',');
+                        long x = values[c.ordinal()][j];
+                        if (c == JobResultsWriter.column.Type)
+                            sb.append(types[(int) x]);
+                        else
+                            sb.append(x);
+                    }
+                    out.println(sb);
+                }
+            }
+            out.flush();
+        }
+        catch(IOException | UncheckedIOException | IllegalArgumentException e)
+        {
+            System.err.println("JobResultsReader: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+}
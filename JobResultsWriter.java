@@ -0,0 +1,298 @@
+/* JobResultsWriter.java
+ * Writes the results of completed jobs to a file a column to a field, so
+ * the results of tens of millions of jobs take a few bytes each and one
+ * field of them can be read without touching the others (see
+ * JobResultsReader).  Every thread that completes jobs has a Writer of its
+ * own, which encodes its jobs into a block of columns in memory with no
+ * locking and no allocation.  A full block is handed to a background
+ * thread, as EventLog hands off its buffers, which writes it to the file
+ * in one gathering write through a FileChannel, so the file grows in
+ * large sequential writes, a block after another.  The Writer carries on
+ * with an empty block from a pool allocated up front, and waits for one
+ * to be written only if the background thread falls behind.
+ *
+ * A file is a HEADER_SIZE byte header (the MAGIC number and the VERSION)
+ * and then blocks, all little-endian.  A block is BLOCK_HEADER_SIZE bytes
+ * of header:
+ *
+ *   int   jobs in the block
+ *   int   bytes of each column, in column order
+ *
+ * and then the columns, one after another.  Every column but Type is a
+ * varint a job: seven bits to a byte, least significant first, of the
+ * value zigzag-encoded so small negative numbers stay short.  The job ID
+ * and the times are deltas from the job before in the block, the first
+ * from 0, which are small since a Writer's jobs complete in order.  Type
+ * is a byte a job, the RRJob.jobType ordinal.
+ *
+ *   JobID              Delta
+ *   Type               Byte
+ *   Generation         Delta, on the simulation's clock from its start
+ *   FirstDispatch      Delta, the time the job first ran
+ *   Completion         Delta
+ *   Wait               Completion - generation - service
+ *   Service            Time units of service
+ *   Preemptions        Times the job was preempted
+ *   ProcessorsVisited  Times the job ran on a processor other than the
+ *                      one it ran on last, its first dispatch included
+ *
+ * Blocks from different Writers are interleaved, so the jobs are not in
+ * any order across blocks.
+ */
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+public class JobResultsWriter implements Closeable
+{
+    public enum column {JobID, Type, Generation, FirstDispatch, Completion,
+            Wait, Service, Preemptions, ProcessorsVisited};
+
+    public static final int MAGIC = 0x524A5252;  // "RRJR"
+    public static final int VERSION = 1;
+    public static final int HEADER_SIZE = 8;
+
+    private static final column[] COLUMNS = column.values();
+    public static final int BLOCK_HEADER_SIZE = 4 + 4 * COLUMNS.length;
+
+    // Jobs in a full block, the most bytes a varint takes, and the blocks
+    // shared by all the Writers besides the one each of them fills.
+    private static final int BLOCK_JOBS = 16384;
+    private static final int MAX_VARINT = 10;
+    private static final int SPARE_BLOCKS = 4;
+
+    private final FileChannel channel;
+    private final Thread writerThread;
+
+    // Full blocks waiting to be written, and empty ones.  A block is the
+    // block header, then one buffer a column, as a gathering write takes
+    // them.
+    private final LinkedBlockingQueue<ByteBuffer[]> full =
+            new LinkedBlockingQueue<ByteBuffer[]>();
+    private final LinkedBlockingQueue<ByteBuffer[]> spare =
+            new LinkedBlockingQueue<ByteBuffer[]>();
+
+    // Every Writer, so close() can hand in their last blocks.
+    private final ConcurrentLinkedQueue<Writer> writers =
+            new ConcurrentLinkedQueue<Writer>();
+
+    // An empty block put on the full queue to stop the writer thread.
+    private static final ByteBuffer[] END = new ByteBuffer[0];
+
+    // The first write error of the background thread.
+    private volatile IOException error;
+
+    /**
+     * JobResultsWriter() constructor.
+     * Creates or replaces a results file, writes its header and starts its
+     * writer thread.
+     */
+    public JobResultsWriter(String file) throws IOException
+    {
+        channel = FileChannel.open(Paths.get(file), StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(MAGIC);
+        header.putInt(VERSION);
+        header.flip();
+        try
+        {
+            while (header.hasRemaining())
+                channel.write(header);
+        }
+        catch(IOException e)
+        {
+            channel.close();
+            throw e;
+        }
+        for(int i = 0; i < SPARE_BLOCKS; i++)
+            spare.add(newBlock());
+        writerThread = new Thread(() -> writeBlocks(), "JobResultsWriter");
+        writerThread.setDaemon(true);
+        writerThread.start();
+    }
+
+    /**
+     * newWriter() method.  Returns a Writer for one thread to write with,
+     * with a block of its own.
+     */
+    public Writer newWriter()
+    {
+        Writer w = new Writer(newBlock());
+        writers.add(w);
+        return w;
+    }
+
+    /**
+     * close() method.
+     * Writes the last block of every Writer and closes the file.  The
+     * Writers must no longer be in use.  Throws the first write error, if
+     * any.
+     */
+    public void close() throws IOException
+    {
+        for(Writer w : writers)
+            w.handOff(null);
+        full.add(END);
+        try
+        {
+            writerThread.join();
+        }
+        catch(InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+        channel.close();
+        if (error != null)
+            throw error;
+    }
+
+    // Background thread: write full blocks until END.
+    private void writeBlocks()
+    {
+        while (true)
+        {
+            ByteBuffer[] block;
+            try { block = full.take(); }
+                catch(InterruptedException e) { continue; }
+            if (block == END)
+                return;
+
+            long bytes = 0;
+            for(ByteBuffer b : block)
+                bytes += b.remaining();
+            try
+            {
+                while (bytes > 0)
+                    bytes -= channel.write(block);
+            }
+            catch(IOException e)
+            {
+                if (error == null)
+                    error = e;
+            }
+            for(ByteBuffer b : block)
+                b.clear();
+            spare.add(block);
+        }
+    }
+
+    // A new block, for the pool.
+    private static ByteBuffer[] newBlock()
+    {
+        ByteBuffer[] block = new ByteBuffer[1 + COLUMNS.length];
+        block[0] = ByteBuffer.allocateDirect(BLOCK_HEADER_SIZE)
+                .order(ByteOrder.LITTLE_ENDIAN);
+        for(column c : COLUMNS)
+            block[1 + c.ordinal()] = ByteBuffer.allocateDirect(
+                    BLOCK_JOBS * (c == column.Type ? 1 : MAX_VARINT));
+        return block;
+    }
+
+    // An empty block, waiting for the writer thread to write one out if
+    // none is.  An interrupt does not end the wait, but is kept.
+    private ByteBuffer[] emptyBlock()
+    {
+        boolean interrupted = false;
+        ByteBuffer[] block = null;
+        while (block == null)
+        {
+            try { block = spare.take(); }
+                catch(InterruptedException e) { interrupted = true; }
+        }
+        if (interrupted)
+            Thread.currentThread().interrupt();
+        return block;
+    }
+
+    // Append a zigzag varint of v to b.
+    private static void putVarLong(ByteBuffer b, long v)
+    {
+        long z = (v << 1) ^ (v >> 63);
+        while ((z & ~0x7FL) != 0)
+        {
+            b.put((byte) (z | 0x80));
+            z >>>= 7;
+        }
+        b.put((byte) z);
+    }
+
+    /* Writer class
+     * The results of the jobs one thread completes.  Only one thread may
+     * use a Writer at a time.
+     */
+    public class Writer
+    {
+        // The block being filled, and the jobs in it.
+        private ByteBuffer[] block;
+        private int jobs = 0;
+
+        // The job ID and times of the last job in the block.
+        private long lastJobID;
+        private long lastGeneration;
+        private long lastFirstDispatch;
+        private long lastCompletion;
+
+        private Writer(ByteBuffer[] block)
+        {
+            this.block = block;
+        }
+
+        /**
+         * add() method.  Adds the results of a completed job.
+         */
+        public void add(int jobID, RRJob.jobType type, long generation,
+                long firstDispatch, long completion, long wait, long service,
+                int preemptions, int processorsVisited)
+        {
+            putVarLong(block[1 + column.JobID.ordinal()], jobID - lastJobID);
+            block[1 + column.Type.ordinal()].put((byte) type.ordinal());
+            putVarLong(block[1 + column.Generation.ordinal()], generation - lastGeneration);
+            putVarLong(block[1 + column.FirstDispatch.ordinal()],
+                    firstDispatch - lastFirstDispatch);
+            putVarLong(block[1 + column.Completion.ordinal()], completion - lastCompletion);
+            putVarLong(block[1 + column.Wait.ordinal()], wait);
+            putVarLong(block[1 + column.Service.ordinal()], service);
+            putVarLong(block[1 + column.Preemptions.ordinal()], preemptions);
+            putVarLong(block[1 + column.ProcessorsVisited.ordinal()], processorsVisited);
+            lastJobID = jobID;
+            lastGeneration = generation;
+            lastFirstDispatch = firstDispatch;
+            lastCompletion = completion;
+
+            if (++jobs == BLOCK_JOBS)
+                handOff(emptyBlock());
+        }  // add()
+
+        // Queue the block for writing, if it holds any jobs, and carry on
+        // with next.
+        private void handOff(ByteBuffer[] next)
+        {
+            if (jobs > 0)
+            {
+                ByteBuffer header = block[0];
+                header.clear();
+                header.putInt(jobs);
+                for(int i = 1; i < block.length; i++)
+                {
+                    header.putInt(block[i].position());
+                    block[i].flip();
+                }
+                header.flip();
+                full.add(block);
+                block = next;
+            }
+            else if (next != null)
+                spare.add(next);
+            jobs = 0;
+            lastJobID = lastGeneration = lastFirstDispatch = lastCompletion = 0;
+        }  // handOff()
+    }  // Writer class
+}
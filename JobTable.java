@@ -0,0 +1,304 @@
+/* JobTable.java
+ * Jobs stored column by column, as an alternative to one RRJob object
+ * per job.  A job is an int handle, its row in parallel columns of ints
+ * and longs.  The row of a completed job is freed and reused by the next
+ * job, so a simulation of any length needs only as many rows as it has
+ * jobs alive at once, and it allocates nothing per job.  HeapJobTable
+ * keeps the columns in Java arrays, and DirectJobTable in direct buffers
+ * outside the heap, which the garbage collector never scans.
+ * A table belongs to one thread.
+ */
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+public abstract class JobTable
+{
+    // Int columns.
+    protected static final int TYPE = 0;
+    protected static final int JOB_ID = 1;
+    protected static final int SERVICE_LENGTH = 2;
+    protected static final int PROCESSOR_ID = 3;
+    protected static final int PREEMPTIONS = 4;
+    protected static final int PROCESSORS_VISITED = 5;
+    protected static final int INT_COLUMNS = 6;
+
+    // Long columns.
+    protected static final int GENERATION_TIME = 0;
+    protected static final int SERVICED_TIME = 1;
+    protected static final int COMPLETION_TIME = 2;
+    protected static final int FIRST_DISPATCH_TIME = 3;
+    protected static final int LONG_COLUMNS = 4;
+
+    private static final RRJob.jobType[] TYPES = RRJob.jobType.values();
+
+    private int capacity;    // Rows in the columns
+    private int nextRow;     // Rows below nextRow have been used
+    private int[] freeRows;  // Stack of freed rows
+    private int freeCount;
+
+    /**
+     * JobTable() constructor.  Starts with room for capacity jobs.
+     */
+    protected JobTable(int capacity)
+    {
+        this.capacity = Math.max(1, capacity);
+        freeRows = new int[this.capacity];
+    }
+
+    // Column access for the storage of the subclass.
+    protected abstract int getInt(int column, int row);
+    protected abstract void setInt(int column, int row, int value);
+    protected abstract long getLong(int column, int row);
+    protected abstract void setLong(int column, int row, long value);
+
+    // Make room for newCapacity rows, keeping the rows in use.
+    protected abstract void resize(int newCapacity);
+
+    /**
+     * allocate() method.
+     * Adds a job that is not yet dispatched and returns its handle.
+     * Its service length is zero and its processor ID -1.
+     */
+    public int allocate(RRJob.jobType type, int jobID, long generationTime)
+    {
+        int row;
+        if (freeCount > 0)
+            row = freeRows[--freeCount];
+        else
+        {
+            if (nextRow == capacity)
+            {
+                capacity *= 2;
+                resize(capacity);
+                freeRows = new int[capacity];
+            }
+            row = nextRow++;
+        }
+
+        setInt(TYPE, row, type.ordinal());
+        setInt(JOB_ID, row, jobID);
+        setInt(SERVICE_LENGTH, row, 0);
+        setInt(PROCESSOR_ID, row, -1);
+        setInt(PREEMPTIONS, row, 0);
+        setInt(PROCESSORS_VISITED, row, 0);
+        setLong(GENERATION_TIME, row, generationTime);
+        setLong(SERVICED_TIME, row, 0);
+        setLong(COMPLETION_TIME, row, 0);
+        setLong(FIRST_DISPATCH_TIME, row, -1);
+        return row;
+    }
+
+    /**
+     * free() method.  Gives up the row of a job, for reuse by a new one.
+     */
+    public void free(int h)
+    {
+        freeRows[freeCount++] = h;
+    }
+
+    /**
+     * size() getter.  Returns the number of jobs allocated and not freed.
+     */
+    public int size()
+    {
+        return nextRow - freeCount;
+    }
+
+    /**
+     * getCapacity() getter.  Returns the number of rows.
+     */
+    public int getCapacity()
+    {
+        return capacity;
+    }
+
+    /**
+     * getType() getter.  Returns the job type.
+     */
+    public RRJob.jobType getType(int h)
+    {
+        return TYPES[getInt(TYPE, h)];
+    }
+
+    /**
+     * getJobID() getter.  Returns the job ID.
+     */
+    public int getJobID(int h)
+    {
+        return getInt(JOB_ID, h);
+    }
+
+    /**
+     * getServiceLength() getter.  Returns the remaining service length.
+     */
+    public int getServiceLength(int h)
+    {
+        return getInt(SERVICE_LENGTH, h);
+    }
+
+    /**
+     * setServiceLength() setter.  Sets the remaining service length.
+     */
+    public void setServiceLength(int h, int length)
+    {
+        setInt(SERVICE_LENGTH, h, length);
+    }
+
+    /**
+     * getProcessorID() getter.  Returns the processor that last ran
+     * the job, or -1.
+     */
+    public int getProcessorID(int h)
+    {
+        return getInt(PROCESSOR_ID, h);
+    }
+
+    /**
+     * setProcessorID() setter.  Sets the processor ID.
+     */
+    public void setProcessorID(int h, int id)
+    {
+        setInt(PROCESSOR_ID, h, id);
+    }
+
+    /**
+     * getGenerationTime() getter.  Returns the generation time.
+     */
+    public long getGenerationTime(int h)
+    {
+        return getLong(GENERATION_TIME, h);
+    }
+
+    /**
+     * setServicedTime() setter.  Sets the serviced time.
+     */
+    public void setServicedTime(int h, long t)
+    {
+        setLong(SERVICED_TIME, h, t);
+    }
+
+    /**
+     * getCompletionTime() getter.  Returns the completion time.
+     */
+    public long getCompletionTime(int h)
+    {
+        return getLong(COMPLETION_TIME, h);
+    }
+
+    /**
+     * setCompletionTime() setter.  Sets the completion time.
+     */
+    public void setCompletionTime(int h, long t)
+    {
+        setLong(COMPLETION_TIME, h, t);
+    }
+
+    /**
+     * getServiceTime() getter.
+     * Returns the service time, found by completionTime minus servicedTime.
+     */
+    public long getServiceTime(int h)
+    {
+        return getLong(COMPLETION_TIME, h) - getLong(SERVICED_TIME, h);
+    }
+
+    /**
+     * countDispatch() method.
+     * Counts a dispatch to processor id at time t, as RRJob.countDispatch()
+     * does.  Call it before setProcessorID().
+     */
+    public void countDispatch(int h, int id, long t)
+    {
+        int last = getInt(PROCESSOR_ID, h);
+        if (last == -1)
+            setLong(FIRST_DISPATCH_TIME, h, t);
+        if (last != id)
+            setInt(PROCESSORS_VISITED, h, getInt(PROCESSORS_VISITED, h) + 1);
+    }
+
+    /**
+     * countPreemption() method.  Counts a timeslice that ran out.
+     */
+    public void countPreemption(int h)
+    {
+        setInt(PREEMPTIONS, h, getInt(PREEMPTIONS, h) + 1);
+    }
+
+    /**
+     * getFirstDispatchTime() getter.
+     * Returns the time the job first ran, or -1 if it has not.
+     */
+    public long getFirstDispatchTime(int h)
+    {
+        return getLong(FIRST_DISPATCH_TIME, h);
+    }
+
+    /**
+     * getPreemptions() getter.  Returns the timeslices that ran out.
+     */
+    public int getPreemptions(int h)
+    {
+        return getInt(PREEMPTIONS, h);
+    }
+
+    /**
+     * getProcessorsVisited() getter.
+     * Returns the processors the job has run on, each move counting.
+     */
+    public int getProcessorsVisited(int h)
+    {
+        return getInt(PROCESSORS_VISITED, h);
+    }
+
+    /**
+     * save() method.
+     * Writes the rows that have been used, and which of them are free, to
+     * out, so handles stay valid when they are restored.
+     */
+    public void save(DataOutput out) throws IOException
+    {
+        out.writeInt(nextRow);
+        out.writeInt(freeCount);
+        for(int i = 0; i < freeCount; i++)
+            out.writeInt(freeRows[i]);
+        for(int row = 0; row < nextRow; row++)
+        {
+            for(int c = 0; c < INT_COLUMNS; c++)
+                out.writeInt(getInt(c, row));
+            for(int c = 0; c < LONG_COLUMNS; c++)
+                out.writeLong(getLong(c, row));
+        }
+    }
+
+    /**
+     * restore() method.
+     * Replaces the jobs of a new table with those save() wrote to in,
+     * growing it as needed.
+     */
+    public void restore(DataInput in) throws IOException
+    {
+        int rows = in.readInt();
+        int free = in.readInt();
+        if (rows < 0 || free < 0 || free > rows)
+            throw new IOException("Job table of " + rows + " rows, " + free + " free");
+        if (rows > capacity)
+        {
+            capacity = rows;
+            resize(capacity);
+            freeRows = new int[capacity];
+        }
+        nextRow = rows;
+        freeCount = free;
+        for(int i = 0; i < freeCount; i++)
+            freeRows[i] = in.readInt();
+        for(int row = 0; row < nextRow; row++)
+        {
+            for(int c = 0; c < INT_COLUMNS; c++)
+                setInt(c, row, in.readInt());
+            for(int c = 0; c < LONG_COLUMNS; c++)
+                setLong(c, row, in.readLong());
+        }
+    }
+}
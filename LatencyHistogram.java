@@ -0,0 +1,256 @@
+/* LatencyHistogram.java
+ * A fixed-size, log-bucketed histogram of non-negative time values.
+ * Each power of two is split into SUB_BUCKETS linear buckets, so a value
+ * is placed within about 3% of itself, and values below SUB_BUCKETS are
+ * exact.  Recording is a handful of atomic updates: it never locks and
+ * never allocates, so any number of consumer threads can record at once.
+ * Count, total, min and max are kept exactly.
+ * A histogram with a single writer, such as one in a consumer's StatShard,
+ * can skip the atomic read-modify-writes and use ordered stores instead.
+ */
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+public class LatencyHistogram
+{
+    private static final int SUB_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BITS;
+    private static final int BUCKETS = (64 - SUB_BITS) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong total = new AtomicLong();
+    private final AtomicLong min = new AtomicLong(Long.MAX_VALUE);
+    private final AtomicLong max = new AtomicLong(0);
+    private final boolean singleWriter;
+
+    /**
+     * LatencyHistogram() constructor.  Any thread may record.
+     */
+    public LatencyHistogram()
+    {
+        this(false);
+    }
+
+    /**
+     * LatencyHistogram() constructor.
+     * If singleWriter is set, only one thread may record, though any
+     * thread may read or merge the histogram at any time.
+     */
+    public LatencyHistogram(boolean singleWriter)
+    {
+        this.singleWriter = singleWriter;
+    }
+
+    /**
+     * record() method.  Adds one value.  Negative values count as zero.
+     */
+    public void record(long value)
+    {
+        if (value < 0)
+            value = 0;
+
+        if (singleWriter)
+        {
+            int i = bucketOf(value);
+            counts.lazySet(i, counts.get(i) + 1);
+            count.lazySet(count.get() + 1);
+            total.lazySet(total.get() + value);
+            if (value < min.get())
+                min.lazySet(value);
+            if (value > max.get())
+                max.lazySet(value);
+            return;
+        }
+
+        counts.getAndIncrement(bucketOf(value));
+        count.getAndIncrement();
+        total.getAndAdd(value);
+
+        long m = min.get();
+        while (value < m && !min.compareAndSet(m, value))
+            m = min.get();
+        m = max.get();
+        while (value > m && !max.compareAndSet(m, value))
+            m = max.get();
+    }
+
+    /**
+     * add() method.  Adds every value recorded in another histogram.
+     */
+    public void add(LatencyHistogram h)
+    {
+        for(int i = 0; i < BUCKETS; i++)
+        {
+            long c = h.counts.get(i);
+            if (c != 0)
+                counts.getAndAdd(i, c);
+        }
+        count.getAndAdd(h.count.get());
+        total.getAndAdd(h.total.get());
+
+        long value = h.min.get();
+        long m = min.get();
+        while (value < m && !min.compareAndSet(m, value))
+            m = min.get();
+        value = h.max.get();
+        m = max.get();
+        while (value > m && !max.compareAndSet(m, value))
+            m = max.get();
+    }
+
+    /**
+     * reset() method.  Removes every value.  Nothing may record meanwhile.
+     */
+    public void reset()
+    {
+        for(int i = 0; i < BUCKETS; i++)
+            counts.lazySet(i, 0);
+        count.lazySet(0);
+        total.lazySet(0);
+        min.lazySet(Long.MAX_VALUE);
+        max.lazySet(0);
+    }
+
+    /**
+     * save() method.  Writes the histogram to out: its buckets that hold
+     * values, and the count, total, min and max.
+     */
+    public void save(DataOutput out) throws IOException
+    {
+        int used = 0;
+        for(int i = 0; i < BUCKETS; i++)
+            if (counts.get(i) != 0)
+                used++;
+        out.writeInt(used);
+        for(int i = 0; i < BUCKETS; i++)
+        {
+            long c = counts.get(i);
+            if (c != 0)
+            {
+                out.writeShort(i);
+                out.writeLong(c);
+            }
+        }
+        out.writeLong(count.get());
+        out.writeLong(total.get());
+        out.writeLong(min.get());
+        out.writeLong(max.get());
+    }
+
+    /**
+     * restore() method.  Replaces the values with those save() wrote to
+     * in.  Nothing may record meanwhile.
+     */
+    public void restore(DataInput in) throws IOException
+    {
+        reset();
+        int used = in.readInt();
+        for(int n = 0; n < used; n++)
+        {
+            int i = in.readUnsignedShort();
+            if (i >= BUCKETS)
+                throw new IOException("Histogram bucket " + i + " out of range");
+            counts.set(i, in.readLong());
+        }
+        count.set(in.readLong());
+        total.set(in.readLong());
+        min.set(in.readLong());
+        max.set(in.readLong());
+    }
+
+    /**
+     * getCount() getter.  Returns the number of values recorded.
+     */
+    public long getCount()
+    {
+        return count.get();
+    }
+
+    /**
+     * getMin() getter.  Returns the smallest value, or Long.MAX_VALUE
+     * if nothing was recorded.
+     */
+    public long getMin()
+    {
+        return min.get();
+    }
+
+    /**
+     * getMax() getter.  Returns the largest value.
+     */
+    public long getMax()
+    {
+        return max.get();
+    }
+
+    /**
+     * getMean() getter.  Returns the average value.
+     */
+    public double getMean()
+    {
+        long n = count.get();
+        return n == 0 ? 0 : (double) total.get() / n;
+    }
+
+    /**
+     * getValueAtPercentile() getter.
+     * Returns the value that percentile percent of the recorded values are
+     * at or below, to the precision of its bucket.
+     */
+    public long getValueAtPercentile(double percentile)
+    {
+        long n = count.get();
+        if (n == 0)
+            return 0;
+
+        long rank = (long) Math.ceil(percentile / 100 * n);
+        if (rank < 1)
+            rank = 1;
+
+        long seen = 0;
+        for(int i = 0; i < BUCKETS; i++)
+        {
+            seen += counts.get(i);
+            if (seen >= rank)
+                return Math.min(highestInBucket(i), max.get());
+        }
+        return max.get();
+    }
+
+    /**
+     * toPercentileString() method.
+     * Returns the p50 / p90 / p99 / p99.9 values, each divided by scale.
+     */
+    public String toPercentileString(double scale)
+    {
+        return getValueAtPercentile(50) / scale
+                + " / " + getValueAtPercentile(90) / scale
+                + " / " + getValueAtPercentile(99) / scale
+                + " / " + getValueAtPercentile(99.9) / scale;
+    }
+
+    // Bucket index of a value: exact below SUB_BUCKETS, then SUB_BUCKETS
+    // buckets for each power of two.
+    private static int bucketOf(long value)
+    {
+        if (value < SUB_BUCKETS)
+            return (int) value;
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BITS;
+        return (shift << SUB_BITS) + (int) (value >>> shift);
+    }
+
+    // Largest value that falls in a bucket.
+    private static long highestInBucket(int index)
+    {
+        if (index < 2 * SUB_BUCKETS)
+            return index;
+        int shift = (index >>> SUB_BITS) - 1;
+        long mantissa = index - ((long) shift << SUB_BITS);
+        return ((mantissa + 1) << shift) - 1;
+    }
+}
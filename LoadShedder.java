@@ -0,0 +1,254 @@
+/* LoadShedder.java
+ * What a simulation does with arrivals when its job buffer is full, and
+ * the count of what it shed.  Arrivals are open-loop, so a producer that
+ * blocks (Block, the original behaviour) only hides the overload: its
+ * jobs arrive late instead.  RejectNewest turns away a job that finds no
+ * room.  DropOldest makes room by dropping the job at the head of the
+ * queue.  CoDel rejects like RejectNewest, and also drops a job at the
+ * head whose time in the queue has stayed above codelTarget for a
+ * codelInterval, at a rate that grows while the delay stays high, as
+ * the CoDel queue manager does.  Work that is shed is never run, so it is
+ * wait the jobs behind it do not have to spend.  For each job dropped
+ * from the queue the shedder counts the service it had left times the
+ * jobs queued behind it, which is the queueing delay the drop saved them
+ * on one processor.  That leaves out the jobs that arrive later, so it is
+ * a lower bound.
+ */
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+public class LoadShedder
+{
+    public enum overflowType {Block, RejectNewest, DropOldest, CoDel};
+
+    private final overflowType overflow;
+
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong workShed = new AtomicLong();
+    private final AtomicLong delaySaved = new AtomicLong();
+    private final AtomicLong blockedTime = new AtomicLong();
+
+    // CoDel state, guarded by lock.  The queue delay that is good enough
+    // and how long it may stay above that, the time it will have stayed
+    // above for an interval, and while dropping, the drops so far and the
+    // time of the next one.  firstAboveTime and dropping are volatile so
+    // that a consumer whose job was queued for less than the target can
+    // see without the lock that CoDel is idle and has nothing to reset.
+    // The lock, unlike a monitor, does not pin a virtual thread.
+    private final ReentrantLock lock = new ReentrantLock();
+    private final long target;
+    private final long interval;
+    private volatile long firstAboveTime = 0;
+    private volatile boolean dropping = false;
+    private long dropCount = 0;
+    private long dropNext = 0;
+
+    /**
+     * LoadShedder() constructor.
+     * Sheds load as config says, with its CoDel times after the debug factor.
+     */
+    public LoadShedder(SimulationConfig config)
+    {
+        overflow = config.getOverflow();
+        target = (long) config.getCodelTarget() * config.getDebugFactor();
+        interval = Math.max(1, (long) config.getCodelInterval() * config.getDebugFactor());
+    }
+
+    /**
+     * getOverflow() getter.  Returns what happens to an arrival that
+     * finds the buffer full.
+     */
+    public overflowType getOverflow()
+    {
+        return overflow;
+    }
+
+    /**
+     * reject() method.  Counts a new job turned away, with its service length.
+     */
+    public void reject(long serviceLength)
+    {
+        rejected.getAndIncrement();
+        workShed.getAndAdd(serviceLength);
+    }
+
+    /**
+     * drop() method.  Counts a queued job dropped, with the service length
+     * it had left and the number of jobs queued behind it.
+     */
+    public void drop(long serviceLength, int queuedBehind)
+    {
+        dropped.getAndIncrement();
+        workShed.getAndAdd(serviceLength);
+        if (queuedBehind > 0)
+            delaySaved.getAndAdd(serviceLength * queuedBehind);
+    }
+
+    /**
+     * blocked() method.  Counts time a producer spent waiting for room.
+     */
+    public void blocked(long time)
+    {
+        if (time > 0)
+            blockedTime.getAndAdd(time);
+    }
+
+    /**
+     * dropAtHead() method.
+     * Returns true if CoDel drops a job taken from the head of the queue
+     * at time now, after queueDelay in the queue.  Any thread may ask.
+     */
+    public boolean dropAtHead(long now, long queueDelay)
+    {
+        if (overflow != overflowType.CoDel)
+            return false;
+        if (queueDelay < target && firstAboveTime == 0 && !dropping)
+            return false;
+        lock.lock();
+        try
+        {
+            return codel(now, queueDelay);
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+
+    // The CoDel control loop, from RFC 8289.
+    private boolean codel(long now, long queueDelay)
+    {
+        if (queueDelay < target)
+        {
+            firstAboveTime = 0;
+            dropping = false;
+            return false;
+        }
+        if (firstAboveTime == 0)
+        {
+            firstAboveTime = now + interval;
+            return false;
+        }
+
+        if (!dropping)
+        {
+            if (now < firstAboveTime)
+                return false;
+
+            // Start dropping, near the last rate if that was recent.
+            dropping = true;
+            dropCount = dropCount > 2 && now - dropNext < 8 * interval
+                    ? dropCount - 2 : 1;
+            dropNext = controlLaw(now);
+            return true;
+        }
+
+        if (now < dropNext)
+            return false;
+        dropCount++;
+        dropNext = controlLaw(dropNext);
+        return true;
+    }
+
+    // The time of the next drop: sooner the more drops there have been.
+    private long controlLaw(long t)
+    {
+        return t + Math.max(1, (long) (interval / Math.sqrt(dropCount)));
+    }
+
+    /**
+     * save() method.  Writes the counts and the CoDel state to out.
+     */
+    public void save(DataOutput out) throws IOException
+    {
+        lock.lock();
+        try
+        {
+            out.writeLong(rejected.get());
+            out.writeLong(dropped.get());
+            out.writeLong(workShed.get());
+            out.writeLong(delaySaved.get());
+            out.writeLong(blockedTime.get());
+            out.writeLong(firstAboveTime);
+            out.writeBoolean(dropping);
+            out.writeLong(dropCount);
+            out.writeLong(dropNext);
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * restore() method.
+     * Replaces the counts and the CoDel state with those save() wrote to in.
+     */
+    public void restore(DataInput in) throws IOException
+    {
+        lock.lock();
+        try
+        {
+            rejected.set(in.readLong());
+            dropped.set(in.readLong());
+            workShed.set(in.readLong());
+            delaySaved.set(in.readLong());
+            blockedTime.set(in.readLong());
+            firstAboveTime = in.readLong();
+            dropping = in.readBoolean();
+            dropCount = in.readLong();
+            dropNext = in.readLong();
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * getRejected() getter.  Returns the new jobs turned away.
+     */
+    public long getRejected()
+    {
+        return rejected.get();
+    }
+
+    /**
+     * getDropped() getter.  Returns the queued jobs dropped.
+     */
+    public long getDropped()
+    {
+        return dropped.get();
+    }
+
+    /**
+     * getWorkShed() getter.  Returns the service left in the jobs shed.
+     */
+    public long getWorkShed()
+    {
+        return workShed.get();
+    }
+
+    /**
+     * getDelaySaved() getter.
+     * Returns the service left in each job dropped times the jobs queued
+     * behind it: the queueing delay the drops saved, on one processor.
+     */
+    public long getDelaySaved()
+    {
+        return delaySaved.get();
+    }
+
+    /**
+     * getBlockedTime() getter.  Returns the time producers waited for room.
+     */
+    public long getBlockedTime()
+    {
+        return blockedTime.get();
+    }
+}
@@ -0,0 +1,233 @@
+/* LockedJobBuffer.java
+ * JobBuffer built from a LinkedList guarded by a lock and
+ * the bufferEmpty/bufferFull pair of semaphores.
+ * The lock is a ReentrantLock rather than the buffer monitor, so a
+ * virtual thread waiting for it gives up its carrier thread.
+ */
+
+import java.util.LinkedList;
+import java.util.concurrent.locks.ReentrantLock;
+
+public class LockedJobBuffer<E> implements JobBuffer<E>
+{
+    // The job buffer.
+    private LinkedList<E> buffer = new LinkedList<E>();
+
+    // Semaphores control the number of jobs in the buffer (0 - capacity).
+    private Semaphore bufferEmpty;
+    private Semaphore bufferFull = new Semaphore(0);
+
+    // Guards the list and the overdraft.
+    private final ReentrantLock lock = new ReentrantLock();
+
+    // Slots taken by requeued jobs while bufferEmpty had no permits left.
+    // They are paid back before any permit is returned to the producers.
+    private int overdraft = 0;
+
+    public LockedJobBuffer(int capacity)
+    {
+        bufferEmpty = new Semaphore(capacity);
+    }  // LockedJobBuffer()
+
+    public void reserve() throws InterruptedException
+    {
+        bufferEmpty.Pacquire();
+    }  // reserve()
+
+    public boolean tryReserve()
+    {
+        return bufferEmpty.tryPacquire();
+    }  // tryReserve()
+
+    public void reserve(int n) throws InterruptedException
+    {
+        bufferEmpty.Pacquire(n);
+    }  // reserve()
+
+    public void publish(E e)
+    {
+        lock.lock();
+        try
+        {
+            buffer.add(e);
+        }
+        finally
+        {
+            lock.unlock();
+        }
+        bufferFull.Vrelease();
+    }  // publish()
+
+    public E take() throws InterruptedException
+    {
+        bufferFull.Pacquire();
+        return removeHead();
+    }  // take()
+
+    // One lock and one pair of semaphore updates for the whole batch.
+    public void publishAll(E[] jobs, int n)
+    {
+        lock.lock();
+        try
+        {
+            for(int i = 0; i < n; i++)
+                buffer.add(jobs[i]);
+        }
+        finally
+        {
+            lock.unlock();
+        }
+        bufferFull.Vrelease(n);
+    }  // publishAll()
+
+    public int take(E[] batch, int max) throws InterruptedException
+    {
+        bufferFull.Pacquire();
+        int n = 1 + bufferFull.tryPacquireUpTo(max - 1);
+
+        int freed = 0;
+        lock.lock();
+        try
+        {
+            for(int i = 0; i < n; i++)
+            {
+                if(overdraft > 0)
+                    overdraft--;
+                else
+                    freed++;
+                batch[i] = buffer.remove();
+            }
+        }
+        finally
+        {
+            lock.unlock();
+        }
+        if(freed > 0)
+            bufferEmpty.Vrelease(freed);
+        return n;
+    }  // take()
+
+    public E poll()
+    {
+        if(!bufferFull.tryPacquire())
+            return null;
+        return removeHead();
+    }  // poll()
+
+    public E admit()
+    {
+        if(!bufferFull.tryPacquire())
+            return null;
+        lock.lock();
+        try
+        {
+            return buffer.remove();
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }  // admit()
+
+    public void release()
+    {
+        lock.lock();
+        try
+        {
+            payBack();
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }  // release()
+
+    public void hold()
+    {
+        lock.lock();
+        try
+        {
+            if(!bufferEmpty.tryPacquire())
+                overdraft++;
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }  // hold()
+
+    // Remove the head job, once bufferFull says there is one.
+    private E removeHead()
+    {
+        lock.lock();
+        try
+        {
+            payBack();
+            return buffer.remove();
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }  // removeHead()
+
+    // Give back the room of a job that leaves, paying back any overdraft
+    // first.  Called holding the lock.
+    private void payBack()
+    {
+        if(overdraft > 0)
+            overdraft--;
+        else
+            bufferEmpty.Vrelease();
+    }  // payBack()
+
+    public void requeue(E e)
+    {
+        lock.lock();
+        try
+        {
+            if(!bufferEmpty.tryPacquire())
+                overdraft++;
+            buffer.add(e);
+        }
+        finally
+        {
+            lock.unlock();
+        }
+        bufferFull.Vrelease();
+    }  // requeue()
+
+    public void requeueAll(E[] jobs, int n)
+    {
+        lock.lock();
+        try
+        {
+            overdraft += n - bufferEmpty.tryPacquireUpTo(n);
+            for(int i = 0; i < n; i++)
+                buffer.add(jobs[i]);
+        }
+        finally
+        {
+            lock.unlock();
+        }
+        bufferFull.Vrelease(n);
+    }  // requeueAll()
+
+    public int size()
+    {
+        lock.lock();
+        try
+        {
+            return buffer.size();
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }  // size()
+
+    public int remainingCapacity()
+    {
+        return bufferEmpty.availablePermits();
+    }  // remainingCapacity()
+}  // LockedJobBuffer class
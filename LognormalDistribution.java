@@ -0,0 +1,30 @@
+/* LognormalDistribution.java
+ * Lognormal times: e^X, where X is normal with mean mu and standard
+ * deviation sigma.  Right-skewed, with a heavier tail as sigma grows.
+ */
+
+import java.util.SplittableRandom;
+
+public class LognormalDistribution implements Distribution
+{
+    private final double mu;
+    private final double sigma;
+
+    public LognormalDistribution(double mu, double sigma)
+    {
+        if (!(sigma >= 0))
+            throw new IllegalArgumentException("Lognormal sigma must not be negative: " + sigma);
+        this.mu = mu;
+        this.sigma = sigma;
+    }  // LognormalDistribution()
+
+    public double sample(SplittableRandom random)
+    {
+        return Math.exp(mu + sigma * random.nextGaussian());
+    }  // sample()
+
+    public double getMean()
+    {
+        return Math.exp(mu + sigma * sigma / 2);
+    }  // getMean()
+}  // LognormalDistribution class
@@ -0,0 +1,24 @@
+/* MillisClock.java
+ * A clock of milliseconds: System.currentTimeMillis() and Thread.sleep().
+ * Timer slop of a millisecond or two is a large part of a short quantum.
+ */
+
+public class MillisClock implements SimClock
+{
+    public long now()
+    {
+        return System.currentTimeMillis();
+    }  // now()
+
+    public boolean sleep(long units)
+    {
+        try { Thread.sleep(units); }
+            catch(InterruptedException e) { return false; }
+        return true;
+    }  // sleep()
+
+    public long getUnitNanos()
+    {
+        return 1000000;
+    }  // getUnitNanos()
+}  // MillisClock class
@@ -0,0 +1,64 @@
+/* NanoClock.java
+ * A clock of System.nanoTime(), counted in time units of unitNanos
+ * nanoseconds from when the clock was created.  sleep() parks until
+ * spinNanos before the deadline, since a park can overshoot, and spins
+ * the rest of the way.  A spin of a few microseconds covers the wakeup
+ * latency of a park and leaves the processor free for the rest of the
+ * sleep.  A park can still overshoot by the timer slack, 50 us by default
+ * on Linux, so a spin that long makes sleeps exact at the cost of a busy
+ * processor.
+ */
+
+import java.util.concurrent.locks.LockSupport;
+
+public class NanoClock implements SimClock
+{
+    private final long unitNanos;
+    private final long spinNanos;  // The end of a sleep spun, not parked
+    private final long origin;
+
+    public NanoClock(long unitNanos, long spinNanos)
+    {
+        this(unitNanos, spinNanos, System.nanoTime());
+    }  // NanoClock()
+
+    // A clock counted from origin, a System.nanoTime().  On Linux that is
+    // the same clock in every process, so processes can share an origin.
+    public NanoClock(long unitNanos, long spinNanos, long origin)
+    {
+        if (unitNanos < 1)
+            throw new IllegalArgumentException("Time unit of " + unitNanos + " ns");
+        if (spinNanos < 0)
+            throw new IllegalArgumentException("Spin of " + spinNanos + " ns");
+        this.unitNanos = unitNanos;
+        this.spinNanos = spinNanos;
+        this.origin = origin;
+    }  // NanoClock()
+
+    public long now()
+    {
+        return (System.nanoTime() - origin) / unitNanos;
+    }  // now()
+
+    public boolean sleep(long units)
+    {
+        long deadline = System.nanoTime() + units * unitNanos;
+        long left;
+        while((left = deadline - System.nanoTime()) > spinNanos)
+        {
+            // An interrupt ends the sleep and is cleared, as it is by
+            // Thread.sleep().
+            LockSupport.parkNanos(left - spinNanos);
+            if (Thread.interrupted())
+                return false;
+        }
+        while(deadline - System.nanoTime() > 0)
+            Thread.onSpinWait();
+        return true;
+    }  // sleep()
+
+    public long getUnitNanos()
+    {
+        return unitNanos;
+    }  // getUnitNanos()
+}  // NanoClock class
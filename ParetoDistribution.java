@@ -0,0 +1,34 @@
+/* ParetoDistribution.java
+ * Heavy-tailed Pareto times: at least scale, with P(X > x) equal to
+ * (scale / x)^shape.  The mean is infinite for a shape of 1 or less.
+ * Sampled by inversion.
+ */
+
+import java.util.SplittableRandom;
+
+public class ParetoDistribution implements Distribution
+{
+    private final double shape;
+    private final double scale;
+    private final double inverseShape;
+
+    public ParetoDistribution(double shape, double scale)
+    {
+        if (!(shape > 0) || !(scale > 0))
+            throw new IllegalArgumentException(
+                    "Pareto shape and scale must be positive: " + shape + ", " + scale);
+        this.shape = shape;
+        this.scale = scale;
+        inverseShape = 1 / shape;
+    }  // ParetoDistribution()
+
+    public double sample(SplittableRandom random)
+    {
+        return scale / Math.pow(1.0 - random.nextDouble(), inverseShape);
+    }  // sample()
+
+    public double getMean()
+    {
+        return shape > 1 ? shape * scale / (shape - 1) : Double.POSITIVE_INFINITY;
+    }  // getMean()
+}  // ParetoDistribution class
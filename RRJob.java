@@ -11,10 +11,6 @@ public class RRJob
     // Declare short and long job types
     public enum jobType {ShortJob, LongJob};
 
-    // Set short and long service times
-    public static final int SHORT_SERVICE_TIME = 5 * RRScheduler.DEBUG_FACTOR;
-    public static final int LONG_SERVICE_TIME = 50 * RRScheduler.DEBUG_FACTOR;
-
     private int processorID;  // set processor ID for this job
     private jobType type; // job type
 
@@ -22,6 +18,9 @@ public class RRJob
     private long generationTime; // The job generation time
     private long completionTime; // The job completion time
     private long servicedTime; // The job serviced time
+    private long firstDispatchTime = -1; // The time the job first ran
+    private int preemptions; // Timeslices that ran out on the job
+    private int processorsVisited; // Processors run on, each move counting
     public int jobID; // The job ID
 
     /**
@@ -67,7 +66,20 @@ public class RRJob
         type = t;
         processorID = -1;
         jobID = id;
-    } 
+    }
+
+    /**
+     * RRJob() constructor.
+     * Initializes the RRJob object with an explicit generation time,
+     * for jobs created on the virtual clock of the discrete-event engine.
+     */
+    public RRJob(jobType t, int id, long generationTime)
+    {
+        this.generationTime = generationTime;
+        type = t;
+        processorID = -1;
+        jobID = id;
+    }
 
     /**
      * getType() method
@@ -123,6 +135,79 @@ public class RRJob
         servicedTime = s;
     }
 
+    /**
+     * getServicedTime() getter
+     * Returns the serviced Time
+     */
+    public long getServicedTime()
+    {
+        return servicedTime;
+    }
+
+    /**
+     * countDispatch() method
+     * Counts a dispatch to processor id at time t: the first sets the first
+     * dispatch time, and any to another processor than the last one counts
+     * a processor visited.  Call it before setProcessorID().
+     */
+    public void countDispatch(int id, long t)
+    {
+        if (processorID == -1)
+            firstDispatchTime = t;
+        if (processorID != id)
+            processorsVisited++;
+    }
+
+    /**
+     * countPreemption() method
+     * Counts a timeslice that ran out before the job completed.
+     */
+    public void countPreemption()
+    {
+        preemptions++;
+    }
+
+    /**
+     * getFirstDispatchTime() getter
+     * Returns the time the job first ran, or -1 if it has not.
+     */
+    public long getFirstDispatchTime()
+    {
+        return firstDispatchTime;
+    }
+
+    /**
+     * getPreemptions() getter
+     * Returns the timeslices that ran out on the job.
+     */
+    public int getPreemptions()
+    {
+        return preemptions;
+    }
+
+    /**
+     * getProcessorsVisited() getter
+     * Returns the processors the job has run on, counting a move back to
+     * one it ran on before.
+     */
+    public int getProcessorsVisited()
+    {
+        return processorsVisited;
+    }
+
+    /**
+     * restoreCounts() setter
+     * Sets the first dispatch time and the counts of a job carried from
+     * another process.
+     */
+    public void restoreCounts(long firstDispatchTime, int preemptions,
+            int processorsVisited)
+    {
+        this.firstDispatchTime = firstDispatchTime;
+        this.preemptions = preemptions;
+        this.processorsVisited = processorsVisited;
+    }
+
     /**
      * getWaitTime() getter
      * Returns the wait time.
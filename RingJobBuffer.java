@@ -0,0 +1,316 @@
+/* RingJobBuffer.java
+ * Lock-free, array-backed JobBuffer for many producers and consumers.
+ * Every slot carries a sequence number that tells producers and consumers
+ * whose turn it is, so a handoff is one CAS on the tail or head counter
+ * plus an ordered store to the slot.  No monitor is ever taken.
+ * A batch claims a run of neighbouring slots with a single CAS.
+ * Waiting threads spin briefly, then yield, then park with backoff.
+ */
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+public class RingJobBuffer<E> implements JobBuffer<E>
+{
+    // The head and tail counters live PAD longs apart in one array so
+    // producers and consumers do not share a cache line.
+    private static final int PAD = 16;
+    private static final int HEAD = PAD;
+    private static final int TAIL = 2 * PAD;
+    private static final int OCCUPANCY = 3 * PAD;
+
+    // Spin and yield this many times before parking.
+    private static final int SPIN_LIMIT = 64;
+    private static final int YIELD_LIMIT = 128;
+    private static final long MAX_PARK_NANOS = 1000000;
+
+    private final int capacity;   // Jobs producers may fill the buffer to
+    private final int slotCount;  // Slots, including requeue headroom
+    private final Object[] slots;
+    private final AtomicLongArray sequences;
+    private final AtomicLongArray counters = new AtomicLongArray(4 * PAD);
+
+    /**
+     * RingJobBuffer() constructor.
+     * Producers may fill the buffer up to capacity.  headroom extra slots
+     * are preallocated for requeued jobs; it should be at least the number
+     * of consumer threads, so requeue() always finds a slot.
+     */
+    public RingJobBuffer(int capacity, int headroom)
+    {
+        this.capacity = capacity;
+        slotCount = capacity + headroom;
+        slots = new Object[slotCount];
+        sequences = new AtomicLongArray(slotCount);
+        for(int i = 0; i < slotCount; i++)
+            sequences.set(i, i);
+    }
+
+    public void reserve() throws InterruptedException
+    {
+        int idle = 0;
+        while(!tryReserve())
+            idle = backoff(idle);
+    }
+
+    public boolean tryReserve()
+    {
+        while(true)
+        {
+            long occupied = counters.get(OCCUPANCY);
+            if (occupied >= capacity)
+                return false;
+            if (counters.compareAndSet(OCCUPANCY, occupied, occupied + 1))
+                return true;
+        }
+    }
+
+    public void reserve(int n) throws InterruptedException
+    {
+        int idle = 0;
+        while(true)
+        {
+            long occupied = counters.get(OCCUPANCY);
+            if (occupied + n <= capacity)
+            {
+                if (counters.compareAndSet(OCCUPANCY, occupied, occupied + n))
+                    return;
+            }
+            else
+                idle = backoff(idle);
+        }
+    }
+
+    public void publish(E e)
+    {
+        // The reservation guarantees a slot; it may only be a moment
+        // before the consumer that last used it hands it back.
+        while(!offer(e))
+            Thread.onSpinWait();
+    }
+
+    public E take() throws InterruptedException
+    {
+        int idle = 0;
+        E e;
+        while((e = dequeue()) == null)
+            idle = backoff(idle);
+        counters.getAndDecrement(OCCUPANCY);
+        return e;
+    }
+
+    public E poll()
+    {
+        E e = dequeue();
+        if (e != null)
+            counters.getAndDecrement(OCCUPANCY);
+        return e;
+    }
+
+    public E admit()
+    {
+        return dequeue();
+    }
+
+    public void release()
+    {
+        counters.getAndDecrement(OCCUPANCY);
+    }
+
+    public void hold()
+    {
+        counters.getAndIncrement(OCCUPANCY);
+    }
+
+    public void requeue(E e)
+    {
+        counters.getAndIncrement(OCCUPANCY);
+        while(!offer(e))
+            Thread.onSpinWait();
+    }
+
+    public void publishAll(E[] jobs, int n)
+    {
+        for(int done = 0; done < n; )
+        {
+            int k = offerAll(jobs, done, n - done);
+            if (k == 0)
+                Thread.onSpinWait();
+            done += k;
+        }
+    }
+
+    public int take(E[] batch, int max) throws InterruptedException
+    {
+        int idle = 0;
+        int n;
+        while((n = dequeueAll(batch, max)) == 0)
+            idle = backoff(idle);
+        counters.getAndAdd(OCCUPANCY, -n);
+        return n;
+    }
+
+    public void requeueAll(E[] jobs, int n)
+    {
+        counters.getAndAdd(OCCUPANCY, n);
+        publishAll(jobs, n);
+    }
+
+    // Add a job at the tail if the slot there is free.
+    // Returns false if every slot is in use.
+    private boolean offer(E e)
+    {
+        long pos = counters.get(TAIL);
+        int index;
+        while(true)
+        {
+            index = (int) (pos % slotCount);
+            long difference = sequences.getAcquire(index) - pos;
+            if (difference == 0)
+            {
+                if (counters.compareAndSet(TAIL, pos, pos + 1))
+                    break;
+                pos = counters.get(TAIL);
+            }
+            else if (difference < 0)
+                return false;
+            else
+                pos = counters.get(TAIL);
+        }
+
+        // Publish the job to consumers by advancing the slot sequence.
+        slots[index] = e;
+        sequences.setRelease(index, pos + 1);
+        return true;
+    }
+
+    // Add up to max jobs of jobs, from index from, at the tail: as many as
+    // there are free slots in a row there.  Returns how many were added.
+    private int offerAll(E[] jobs, int from, int max)
+    {
+        long pos = counters.get(TAIL);
+        int n;
+        while(true)
+        {
+            long difference = sequences.getAcquire((int) (pos % slotCount)) - pos;
+            if (difference < 0)
+                return 0;
+            if (difference > 0)
+            {
+                pos = counters.get(TAIL);
+                continue;
+            }
+
+            n = 1;
+            while(n < max && sequences.getAcquire((int) ((pos + n) % slotCount)) == pos + n)
+                n++;
+            if (counters.compareAndSet(TAIL, pos, pos + n))
+                break;
+            pos = counters.get(TAIL);
+        }
+
+        for(int i = 0; i < n; i++)
+        {
+            int index = (int) ((pos + i) % slotCount);
+            slots[index] = jobs[from + i];
+            sequences.setRelease(index, pos + i + 1);
+        }
+        return n;
+    }
+
+    // Remove up to max jobs from the head into batch: as many as are
+    // published in a row there.  Returns how many were removed.
+    @SuppressWarnings("unchecked")
+    private int dequeueAll(E[] batch, int max)
+    {
+        long pos = counters.get(HEAD);
+        int n;
+        while(true)
+        {
+            long difference = sequences.getAcquire((int) (pos % slotCount)) - (pos + 1);
+            if (difference < 0)
+                return 0;
+            if (difference > 0)
+            {
+                pos = counters.get(HEAD);
+                continue;
+            }
+
+            n = 1;
+            while(n < max
+                    && sequences.getAcquire((int) ((pos + n) % slotCount)) == pos + n + 1)
+                n++;
+            if (counters.compareAndSet(HEAD, pos, pos + n))
+                break;
+            pos = counters.get(HEAD);
+        }
+
+        for(int i = 0; i < n; i++)
+        {
+            int index = (int) ((pos + i) % slotCount);
+            batch[i] = (E) slots[index];
+            slots[index] = null;
+            sequences.setRelease(index, pos + i + slotCount);
+        }
+        return n;
+    }
+
+    // Remove the job at the head, or return null if the buffer is empty.
+    @SuppressWarnings("unchecked")
+    private E dequeue()
+    {
+        long pos = counters.get(HEAD);
+        int index;
+        while(true)
+        {
+            index = (int) (pos % slotCount);
+            long difference = sequences.getAcquire(index) - (pos + 1);
+            if (difference == 0)
+            {
+                if (counters.compareAndSet(HEAD, pos, pos + 1))
+                    break;
+                pos = counters.get(HEAD);
+            }
+            else if (difference < 0)
+                return null;
+            else
+                pos = counters.get(HEAD);
+        }
+
+        // Hand the slot back to producers for the next lap of the ring.
+        E e = (E) slots[index];
+        slots[index] = null;
+        sequences.setRelease(index, pos + slotCount);
+        return e;
+    }
+
+    public int size()
+    {
+        // Read the head first, so a racing consumer can only make the
+        // result too large, never too small.
+        long head = counters.get(HEAD);
+        long tail = counters.get(TAIL);
+        return (int) Math.max(0, tail - head);
+    }
+
+    public int remainingCapacity()
+    {
+        return (int) Math.max(0, capacity - counters.get(OCCUPANCY));
+    }
+
+    // Wait a little longer each time a put or take finds no room or no job.
+    private static int backoff(int idle) throws InterruptedException
+    {
+        if (Thread.interrupted())
+            throw new InterruptedException();
+
+        if (idle < SPIN_LIMIT)
+            Thread.onSpinWait();
+        else if (idle < YIELD_LIMIT)
+            Thread.yield();
+        else
+            LockSupport.parkNanos(Math.min(MAX_PARK_NANOS,
+                    1000L << Math.min(idle - YIELD_LIMIT, 10)));
+        return idle + 1;
+    }
+}
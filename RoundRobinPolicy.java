@@ -0,0 +1,255 @@
+/* RoundRobinPolicy.java
+ * Round robin, as in RRScheduler.  A job runs for at most one timeslice
+ * and then goes back to the tail of the ready queue, which is a JobBuffer.
+ * With work stealing, each processor also has its own run queue.  It
+ * admits new jobs from the buffer while it has room and keeps its own
+ * preempted jobs.  The jobs in run queues count against the buffer's
+ * capacity, as they would in the buffer, so the system holds as many
+ * jobs as with one shared queue.  An idle processor steals from the run
+ * queues of busy ones, from the tail, the end their owners do not take
+ * from.
+ * With processor caches, a thief first looks near the tail of each peer's
+ * run queue for a job whose working set it still holds.
+ */
+
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+public class RoundRobinPolicy implements SchedulingPolicy
+{
+    private JobBuffer<RRJob> buffer;
+    private int timeslice;
+
+    // Per-processor run queues, or null without work stealing, the jobs
+    // in each, since the size() of a ConcurrentLinkedDeque walks it, and
+    // the number of jobs each holds before it stops admitting new ones.
+    private ConcurrentLinkedDeque<RRJob>[] runQueues;
+    private AtomicIntegerArray queued;
+    private int runQueueSize;
+
+    // How many jobs at the tail of a peer's run queue a thief looks at
+    // for one that is warm in its cache.
+    private static final int WARM_STEAL_SCAN = 4;
+
+    private StatShard[] shards;
+    private CacheModel cache;
+
+    /**
+     * RoundRobinPolicy() constructor.  One ready queue for all processors.
+     */
+    public RoundRobinPolicy(JobBuffer<RRJob> buffer, int timeslice)
+    {
+        this.buffer = buffer;
+        this.timeslice = timeslice;
+    }  // RoundRobinPolicy()
+
+    /**
+     * RoundRobinPolicy() constructor.  Work stealing between the run
+     * queues of numConsumers processors, runQueueSize jobs each.
+     */
+    public RoundRobinPolicy(JobBuffer<RRJob> buffer, int timeslice,
+            int numConsumers, int runQueueSize)
+    {
+        this(buffer, timeslice);
+        this.runQueueSize = runQueueSize;
+        runQueues = newRunQueues(numConsumers);
+        for(int i = 0; i < numConsumers; i++)
+            runQueues[i] = new ConcurrentLinkedDeque<RRJob>();
+        queued = new AtomicIntegerArray(numConsumers);
+    }  // RoundRobinPolicy()
+
+    public void attach(StatShard[] shards)
+    {
+        this.shards = shards;
+    }  // attach()
+
+    public void attach(CacheModel cache)
+    {
+        this.cache = cache;
+    }  // attach()
+
+    public void reserve() throws InterruptedException
+    {
+        buffer.reserve();
+    }  // reserve()
+
+    public boolean tryReserve()
+    {
+        return buffer.tryReserve();
+    }  // tryReserve()
+
+    public void enqueue(RRJob j)
+    {
+        buffer.publish(j);
+    }  // enqueue()
+
+    public void reserve(int n) throws InterruptedException
+    {
+        buffer.reserve(n);
+    }  // reserve()
+
+    public void enqueueAll(RRJob[] jobs, int n)
+    {
+        buffer.publishAll(jobs, n);
+    }  // enqueueAll()
+
+    public RRJob pickNext(int processorID) throws InterruptedException
+    {
+        if (runQueues == null)
+            return buffer.take();
+        return nextLocalJob(processorID);
+    }  // pickNext()
+
+    // A batch from the buffer.  Run queues already keep their jobs local,
+    // so with work stealing a processor takes one job at a time.
+    public int pickNext(int processorID, RRJob[] batch, int max)
+            throws InterruptedException
+    {
+        if (runQueues == null)
+            return buffer.take(batch, max);
+        RRJob j = nextLocalJob(processorID);
+        if (j == null)
+            return 0;
+        batch[0] = j;
+        return 1;
+    }  // pickNext()
+
+    public int timeslice(RRJob j)
+    {
+        return timeslice;
+    }  // timeslice()
+
+    public int timeslice(JobTable jobs, int h)
+    {
+        return timeslice;
+    }  // timeslice()
+
+    // Place back at the tail of the buffer, or of this processor's own
+    // run queue.
+    public void onQuantumExpiry(RRJob j, int processorID)
+    {
+        if (runQueues != null)
+        {
+            buffer.hold();
+            addLocal(processorID, j);
+        }
+        else
+            buffer.requeue(j);
+    }  // onQuantumExpiry()
+
+    public void onQuantumExpiry(RRJob[] jobs, int n, int processorID)
+    {
+        if (runQueues != null)
+            for(int i = 0; i < n; i++)
+            {
+                buffer.hold();
+                addLocal(processorID, jobs[i]);
+            }
+        else
+            buffer.requeueAll(jobs, n);
+    }  // onQuantumExpiry()
+
+    public void onComplete(RRJob j, int processorID)
+    {
+    }  // onComplete()
+
+    // The head of the buffer.
+    public RRJob dropOldest()
+    {
+        return buffer.poll();
+    }  // dropOldest()
+
+    public int size()
+    {
+        int n = buffer.size();
+        if (runQueues != null)
+            for(int i = 0; i < runQueues.length; i++)
+                n += queued.get(i);
+        return n;
+    }  // size()
+
+    public int remainingCapacity()
+    {
+        return buffer.remainingCapacity();
+    }  // remainingCapacity()
+
+    // Find the next job for a processor that has its own run queue.
+    // New jobs are admitted from the buffer while the run queue has room,
+    // and the run queue is served round robin from its head.  When it is
+    // empty, the processor steals from the tail of a peer's run queue, so
+    // it does not contend with the peer for the job at the head.  A job
+    // taken to run gives back its room in the buffer, as take() does, and
+    // takes it again if it is preempted, as requeue() does.
+    private RRJob nextLocalJob(int processorID)
+    {
+        if (queued.get(processorID) < runQueueSize)
+        {
+            RRJob admitted = buffer.admit();
+            if (admitted != null)
+                addLocal(processorID, admitted);
+        }
+
+        RRJob j = runQueues[processorID].pollFirst();
+        if (j != null)
+        {
+            queued.getAndDecrement(processorID);
+            buffer.release();
+            return j;
+        }
+
+        if (cache != null)
+            j = stealWarmJob(processorID);
+        for(int k = 1; k < runQueues.length && j == null; k++)
+        {
+            int peer = (processorID + k) % runQueues.length;
+            j = runQueues[peer].pollLast();
+            if (j != null)
+                queued.getAndDecrement(peer);
+        }
+
+        if (j != null)
+        {
+            buffer.release();
+            if (shards != null)
+                shards[processorID].add(StatShard.STEALS, 1);
+        }
+        return j;
+    }  // nextLocalJob()
+
+    // Steal a job near the tail of a peer's run queue that is warm in
+    // this processor's cache, or return null if there is none.
+    private RRJob stealWarmJob(int processorID)
+    {
+        for(int k = 1; k < runQueues.length; k++)
+        {
+            int peer = (processorID + k) % runQueues.length;
+            Iterator<RRJob> fromTail = runQueues[peer].descendingIterator();
+            for(int n = 0; n < WARM_STEAL_SCAN && fromTail.hasNext(); n++)
+            {
+                RRJob j = fromTail.next();
+                if (cache.isWarm(processorID, j.jobID)
+                        && runQueues[peer].removeLastOccurrence(j))
+                {
+                    queued.getAndDecrement(peer);
+                    return j;
+                }
+            }
+        }
+        return null;
+    }  // stealWarmJob()
+
+    // Add a job at the tail of a processor's run queue.
+    private void addLocal(int processorID, RRJob j)
+    {
+        queued.getAndIncrement(processorID);
+        runQueues[processorID].addLast(j);
+    }  // addLocal()
+
+    // Generic arrays cannot be created directly, only a raw one cast.
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static ConcurrentLinkedDeque<RRJob>[] newRunQueues(int n)
+    {
+        return (ConcurrentLinkedDeque<RRJob>[]) new ConcurrentLinkedDeque[n];
+    }  // newRunQueues()
+}  // RoundRobinPolicy class
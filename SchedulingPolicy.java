@@ -0,0 +1,155 @@
+/* SchedulingPolicy.java
+ * Decides which job each processor of a Simulation runs next, and for
+ * how long.  A policy owns the ready queue, so it can keep it in whatever
+ * structure suits its order: a FIFO buffer for first come, first served
+ * and round robin, or a heap for a policy that orders jobs by a key.
+ * Producer and consumer threads call a policy at the same time, so it
+ * must be thread safe.  The discrete-event engine calls it from a single
+ * thread and only asks for a job when one is ready.  The compact
+ * discrete-event engine keeps jobs in a JobTable and its ready queue in
+ * the HandleQueue the policy gives it.
+ */
+
+public interface SchedulingPolicy
+{
+    /**
+     * reserve() method.  Waits until the ready queue has room for one
+     * more new job.
+     */
+    void reserve() throws InterruptedException;
+
+    /**
+     * tryReserve() method.  Takes room for one more new job if there is
+     * some, without waiting.  Returns false if the ready queue is full.
+     */
+    boolean tryReserve();
+
+    /**
+     * enqueue() method.  Adds a new job, using room taken by reserve().
+     */
+    void enqueue(RRJob j);
+
+    /**
+     * pickNext() method.  Removes the job processor processorID runs
+     * next.  A policy with a single ready queue waits for one.  A policy
+     * with a queue per processor may return null instead; the processor
+     * then idles briefly and asks again.
+     */
+    RRJob pickNext(int processorID) throws InterruptedException;
+
+    /**
+     * timeslice() method.  Returns how long job j may run before it is
+     * preempted.  A job whose remaining service length fits completes.
+     * The answer must not change while the job runs.
+     */
+    int timeslice(RRJob j);
+
+    /**
+     * timeslice() method.  As timeslice(RRJob) for job h of a JobTable.
+     */
+    int timeslice(JobTable jobs, int h);
+
+    /**
+     * onQuantumExpiry() method.  Takes back job j, preempted on processor
+     * processorID with service length left.  Never waits.
+     */
+    void onQuantumExpiry(RRJob j, int processorID);
+
+    /**
+     * onComplete() method.  Called when job j completes on processor
+     * processorID.
+     */
+    void onComplete(RRJob j, int processorID);
+
+    /**
+     * reserve() method.  Waits until the ready queue has room for n more
+     * new jobs.
+     */
+    default void reserve(int n) throws InterruptedException
+    {
+        for(int i = 0; i < n; i++)
+            reserve();
+    }
+
+    /**
+     * enqueueAll() method.  Adds the first n jobs of jobs, using room
+     * taken by reserve(n).
+     */
+    default void enqueueAll(RRJob[] jobs, int n)
+    {
+        for(int i = 0; i < n; i++)
+            enqueue(jobs[i]);
+    }
+
+    /**
+     * pickNext() method.  Removes up to max jobs for processor processorID
+     * to run next, in order, into batch and returns how many it removed.
+     * It waits or returns 0 as pickNext(int) waits or returns null.
+     */
+    default int pickNext(int processorID, RRJob[] batch, int max)
+            throws InterruptedException
+    {
+        RRJob j = pickNext(processorID);
+        if (j == null)
+            return 0;
+        batch[0] = j;
+        return 1;
+    }
+
+    /**
+     * onQuantumExpiry() method.  Takes back the first n jobs of jobs, all
+     * preempted on processor processorID.  Never waits.
+     */
+    default void onQuantumExpiry(RRJob[] jobs, int n, int processorID)
+    {
+        for(int i = 0; i < n; i++)
+            onQuantumExpiry(jobs[i], processorID);
+    }
+
+    /**
+     * dropOldest() method.  Removes the job that has waited longest in
+     * the ready queue, to make room for a new one, or returns null if
+     * there is none to drop.  Never waits.
+     */
+    default RRJob dropOldest()
+    {
+        return null;
+    }
+
+    /**
+     * size() method.  Returns the number of jobs in the ready queue.
+     */
+    int size();
+
+    /**
+     * remainingCapacity() method.  Returns how many more new jobs the
+     * ready queue has room for.  It is a sample, read without locking.
+     */
+    int remainingCapacity();
+
+    /**
+     * attach() method.  Gives the policy the statistics shards of the
+     * processors, for counters it keeps itself, such as steals.
+     */
+    default void attach(StatShard[] shards)
+    {
+    }
+
+    /**
+     * attach() method.  Gives the policy the processor caches of a
+     * simulation with affinity, so it can prefer a processor's warm jobs.
+     */
+    default void attach(CacheModel cache)
+    {
+    }
+
+    /**
+     * newHandleQueue() method.  Returns an empty ready queue of handles to
+     * jobs in jobs, in this policy's order.  The default is first in,
+     * first out.
+     */
+    default HandleQueue newHandleQueue(JobTable jobs)
+    {
+        return new HandleQueue();
+    }
+}
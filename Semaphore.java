@@ -1,31 +1,159 @@
 /* Semaphore.java
  * Implements a Semaphore for Java threads.
+ * The permits are an atomic counter, so an uncontended Pacquire() or
+ * Vrelease() is a single compare-and-set and never takes a monitor.
+ * A thread that finds too few permits spins for a while before it parks.
+ * The spin length adapts: it grows while spinning pays off and shrinks
+ * while spinning threads end up parking anyway.  A fair semaphore hands
+ * permits to parked threads in arrival order; an unfair one lets a running
+ * thread take a permit ahead of them.
  */
 
+import java.util.concurrent.locks.AbstractQueuedSynchronizer;
+
 class Semaphore
 {
-    private int value;
+    // Bounds of the adaptive spin before parking.  Spinning is pointless
+    // with a single CPU, since the releasing thread cannot run meanwhile.
+    private static final int MIN_SPINS = 16;
+    private static final int MAX_SPINS = 1024;
+    private static final boolean SPIN =
+            Runtime.getRuntime().availableProcessors() > 1;
+
+    private final Sync sync;
+    private volatile int spins = MIN_SPINS;
 
     public Semaphore()
     {
-            value = 0;
+            this(0, false);
     }  // Semaphore()
 
     public Semaphore(int value)
     {
-            this.value = value;
+            this(value, false);
     }  // Semaphore()
 
-    public synchronized void Pacquire() throws InterruptedException
+    public Semaphore(int value, boolean fair)
+    {
+            sync = new Sync(value, fair);
+    }  // Semaphore()
+
+    public void Pacquire() throws InterruptedException
+    {
+            Pacquire(1);
+    }  // Pacquire()
+
+    // Acquire n permits at once, waiting until all of them are available.
+    public void Pacquire(int n) throws InterruptedException
     {
-            while (value == 0)
-                    wait();
-            value--;
-    }  // Paxquire()
+            if (sync.tryAcquireShared(n) >= 0)
+                    return;
 
-    public synchronized void Vrelease()
+            if (SPIN)
+            {
+                    int limit = spins;
+                    for (int i = 0; i < limit; i++)
+                    {
+                            Thread.onSpinWait();
+                            if (sync.tryAcquireShared(n) >= 0)
+                            {
+                                    spins = Math.min(MAX_SPINS, limit * 2);
+                                    return;
+                            }
+                    }
+                    spins = Math.max(MIN_SPINS, limit / 2);
+            }
+
+            sync.acquireSharedInterruptibly(n);
+    }  // Pacquire()
+
+    public boolean tryPacquire()
+    {
+            return sync.nonfairTryAcquire(1) >= 0;
+    }  // tryPacquire()
+
+    // Acquire as many of n permits as are available now, without waiting.
+    // Returns how many were acquired.
+    public int tryPacquireUpTo(int n)
     {
-            ++value;
-            notify();
+            return sync.tryAcquireUpTo(n);
+    }  // tryPacquireUpTo()
+
+    public void Vrelease()
+    {
+            sync.releaseShared(1);
     }  // Vrelease()
+
+    // Release n permits at once, waking as many waiters as they satisfy.
+    public void Vrelease(int n)
+    {
+            sync.releaseShared(n);
+    }  // Vrelease()
+
+    // The permits available now.  A sample: it may change at once.
+    public int availablePermits()
+    {
+            return sync.availablePermits();
+    }  // availablePermits()
+
+    // The permit count is the synchronizer state.  Parked threads wait in
+    // its FIFO queue, which is what gives the fair mode its order.
+    private static final class Sync extends AbstractQueuedSynchronizer
+    {
+            private static final long serialVersionUID = 1L;
+
+            private final boolean fair;
+
+            Sync(int permits, boolean fair)
+            {
+                    setState(permits);
+                    this.fair = fair;
+            }
+
+            int availablePermits()
+            {
+                    return getState();
+            }
+
+            int nonfairTryAcquire(int n)
+            {
+                    while (true)
+                    {
+                            int available = getState();
+                            int remaining = available - n;
+                            if (remaining < 0
+                                    || compareAndSetState(available, remaining))
+                                    return remaining;
+                    }
+            }
+
+            int tryAcquireUpTo(int n)
+            {
+                    while (true)
+                    {
+                            int available = getState();
+                            int taken = Math.min(available, n);
+                            if (taken <= 0
+                                    || compareAndSetState(available, available - taken))
+                                    return Math.max(taken, 0);
+                    }
+            }
+
+            protected int tryAcquireShared(int n)
+            {
+                    if (fair && hasQueuedPredecessors())
+                            return -1;
+                    return nonfairTryAcquire(n);
+            }
+
+            protected boolean tryReleaseShared(int n)
+            {
+                    while (true)
+                    {
+                            int current = getState();
+                            if (compareAndSetState(current, current + n))
+                                    return true;
+                    }
+            }
+    }  // Sync class
 }  // Semaphore class
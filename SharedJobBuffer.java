@@ -0,0 +1,482 @@
+/* SharedJobBuffer.java
+ * A JobBuffer of RRJobs that producers and consumers in different
+ * processes on one host share: the ring of RingJobBuffer, laid out in a
+ * memory-mapped file, such as one in /dev/shm.  The head, tail and
+ * occupancy counters and the sequence number of every slot are longs in
+ * the file, updated with the atomic operations of a VarHandle, so a
+ * handoff is one CAS and an ordered store, as it is within a process.
+ * A slot holds a job as a fixed-size record rather than a reference, and
+ * take() creates a new RRJob from it.  The header also holds the origin
+ * of the nanoTime() clock and a job ID counter that all the processes
+ * share.
+ *
+ * The first process to open the file lays it out, with room for capacity
+ * jobs plus headroom for requeued ones; the headroom should be at least
+ * the consumers of all the processes.  The others use the file as it is.
+ * A file left by an earlier run is used as it is too, with any jobs still
+ * in it; remove it to start afresh.  All numbers are in the byte order of
+ * the host.
+ *
+ * Header, one counter to a 64-byte line:
+ *   int    magic, "RRSQ"
+ *   int    version
+ *   int    capacity
+ *   int    slotCount
+ *   long   epoch, the System.nanoTime() the file was laid out at
+ *   long   head, at 64
+ *   long   tail, at 128
+ *   long   occupancy, at 192
+ *   long   next job ID, at 256
+ * Slot, 64 bytes from HEADER_SIZE on:
+ *   long   sequence
+ *   long   generationTime, completionTime, servicedTime, firstDispatchTime
+ *   int    jobID, serviceLength, processorID, type (jobType ordinal)
+ *   int    preemptions, processorsVisited
+ */
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.locks.LockSupport;
+
+public class SharedJobBuffer implements JobBuffer<RRJob>
+{
+    public static final int MAGIC = 0x51535252;  // "RRSQ"
+    public static final int VERSION = 2;
+    public static final int HEADER_SIZE = 320;
+    public static final int SLOT_SIZE = 64;
+
+    // Header offsets.
+    private static final int CAPACITY = 8;
+    private static final int SLOT_COUNT = 12;
+    private static final int EPOCH = 16;
+    private static final int HEAD = 64;
+    private static final int TAIL = 128;
+    private static final int OCCUPANCY = 192;
+    private static final int JOB_IDS = 256;
+
+    // Slot offsets.
+    private static final int SEQUENCE = 0;
+    private static final int GENERATION_TIME = 8;
+    private static final int COMPLETION_TIME = 16;
+    private static final int SERVICED_TIME = 24;
+    private static final int FIRST_DISPATCH_TIME = 32;
+    private static final int JOB_ID = 40;
+    private static final int SERVICE_LENGTH = 44;
+    private static final int PROCESSOR_ID = 48;
+    private static final int TYPE = 52;
+    private static final int PREEMPTIONS = 56;
+    private static final int PROCESSORS_VISITED = 60;
+
+    // Spin and yield this many times before parking.
+    private static final int SPIN_LIMIT = 64;
+    private static final int YIELD_LIMIT = 128;
+    private static final long MAX_PARK_NANOS = 1000000;
+
+    // Atomic access to the longs of the file, by byte offset.
+    private static final VarHandle LONGS =
+            MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.nativeOrder());
+
+    private static final RRJob.jobType[] TYPES = RRJob.jobType.values();
+
+    private final MappedByteBuffer map;
+    private final int capacity;
+    private final int slotCount;
+
+    /**
+     * open() method.
+     * Opens the shared buffer in file, creating and laying it out for
+     * capacity jobs and headroom requeued ones if no process has yet.
+     */
+    public static SharedJobBuffer open(String file, int capacity, int headroom)
+            throws IOException
+    {
+        try (FileChannel channel = FileChannel.open(Paths.get(file),
+                    StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE))
+        {
+            // Only one process at a time looks at the header or lays it out.
+            FileLock lock = channel.lock();
+            try
+            {
+                // The magic number is written last, so a file without it was
+                // never laid out completely.
+                ByteBuffer header = ByteBuffer.allocate(16)
+                        .order(ByteOrder.nativeOrder());
+                if (channel.size() >= HEADER_SIZE)
+                {
+                    while (header.hasRemaining())
+                        channel.read(header, header.position());
+                    int magic = header.getInt(0);
+                    if (magic != 0 && magic != MAGIC)
+                        throw new IOException(file + " is not a shared job queue");
+                    if (magic == MAGIC)
+                    {
+                        if (header.getInt(4) != VERSION)
+                            throw new IOException(file + " is version "
+                                    + header.getInt(4) + " of the shared job queue, not "
+                                    + VERSION);
+                        long size = HEADER_SIZE
+                                + (long) header.getInt(SLOT_COUNT) * SLOT_SIZE;
+                        return new SharedJobBuffer(channel.map(
+                                FileChannel.MapMode.READ_WRITE, 0, size));
+                    }
+                }
+
+                int slots = capacity + headroom;
+                long size = HEADER_SIZE + (long) slots * SLOT_SIZE;
+                channel.truncate(0);
+                MappedByteBuffer map = channel.map(FileChannel.MapMode.READ_WRITE,
+                        0, size);
+                map.order(ByteOrder.nativeOrder());
+                map.putInt(4, VERSION);
+                map.putInt(CAPACITY, capacity);
+                map.putInt(SLOT_COUNT, slots);
+                map.putLong(EPOCH, System.nanoTime());
+                for(int i = 0; i < slots; i++)
+                    map.putLong(HEADER_SIZE + i * SLOT_SIZE + SEQUENCE, i);
+                map.putInt(0, MAGIC);
+                return new SharedJobBuffer(map);
+            }
+            finally
+            {
+                lock.release();
+            }
+        }
+    }
+
+    private SharedJobBuffer(MappedByteBuffer map)
+    {
+        this.map = map;
+        map.order(ByteOrder.nativeOrder());
+        capacity = map.getInt(CAPACITY);
+        slotCount = map.getInt(SLOT_COUNT);
+    }
+
+    /**
+     * getEpoch() getter.
+     * Returns the System.nanoTime() the processes count time from.
+     */
+    public long getEpoch()
+    {
+        return map.getLong(EPOCH);
+    }
+
+    /**
+     * nextJobID() method.  Returns a job ID no process has had yet.
+     */
+    public int nextJobID()
+    {
+        return (int) (long) LONGS.getAndAdd(map, JOB_IDS, 1L);
+    }
+
+    public void reserve() throws InterruptedException
+    {
+        int idle = 0;
+        while(!tryReserve())
+            idle = backoff(idle);
+    }
+
+    public boolean tryReserve()
+    {
+        while(true)
+        {
+            long occupied = (long) LONGS.getVolatile(map, OCCUPANCY);
+            if (occupied >= capacity)
+                return false;
+            if (LONGS.compareAndSet(map, OCCUPANCY, occupied, occupied + 1))
+                return true;
+        }
+    }
+
+    public void reserve(int n) throws InterruptedException
+    {
+        int idle = 0;
+        while(true)
+        {
+            long occupied = (long) LONGS.getVolatile(map, OCCUPANCY);
+            if (occupied + n <= capacity)
+            {
+                if (LONGS.compareAndSet(map, OCCUPANCY, occupied, occupied + n))
+                    return;
+            }
+            else
+                idle = backoff(idle);
+        }
+    }
+
+    public void publish(RRJob j)
+    {
+        // The reservation guarantees a slot; it may only be a moment
+        // before the consumer that last used it hands it back.
+        while(!offer(j))
+            Thread.onSpinWait();
+    }
+
+    public RRJob take() throws InterruptedException
+    {
+        int idle = 0;
+        RRJob j;
+        while((j = dequeue()) == null)
+            idle = backoff(idle);
+        LONGS.getAndAdd(map, OCCUPANCY, -1L);
+        return j;
+    }
+
+    public RRJob poll()
+    {
+        RRJob j = dequeue();
+        if (j != null)
+            LONGS.getAndAdd(map, OCCUPANCY, -1L);
+        return j;
+    }
+
+    public RRJob admit()
+    {
+        return dequeue();
+    }
+
+    public void release()
+    {
+        LONGS.getAndAdd(map, OCCUPANCY, -1L);
+    }
+
+    public void hold()
+    {
+        LONGS.getAndAdd(map, OCCUPANCY, 1L);
+    }
+
+    public void requeue(RRJob j)
+    {
+        LONGS.getAndAdd(map, OCCUPANCY, 1L);
+        while(!offer(j))
+            Thread.onSpinWait();
+    }
+
+    public void publishAll(RRJob[] jobs, int n)
+    {
+        for(int done = 0; done < n; )
+        {
+            int k = offerAll(jobs, done, n - done);
+            if (k == 0)
+                Thread.onSpinWait();
+            done += k;
+        }
+    }
+
+    public int take(RRJob[] batch, int max) throws InterruptedException
+    {
+        int idle = 0;
+        int n;
+        while((n = dequeueAll(batch, max)) == 0)
+            idle = backoff(idle);
+        LONGS.getAndAdd(map, OCCUPANCY, (long) -n);
+        return n;
+    }
+
+    public void requeueAll(RRJob[] jobs, int n)
+    {
+        LONGS.getAndAdd(map, OCCUPANCY, (long) n);
+        publishAll(jobs, n);
+    }
+
+    // The byte offset of the slot of ring position pos.
+    private int slot(long pos)
+    {
+        return HEADER_SIZE + (int) (pos % slotCount) * SLOT_SIZE;
+    }
+
+    private long sequence(int slot)
+    {
+        return (long) LONGS.getAcquire(map, slot + SEQUENCE);
+    }
+
+    // Add a job at the tail if the slot there is free.
+    // Returns false if every slot is in use.
+    private boolean offer(RRJob j)
+    {
+        long pos = (long) LONGS.getVolatile(map, TAIL);
+        int slot;
+        while(true)
+        {
+            slot = slot(pos);
+            long difference = sequence(slot) - pos;
+            if (difference == 0)
+            {
+                if (LONGS.compareAndSet(map, TAIL, pos, pos + 1))
+                    break;
+                pos = (long) LONGS.getVolatile(map, TAIL);
+            }
+            else if (difference < 0)
+                return false;
+            else
+                pos = (long) LONGS.getVolatile(map, TAIL);
+        }
+
+        // Publish the job to consumers by advancing the slot sequence.
+        write(slot, j);
+        LONGS.setRelease(map, slot + SEQUENCE, pos + 1);
+        return true;
+    }
+
+    // Add up to max jobs of jobs, from index from, at the tail: as many as
+    // there are free slots in a row there.  Returns how many were added.
+    private int offerAll(RRJob[] jobs, int from, int max)
+    {
+        long pos = (long) LONGS.getVolatile(map, TAIL);
+        int n;
+        while(true)
+        {
+            long difference = sequence(slot(pos)) - pos;
+            if (difference < 0)
+                return 0;
+            if (difference > 0)
+            {
+                pos = (long) LONGS.getVolatile(map, TAIL);
+                continue;
+            }
+
+            n = 1;
+            while(n < max && sequence(slot(pos + n)) == pos + n)
+                n++;
+            if (LONGS.compareAndSet(map, TAIL, pos, pos + n))
+                break;
+            pos = (long) LONGS.getVolatile(map, TAIL);
+        }
+
+        for(int i = 0; i < n; i++)
+        {
+            int slot = slot(pos + i);
+            write(slot, jobs[from + i]);
+            LONGS.setRelease(map, slot + SEQUENCE, pos + i + 1);
+        }
+        return n;
+    }
+
+    // Remove up to max jobs from the head into batch: as many as are
+    // published in a row there.  Returns how many were removed.
+    private int dequeueAll(RRJob[] batch, int max)
+    {
+        long pos = (long) LONGS.getVolatile(map, HEAD);
+        int n;
+        while(true)
+        {
+            long difference = sequence(slot(pos)) - (pos + 1);
+            if (difference < 0)
+                return 0;
+            if (difference > 0)
+            {
+                pos = (long) LONGS.getVolatile(map, HEAD);
+                continue;
+            }
+
+            n = 1;
+            while(n < max && sequence(slot(pos + n)) == pos + n + 1)
+                n++;
+            if (LONGS.compareAndSet(map, HEAD, pos, pos + n))
+                break;
+            pos = (long) LONGS.getVolatile(map, HEAD);
+        }
+
+        for(int i = 0; i < n; i++)
+        {
+            int slot = slot(pos + i);
+            batch[i] = read(slot);
+            LONGS.setRelease(map, slot + SEQUENCE, pos + i + slotCount);
+        }
+        return n;
+    }
+
+    // Remove the job at the head, or return null if the buffer is empty.
+    private RRJob dequeue()
+    {
+        long pos = (long) LONGS.getVolatile(map, HEAD);
+        int slot;
+        while(true)
+        {
+            slot = slot(pos);
+            long difference = sequence(slot) - (pos + 1);
+            if (difference == 0)
+            {
+                if (LONGS.compareAndSet(map, HEAD, pos, pos + 1))
+                    break;
+                pos = (long) LONGS.getVolatile(map, HEAD);
+            }
+            else if (difference < 0)
+                return null;
+            else
+                pos = (long) LONGS.getVolatile(map, HEAD);
+        }
+
+        // Hand the slot back to producers for the next lap of the ring.
+        RRJob j = read(slot);
+        LONGS.setRelease(map, slot + SEQUENCE, pos + slotCount);
+        return j;
+    }
+
+    // Store job j in the record of a slot.
+    private void write(int slot, RRJob j)
+    {
+        map.putLong(slot + GENERATION_TIME, j.getGenerationTime());
+        map.putLong(slot + COMPLETION_TIME, j.getCompletionTime());
+        map.putLong(slot + SERVICED_TIME, j.getServicedTime());
+        map.putLong(slot + FIRST_DISPATCH_TIME, j.getFirstDispatchTime());
+        map.putInt(slot + JOB_ID, j.jobID);
+        map.putInt(slot + SERVICE_LENGTH, j.getServiceLength());
+        map.putInt(slot + PROCESSOR_ID, j.getProcessorID());
+        map.putInt(slot + TYPE, j.getType().ordinal());
+        map.putInt(slot + PREEMPTIONS, j.getPreemptions());
+        map.putInt(slot + PROCESSORS_VISITED, j.getProcessorsVisited());
+    }
+
+    // Create the job in the record of a slot.
+    private RRJob read(int slot)
+    {
+        RRJob j = new RRJob(TYPES[map.getInt(slot + TYPE)], map.getInt(slot + JOB_ID),
+                map.getLong(slot + GENERATION_TIME));
+        j.setCompletionTime(map.getLong(slot + COMPLETION_TIME));
+        j.setServicedTime(map.getLong(slot + SERVICED_TIME));
+        j.setServiceLength(map.getInt(slot + SERVICE_LENGTH));
+        j.setProcessorID(map.getInt(slot + PROCESSOR_ID));
+        j.restoreCounts(map.getLong(slot + FIRST_DISPATCH_TIME),
+                map.getInt(slot + PREEMPTIONS), map.getInt(slot + PROCESSORS_VISITED));
+        return j;
+    }
+
+    public int size()
+    {
+        // Read the head first, so a racing consumer can only make the
+        // result too large, never too small.
+        long head = (long) LONGS.getVolatile(map, HEAD);
+        long tail = (long) LONGS.getVolatile(map, TAIL);
+        return (int) Math.max(0, tail - head);
+    }
+
+    public int remainingCapacity()
+    {
+        return (int) Math.max(0, capacity - (long) LONGS.getVolatile(map, OCCUPANCY));
+    }
+
+    // Wait a little longer each time a put or take finds no room or no job.
+    private static int backoff(int idle) throws InterruptedException
+    {
+        if (Thread.interrupted())
+            throw new InterruptedException();
+
+        if (idle < SPIN_LIMIT)
+            Thread.onSpinWait();
+        else if (idle < YIELD_LIMIT)
+            Thread.yield();
+        else
+            LockSupport.parkNanos(Math.min(MAX_PARK_NANOS,
+                    1000L << Math.min(idle - YIELD_LIMIT, 10)));
+        return idle + 1;
+    }
+}
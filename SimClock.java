@@ -0,0 +1,38 @@
+/* SimClock.java
+ * The clock of a threaded simulation: it tells the time and sleeps for
+ * a number of time units.  MillisClock is the original one, with a time
+ * unit of a millisecond of System.currentTimeMillis() and Thread.sleep().
+ * NanoClock reads System.nanoTime() and parks, so a time unit can be a
+ * microsecond and a quantum a few tens of them.
+ */
+
+public interface SimClock
+{
+    /**
+     * now() method.  Returns the time in time units.
+     */
+    long now();
+
+    /**
+     * sleep() method.
+     * Sleeps for units time units, or less if the thread is interrupted.
+     * Returns false if the sleep was cut short by an interrupt.
+     */
+    boolean sleep(long units);
+
+    /**
+     * getUnitNanos() getter.  Returns the length of a time unit in
+     * nanoseconds.
+     */
+    long getUnitNanos();
+
+    /**
+     * of() method.  Returns the clock config names.
+     */
+    static SimClock of(SimulationConfig config)
+    {
+        if (config.getClock() == SimulationConfig.clockType.Nanos)
+            return new NanoClock(config.getTimeUnitNanos(), config.getSpinNanos());
+        return new MillisClock();
+    }
+}
@@ -0,0 +1,71 @@
+/* SimEvent.java
+ * An event on the virtual clock of the discrete-event engine used by
+ * RRScheduler.  Events are ordered by time, and events at the same time
+ * are ordered by the sequence in which they were scheduled.
+ */
+
+public class SimEvent implements Comparable<SimEvent>
+{
+    public enum eventType {Arrival, Dispatch, QuantumExpiry, Completion};
+
+    private long time;      // Virtual time the event fires at
+    private long sequence;  // Tie breaker for events at the same time
+    private eventType type; // Event type
+    private RRJob job;      // The job, or null for arrivals and dispatches
+    private int sourceID;   // Producer ID for arrivals, processor ID otherwise
+
+    /**
+     * SimEvent() constructor.
+     */
+    public SimEvent(long time, long sequence, eventType type, RRJob job,
+            int sourceID)
+    {
+        this.time = time;
+        this.sequence = sequence;
+        this.type = type;
+        this.job = job;
+        this.sourceID = sourceID;
+    }
+
+    /**
+     * getTime() getter.  Returns the virtual time of the event.
+     */
+    public long getTime()
+    {
+        return time;
+    }
+
+    /**
+     * getType() getter.  Returns the event type.
+     */
+    public eventType getType()
+    {
+        return type;
+    }
+
+    /**
+     * getJob() getter.  Returns the job the event applies to.
+     */
+    public RRJob getJob()
+    {
+        return job;
+    }
+
+    /**
+     * getSourceID() getter.  Returns the producer or processor ID.
+     */
+    public int getSourceID()
+    {
+        return sourceID;
+    }
+
+    /**
+     * compareTo() method.  Orders by time, then by scheduling sequence.
+     */
+    public int compareTo(SimEvent e)
+    {
+        if (time != e.time)
+            return time < e.time ? -1 : 1;
+        return Long.compare(sequence, e.sequence);
+    }
+}
@@ -0,0 +1,59 @@
+/* SimThreads.java
+ * Creates the threads that run a simulation.  A platform thread is an
+ * OS thread.  Virtual threads are scheduled by the JVM onto a few carrier
+ * threads, so one JVM can run a hundred thousand producers or a thread
+ * per job.  Virtual threads need Java 21.  They are looked up reflectively,
+ * so the simulator still builds for older JVMs, where a request for
+ * virtual threads gets platform threads instead.
+ */
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ThreadFactory;
+
+public class SimThreads
+{
+    // Factory of virtual threads, or null if this JVM has none.
+    private static final ThreadFactory VIRTUAL = virtualFactory();
+
+    /**
+     * platform() method.  Returns a factory of platform threads.
+     */
+    public static ThreadFactory platform()
+    {
+        return r -> new Thread(r);
+    }
+
+    /**
+     * virtual() method.  Returns a factory of virtual threads, or of
+     * platform threads if this JVM has no virtual threads.
+     */
+    public static ThreadFactory virtual()
+    {
+        return VIRTUAL != null ? VIRTUAL : platform();
+    }
+
+    /**
+     * virtualThreadsAvailable() getter.
+     * Returns true if this JVM has virtual threads.
+     */
+    public static boolean virtualThreadsAvailable()
+    {
+        return VIRTUAL != null;
+    }
+
+    // Thread.ofVirtual().factory(), if there is such a method.
+    private static ThreadFactory virtualFactory()
+    {
+        try
+        {
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            Method factory = Class.forName("java.lang.Thread$Builder")
+                    .getMethod("factory");
+            return (ThreadFactory) factory.invoke(builder);
+        }
+        catch(ReflectiveOperationException e)
+        {
+            return null;
+        }
+    }
+}
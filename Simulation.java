@@ -0,0 +1,1929 @@
+/* Simulation.java
+ * The simulation core shared by RRScheduler and OSScheduler.  Producers
+ * create short and long jobs, processors (consumers) run them, and a
+ * SchedulingPolicy decides which job a processor runs next and for how
+ * long.  A simulation runs either on producer and consumer threads that
+ * sleep for the time they model, or on the discrete-event engine, which
+ * only advances a virtual clock.  The threads keep time with a SimClock,
+ * of milliseconds or of nanoTime() units as short as a microsecond.  The
+ * compact version of the engine keeps its jobs in a JobTable rather than
+ * as RRJob objects.  The threads may share their job buffer with those of
+ * other processes (see SharedJobBuffer), and run only producers or only
+ * consumers.
+ */
+
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.Thread;
+import java.lang.System;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.PriorityQueue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+public class Simulation
+{
+    // How producers, consumers and jobs run.  Platform runs each producer
+    // and consumer on its own OS thread.  Virtual runs them on virtual
+    // threads, so there can be a hundred thousand producers and thousands
+    // of processors.  VirtualPerJob has no consumer threads at all: every
+    // job runs on its own virtual thread and competes for a processor.
+    public enum threadMode {Platform, Virtual, VirtualPerJob};
+
+    // Each producer has a producerType which controls
+    // whether it creates short jobs or long jobs.
+    private enum producerType {ShortJobs, LongJobs};
+
+    // How long an idle processor waits before looking for work again, at
+    // most.  With a clock of shorter time units it waits one time unit.
+    private static final long IDLE_PARK_NANOS = 100000;
+
+    // How often the thread of a threaded run checks whether it has ended.
+    private static final long END_POLL_NANOS = 100000000;
+
+    // The settings the simulation was created with.
+    private SimulationConfig config;
+
+    private SchedulingPolicy policy;
+
+    // Numbers of producers and consumers (processors), and the most jobs
+    // that wait for a first dispatch.
+    private int numProducers;
+    private int numConsumers;
+    private int bufferSize;
+
+    // Jobs moved in one handoff between the threads and the ready queue.
+    private int batchSize;
+
+    // The job buffer shared with other processes, or null.  Which threads
+    // of a threaded run this process runs.
+    private SharedJobBuffer shared;
+    private SimulationConfig.roleType role;
+
+    // What happens to arrivals that find the buffer full, and the count
+    // of the jobs shed.
+    private LoadShedder shedder;
+
+    // Draws the service lengths of new jobs, and how long a producer
+    // waits after creating one, from each producer's random stream.  A
+    // new one for each run, so a run is repeatable.
+    private WorkloadGenerator workload;
+
+    // Multiplying factor of the time units, divided out of the statistics.
+    private int debugFactor;
+
+    // The processor caches, or null without affinity.
+    private CacheModel cache;
+
+    // The trace replayed in place of the producers during run(), or null.
+    private TraceReader trace;
+
+    // The event log writers of run(), or null if there is no log: one for
+    // each processor and then one for each producer.  Logged times are
+    // counted from logEpoch.
+    private EventLog.Writer[] logs;
+    private long logEpoch;
+
+    // The job results writers of run(), one for each processor, or null
+    // if there is no results file.  Times are counted from logEpoch too.
+    private JobResultsWriter.Writer[] results;
+
+    // Counts the jobs created.  Producers take the IDs of their jobs
+    // from it; trace jobs keep the IDs of the trace.
+    private AtomicInteger jobIDCounter = new AtomicInteger();
+
+    // Set while an engine runs.  With the counters, the clock and the
+    // compact engine's ready queue, it is sampled by SimulationMonitor.
+    private volatile boolean running = false;
+    private boolean realTime;
+    private HandleQueue compactReady;
+
+    // A rough counter used to control the length of the simulation.
+    // Producer and consumer threads halt when the counter reaches zero.
+    private AtomicInteger simulationCounter = new AtomicInteger();
+
+    // Creates the producer, consumer and job threads.
+    private ThreadFactory threadFactory;
+
+    // The clock of a threaded run, and how long its idle processors park.
+    private SimClock clock;
+    private long idleParkNanos;
+
+    // The CPU each consumer thread is pinned to, or null if they are not.
+    private int[] pinnedCpus;
+
+    // Job threads of VirtualPerJob mode that have not finished.
+    private AtomicInteger jobThreads = new AtomicInteger();
+
+    // Arrays of producers and consumers.
+    private Thread[] producers;
+    private Thread[] consumers;
+
+    // VirtualPerJob state.  Admission bounds the jobs not yet dispatched.
+    // A job thread takes one of the processor permits and then the ID of
+    // an idle processor.  The permits are handed out fairly, in the order
+    // the jobs asked for them, and that order is the round-robin queue.
+    private Semaphore admission;
+    private Semaphore processorPermits;
+    private ArrayBlockingQueue<Integer> idleProcessors;
+
+    // One statistics shard per processor: jobs completed and served, busy
+    // time, steals, migrations and the time histograms.  Each processor
+    // only writes its own, and they are merged when they are printed.
+    private StatShard[] shards;
+
+    // Discrete-event engine state.  The virtual clock, which also holds
+    // the length of a threaded run once it ends, and the pending events
+    // ordered by time.
+    private long virtualTime;
+    private long eventSequence;
+    private PriorityQueue<SimEvent> events;
+
+    // Interval reporting.  The length of an interval on the simulation
+    // clock, 0 for none, the time the current one started, and where the
+    // reports go.
+    private long interval;
+    private long intervalStart;
+    private Consumer<IntervalReport> intervalListener = r -> System.out.println(r);
+
+    /**
+     * Simulation() constructor.
+     * Sets up the simulation config describes, with the scheduling policy
+     * and job buffer it names.
+     */
+    public Simulation(SimulationConfig config)
+    {
+        this(config, newBuffer(config));
+    }
+
+    // Sets up the simulation config describes, with job buffer buffer.
+    private Simulation(SimulationConfig config, JobBuffer<RRJob> buffer)
+    {
+        this(config, newPolicy(config, buffer));
+        if (buffer instanceof SharedJobBuffer)
+            shared = (SharedJobBuffer) buffer;
+    }
+
+    /**
+     * Simulation() constructor.
+     * Sets up the simulation config describes, scheduled by policy instead
+     * of the policy it names.  Producers with an even index create short
+     * jobs and those with an odd index long jobs.  The config's buffer size
+     * should be the capacity of the policy's ready queue; VirtualPerJob
+     * mode, which bypasses the ready queue, admits as many jobs.
+     */
+    public Simulation(SimulationConfig config, SchedulingPolicy policy)
+    {
+        this.config = config;
+        this.policy = policy;
+        numProducers = config.getProducers();
+        numConsumers = config.getConsumers();
+        bufferSize = config.getBufferSize();
+        batchSize = config.getBatchSize();
+        role = config.getRole();
+        shedder = new LoadShedder(config);
+        debugFactor = config.getDebugFactor();
+        interval = (long) config.getInterval() * debugFactor;
+
+        shards = StatShard.newShards(numConsumers);
+        policy.attach(shards);
+        if (config.getAffinity())
+        {
+            cache = new CacheModel(config, shards);
+            policy.attach(cache);
+        }
+    }
+
+    // Create the job buffer config names.  Throws UncheckedIOException if
+    // a shared buffer cannot be mapped.
+    private static JobBuffer<RRJob> newBuffer(SimulationConfig config)
+    {
+        int bufferSize = config.getBufferSize();
+        int headroom = config.getConsumers() * config.getBatchSize();
+
+        // The job buffer controls the number of jobs in it (0 - bufferSize).
+        // Preempted jobs are requeued, so it has room for a batch per
+        // consumer more: per consumer of every process, for a shared one.
+        if (config.getSharedQueue() != null)
+        {
+            try
+            {
+                return SharedJobBuffer.open(config.getSharedQueue(), bufferSize,
+                        config.getSharedConsumers() * config.getBatchSize());
+            }
+            catch(IOException e)
+            {
+                throw new UncheckedIOException(e);
+            }
+        }
+        return config.getLockFreeBuffer()
+                ? new RingJobBuffer<RRJob>(bufferSize, headroom)
+                : new LockedJobBuffer<RRJob>(bufferSize);
+    }
+
+    // Create the scheduling policy config names, over job buffer buffer.
+    private static SchedulingPolicy newPolicy(SimulationConfig config,
+            JobBuffer<RRJob> buffer)
+    {
+        int bufferSize = config.getBufferSize();
+        int numConsumers = config.getConsumers();
+
+        if (config.getPolicy() == SimulationConfig.policyType.Fifo)
+            return new FifoPolicy(buffer);
+
+        // With work stealing, a processor's own run queue holds up to its
+        // share of the buffer before it stops admitting new jobs.
+        if (config.getWorkStealing())
+            return new RoundRobinPolicy(buffer, config.getTimeslice(), numConsumers,
+                    Math.max(1, bufferSize / numConsumers));
+        return new RoundRobinPolicy(buffer, config.getTimeslice());
+    }
+
+    /**
+     * getConfig() getter.  Returns the settings of the simulation.
+     */
+    public SimulationConfig getConfig()
+    {
+        return config;
+    }
+
+    /**
+     * setIntervalListener() method.
+     * Sends the reports of the config's interval to listener, instead of
+     * printing them.  A threaded run calls it from the thread of run().
+     */
+    public void setIntervalListener(Consumer<IntervalReport> listener)
+    {
+        intervalListener = listener;
+    }
+
+    /**
+     * run() method.
+     * Runs config's number of jobs on the engine it names and returns the
+     * total simulation time.  If config names a trace, its jobs arrive in
+     * place of those of the producers, and the run ends early if the trace
+     * does.  If config names an event log, every arrival, dispatch,
+     * preemption and completion is written to it, and if it names a
+     * results file, the results of every completed job are.  Throws
+     * UncheckedIOException if the trace, the log or the results fail.
+     */
+    public long run()
+    {
+        try (TraceReader t = config.getTrace() == null
+                    ? null : new TraceReader(config.getTrace());
+                EventLog log = config.getEventLog() == null
+                    ? null : new EventLog(config.getEventLog());
+                JobResultsWriter r = config.getResults() == null
+                    ? null : new JobResultsWriter(config.getResults()))
+        {
+            trace = t;
+            if (log != null)
+            {
+                logs = new EventLog.Writer[numConsumers + numProducers];
+                for(int i = 0; i < logs.length; i++)
+                    logs[i] = log.newWriter();
+            }
+            if (r != null)
+            {
+                results = new JobResultsWriter.Writer[numConsumers];
+                for(int i = 0; i < results.length; i++)
+                    results[i] = r.newWriter();
+            }
+            if (!config.getJmx())
+                return runEngine();
+
+            // Watch the run over JMX while it lasts.
+            SimulationMonitor monitor = new SimulationMonitor(this);
+            monitor.register();
+            try
+            {
+                return runEngine();
+            }
+            finally
+            {
+                monitor.unregister();
+            }
+        }
+        catch(IOException e)
+        {
+            throw new UncheckedIOException(e);
+        }
+        finally
+        {
+            trace = null;
+            logs = null;
+            results = null;
+        }
+    }
+
+    // Run config's number of jobs on the engine it names.
+    private long runEngine()
+    {
+        switch(config.getEngine())
+        {
+            case Events:
+                return runEventSimulation(config.getJobs());
+
+            case Compact:
+                // Room for the jobs alive at once; the table grows if needed.
+                int rows = bufferSize + numConsumers;
+                JobTable jobs = config.getJobTable() == SimulationConfig.tableType.Direct
+                        ? new DirectJobTable(rows) : new HeapJobTable(rows);
+                return runCompactEventSimulation(config.getJobs(), jobs);
+
+            default:
+                return runThreads(config.getJobs(), config.getThreadMode());
+        }
+    }
+
+    /**
+     * runThreads() method
+     * Runs simulationLength jobs on producer and consumer threads in the
+     * given thread mode and returns the total simulation time.
+     */
+    public long runThreads(int simulationLength, threadMode mode)
+    {
+        // Set simulation start time.
+        clock = SimClock.of(config);
+
+        // Processes that share a job buffer count nanoTime() from the same
+        // origin, so the times in their jobs agree.
+        if (shared != null && config.getClock() == SimulationConfig.clockType.Nanos)
+            clock = new NanoClock(config.getTimeUnitNanos(), config.getSpinNanos(),
+                    shared.getEpoch());
+        idleParkNanos = Math.min(IDLE_PARK_NANOS, clock.getUnitNanos());
+        long simulationStartTime = clock.now();
+        logEpoch = simulationStartTime;
+        workload = new WorkloadGenerator(config, numProducers);
+        realTime = true;
+        running = true;
+
+        if (mode == threadMode.Platform)
+            threadFactory = SimThreads.platform();
+        else
+        {
+            if (!SimThreads.virtualThreadsAvailable())
+                System.out.println("Virtual threads need Java 21; "
+                        + "using platform threads.");
+            threadFactory = SimThreads.virtual();
+        }
+
+        // Initiate counter.
+        simulationCounter.set(simulationLength);
+
+        // Pin each consumer to a CPU, if asked and if it can be done.
+        pinnedCpus = null;
+        if (config.getPin() != SimulationConfig.pinType.None)
+        {
+            if (mode != threadMode.Platform)
+                System.out.println("Only platform threads can be pinned; "
+                        + "consumers are not pinned.");
+            else if (!CpuAffinity.isAvailable())
+                System.out.println("Pinning needs Java 22 on Linux; "
+                        + "consumers are not pinned.");
+            else
+            {
+                int[] cpus = config.getCpus();
+                pinnedCpus = CpuTopology.assign(cpus != null ? cpus
+                        : CpuTopology.onlineCpus(), config.getPin(), numConsumers);
+            }
+        }
+
+        if (mode == threadMode.VirtualPerJob)
+        {
+            admission = new Semaphore(bufferSize);
+            processorPermits = new Semaphore(numConsumers, true);
+            idleProcessors = new ArrayBlockingQueue<Integer>(numConsumers);
+            for(int k = 0; k < numConsumers; k++)
+                idleProcessors.add(k);
+        }
+
+        // Create and start the producers.  Each one is told its job type,
+        // so they can all be started at once.  A single producer replays
+        // a trace.  A Consumers process has none.
+        producers = new Thread[role == SimulationConfig.roleType.Consumers ? 0
+                : trace != null ? 1 : numProducers];
+        if (trace != null && producers.length > 0)
+        {
+            producers[0] = threadFactory.newThread(
+                    () -> produceTrace(simulationStartTime));
+            producers[0].start();
+        }
+        for(int i = 0; i < producers.length && trace == null; i++)
+        {
+            producerType p_type = i % 2 == 0
+                    ? producerType.ShortJobs : producerType.LongJobs;
+            int producerID = i;
+            producers[i] = threadFactory.newThread(batchSize > 1
+                    && mode != threadMode.VirtualPerJob
+                    && shedder.getOverflow() == LoadShedder.overflowType.Block
+                    ? () -> produceBatch(producerID) : () -> produce(p_type, producerID));
+            producers[i].start();
+        }
+
+        // Initialize and start all consumer threads.  Job threads take
+        // their place in VirtualPerJob mode.  A Producers process has none.
+        consumers = new Thread[mode == threadMode.VirtualPerJob
+                || role == SimulationConfig.roleType.Producers ? 0 : numConsumers];
+        for(int j = 0; j < consumers.length; j++)
+        {
+            int processorID = j;
+            consumers[j] = threadFactory.newThread(batchSize > 1
+                    ? () -> consumeBatch(processorID) : () -> consume(processorID));
+            consumers[j].start();
+        }
+
+        // Wait for simulation to end, reporting each interval as it ends.
+        intervalStart = 0;
+        while(simulationCounter.get() > 0)
+        {
+            long now = clock.now() - simulationStartTime;
+            if (interval > 0 && now >= intervalStart + interval)
+            {
+                reportInterval(now);
+                continue;
+            }
+            long wait = Math.max(1, END_POLL_NANOS / clock.getUnitNanos());
+            if (interval > 0)
+                wait = Math.min(wait, intervalStart + interval - now);
+            clock.sleep(wait);
+        }
+
+        // Mark the end of the simulation-- grab the timestamp
+        long simulationEndTime = clock.now();
+
+        stopThreads();
+
+        virtualTime = simulationEndTime - simulationStartTime;
+        realTime = false;
+        running = false;
+        reportLastInterval(virtualTime);
+        return virtualTime;
+    }
+
+    /**
+     * stopThreads() method
+     * Wakes any producer or consumer still waiting on the policy, so it
+     * sees the simulation counter at zero and exits, and waits for all of
+     * them.  A consumer in the middle of a timeslice has its sleep cut
+     * short, and runSlice() discards that slice.  Job threads finish their
+     * current timeslice and exit on their own.
+     */
+    private void stopThreads()
+    {
+        for(int i = 0; i < producers.length; i++)
+            producers[i].interrupt();
+        for(int i = 0; i < consumers.length; i++)
+            consumers[i].interrupt();
+
+        try
+        {
+            for(int i = 0; i < producers.length; i++)
+                producers[i].join();
+            for(int i = 0; i < consumers.length; i++)
+                consumers[i].join();
+
+            // Job threads end once they see the simulation is over.
+            while(jobThreads.get() > 0)
+                Thread.sleep(1);
+        }
+        catch(InterruptedException e) {}
+    }
+
+    /**
+     * printStatistics() method
+     * Calculates and prints the simulation statistics, given the total
+     * simulation time in time units.
+     */
+    public void printStatistics(long totalSimulationTime)
+    {
+        System.out.println("---SIMULATION STATISTICS---");
+        System.out.println(config);
+
+        // Processor utilization = total job service time / total simulation time.
+        // Calculate and print it for each consumer.
+        for(int k = 0; k < numConsumers; k++)
+        {
+                double processorUtilization = getUtilization(k, totalSimulationTime);
+
+                System.out.println("Processor " + k + " utilization % = "
+                        + processorUtilization);
+                if (pinnedCpus != null)
+                    System.out.println("Processor " + k + " CPU = " + pinnedCpus[k]);
+                System.out.println("Processor " + k + " steals = "
+                        + shards[k].get(StatShard.STEALS) + ", migrations = "
+                        + shards[k].get(StatShard.MIGRATIONS));
+                if (cache != null)
+                    System.out.println("Processor " + k + " cache hits = "
+                            + shards[k].get(StatShard.CACHE_HITS) + ", misses = "
+                            + shards[k].get(StatShard.CACHE_MISSES)
+                            + ", migration cost = "
+                            + shards[k].get(StatShard.MIGRATION_COST) / (double) debugFactor);
+        }
+
+        // Merge the shards of all processors for the totals.
+        StatShard stats = getStatistics();
+
+        // Throughput = Total # jobs served / Total simulation time.
+        // Calculate and print throughput for each job type.
+        double shortThroughput = getThroughput(stats, StatShard.SHORT_COMPLETED,
+                totalSimulationTime);
+        double longThroughput = getThroughput(stats, StatShard.LONG_COMPLETED,
+                totalSimulationTime);
+        double totalThroughput = shortThroughput + longThroughput;
+
+        // Output throughputs
+        System.out.println("Short job throughput = " + shortThroughput);
+        System.out.println("Long job throughput = " + longThroughput);
+        System.out.println("Total throughput = " + totalThroughput);
+
+        // Producers that block delay their arrivals; shedding keeps the
+        // work of the jobs shed from queueing ahead of the jobs admitted.
+        // The processor time that frees is reported, and the queueing
+        // delay the drops saved the jobs queued behind them, shared by the
+        // processors, against the wait the completed jobs had.  The saving
+        // leaves out later arrivals, so the wait without shedding would
+        // have been at least the sum.
+        if (shedder.getOverflow() == LoadShedder.overflowType.Block)
+            System.out.println("Producer blocked time = "
+                    + shedder.getBlockedTime() / (double) debugFactor);
+        else
+        {
+            System.out.println("Rejected jobs = " + shedder.getRejected()
+                    + ", dropped jobs = " + shedder.getDropped());
+            System.out.println("Work shed = " + shedder.getWorkShed() / (double) debugFactor);
+            System.out.println("Processor time freed per processor = "
+                    + shedder.getWorkShed() / (double) debugFactor / numConsumers);
+            long completed = stats.shortWaitTime.getCount() + stats.longWaitTime.getCount();
+            if (completed > 0)
+            {
+                double saved = shedder.getDelaySaved() / (double) debugFactor
+                        / numConsumers / completed;
+                double wait = (stats.shortWaitTime.getMean() * stats.shortWaitTime.getCount()
+                        + stats.longWaitTime.getMean() * stats.longWaitTime.getCount())
+                        / debugFactor / completed;
+                System.out.println("Queue delay saved per completed job >= " + saved);
+                System.out.println("Avg wait time = " + wait
+                        + ", without shedding >= " + (wait + saved));
+            }
+        }
+
+        // With affinity, the time migrated jobs spent reloading their
+        // working sets could have gone to running jobs instead.
+        if (cache != null)
+        {
+            long hits = stats.get(StatShard.CACHE_HITS);
+            long lookups = hits + stats.get(StatShard.CACHE_MISSES);
+            long migrationCost = stats.get(StatShard.MIGRATION_COST);
+            long usefulTime = stats.get(StatShard.BUSY_TIME) - migrationCost;
+            System.out.println("Cache hit rate % = "
+                    + (lookups == 0 ? 0 : (double) hits / lookups * 100));
+            System.out.println("Time lost to migration = "
+                    + migrationCost / (double) debugFactor);
+            System.out.println("Throughput lost to migration = "
+                    + (usefulTime <= 0 ? 0 : totalThroughput * migrationCost / usefulTime));
+        }
+
+        // Print statistics for short jobs.
+        System.out.println("Short jobs statistics:" +
+            "\n  Min wait time = " + stats.shortWaitTime.getMin() / (double) debugFactor +
+            "\n  Max wait time = " + stats.shortWaitTime.getMax() / (double) debugFactor +
+            "\n  Avg wait time = " + stats.shortWaitTime.getMean() / (double) debugFactor +
+            "\n  Min service time = " + stats.shortServiceTime.getMin() / (double) debugFactor +
+            "\n  Max service time = " + stats.shortServiceTime.getMax() / (double) debugFactor +
+            "\n  Avg service time = " + stats.shortServiceTime.getMean() / (double) debugFactor +
+            "\n  Wait time p50/p90/p99/p99.9 = " +
+                    stats.shortWaitTime.toPercentileString(debugFactor) +
+            "\n  Turnaround time p50/p90/p99/p99.9 = " +
+                    stats.shortTurnaroundTime.toPercentileString(debugFactor));
+
+        // Print statistics for long jobs.
+        System.out.println("Long jobs statistics:" +
+            "\n  Min wait time = " + stats.longWaitTime.getMin() / (double) debugFactor +
+            "\n  Max wait time = " + stats.longWaitTime.getMax() / (double) debugFactor +
+            "\n  Avg wait time = " + stats.longWaitTime.getMean() / (double) debugFactor +
+            "\n  Min service time = " + stats.longServiceTime.getMin() / (double) debugFactor +
+            "\n  Max service time = " + stats.longServiceTime.getMax() / (double) debugFactor +
+            "\n  Avg service time = " + stats.longServiceTime.getMean() / (double) debugFactor +
+            "\n  Wait time p50/p90/p99/p99.9 = " +
+                    stats.longWaitTime.toPercentileString(debugFactor) +
+            "\n  Turnaround time p50/p90/p99/p99.9 = " +
+                    stats.longTurnaroundTime.toPercentileString(debugFactor));
+
+        System.out.println("---SIMULATION COMPLETE---");
+    }
+
+    /**
+     * getStatistics() getter.
+     * Returns the statistics of all processors merged into one shard.
+     */
+    public StatShard getStatistics()
+    {
+        return StatShard.merge(shards);
+    }
+
+    /**
+     * getUtilization() getter.
+     * Returns the percentage of totalSimulationTime a processor was busy.
+     */
+    public double getUtilization(int processorID, long totalSimulationTime)
+    {
+        return (double) shards[processorID].get(StatShard.BUSY_TIME)
+                / totalSimulationTime * 100;
+    }
+
+    /**
+     * getThroughput() getter.
+     * Returns the jobs of a completed counter in stats per 100 time units
+     * of totalSimulationTime, with the debug factor divided out.
+     */
+    public double getThroughput(StatShard stats, int counter, long totalSimulationTime)
+    {
+        return stats.get(counter) / (double) (totalSimulationTime / debugFactor) * 100;
+    }
+
+    /**
+     * isRunning() getter.  Returns true while an engine is running.
+     */
+    public boolean isRunning()
+    {
+        return running;
+    }
+
+    /**
+     * getSimulationTime() getter.
+     * Returns the time the simulation has run: in time units of its clock
+     * for the threaded engine, on the virtual clock for the event engines.
+     */
+    public long getSimulationTime()
+    {
+        if (realTime && running)
+            return clock.now() - logEpoch;
+        return virtualTime;
+    }
+
+    /**
+     * getJobsGenerated() getter.  Returns the number of jobs created.
+     */
+    public long getJobsGenerated()
+    {
+        return jobIDCounter.get();
+    }
+
+    /**
+     * getJobsShed() getter.  Returns the jobs rejected or dropped.
+     */
+    public long getJobsShed()
+    {
+        return shedder.getRejected() + shedder.getDropped();
+    }
+
+    /**
+     * getCounter() getter.
+     * Returns the sum of a StatShard counter over all processors, read
+     * without merging the shards.
+     */
+    public long getCounter(int counter)
+    {
+        long n = 0;
+        for(int k = 0; k < numConsumers; k++)
+            n += shards[k].get(counter);
+        return n;
+    }
+
+    /**
+     * getProcessorCounter() getter.  Returns a StatShard counter of one
+     * processor.
+     */
+    public long getProcessorCounter(int processorID, int counter)
+    {
+        return shards[processorID].get(counter);
+    }
+
+    /**
+     * getFreeBufferSlots() getter.
+     * Returns how many more new jobs the ready queue has room for.
+     */
+    public int getFreeBufferSlots()
+    {
+        HandleQueue ready = compactReady;
+        if (ready != null)
+            return Math.max(0, bufferSize - ready.size());
+        return policy.remainingCapacity();
+    }
+
+    /**
+     * getAdmissionPermits() getter.  Returns the admission permits left in
+     * VirtualPerJob mode, or -1 in the other modes.
+     */
+    public int getAdmissionPermits()
+    {
+        Semaphore s = admission;
+        return s != null ? s.availablePermits() : -1;
+    }
+
+    /**
+     * getProcessorPermits() getter.  Returns the idle processor permits in
+     * VirtualPerJob mode, or -1 in the other modes.
+     */
+    public int getProcessorPermits()
+    {
+        Semaphore s = processorPermits;
+        return s != null ? s.availablePermits() : -1;
+    }
+
+    /**
+     * produce() method
+     * Producer logic.  Creates jobs of one type until the simulation
+     * counter runs out.
+     */
+    private void produce(producerType p_type, int producerID)
+    {
+        // While the simulation is running, take a job off the counter.
+        while(simulationCounter.getAndDecrement() > 0)
+        {
+            // Reserve room for the job.  Interrupted means stop.
+            boolean admitted;
+            try { admitted = reserveRoom(numConsumers + producerID); }
+                catch(InterruptedException e) { continue; }
+
+            long now = clock.now();
+            RRJob j = newJob(producerID, now);
+            if (logs != null)
+                log(numConsumers + producerID, now, EventLog.eventType.Arrival,
+                        j, producerID);
+
+            // Add the job to the ready queue, or give it a thread of its
+            // own, unless there was no room for it.
+            if (!admitted)
+                reject(j, numConsumers + producerID, now);
+            else if (admission != null)
+                startJobThread(j);
+            else
+                policy.enqueue(j);
+
+            long gap = workload.nextGap(producerID);
+            if (gap > 0)
+                clock.sleep(gap);
+        }
+    }
+
+    /**
+     * produceBatch() method
+     * Producer logic with batches.  Takes up to batchSize jobs off the
+     * simulation counter, reserves room for all of them at once, and
+     * publishes them together.  The jobs of a batch are created at once,
+     * and the producer then waits the gaps of all of them.
+     */
+    private void produceBatch(int producerID)
+    {
+        RRJob[] batch = new RRJob[Math.min(batchSize, bufferSize)];
+        int left;
+        while((left = simulationCounter.get()) > 0)
+        {
+            int n = Math.min(batch.length, left);
+            if (!simulationCounter.compareAndSet(left, left - n))
+                continue;
+
+            // Reserve room for the batch.  Interrupted means stop.
+            long blockedSince = clock.now();
+            try { policy.reserve(n); }
+                catch(InterruptedException e) { continue; }
+
+            long now = clock.now();
+            shedder.blocked(now - blockedSince);
+            long gap = 0;
+            for(int i = 0; i < n; i++)
+            {
+                batch[i] = newJob(producerID, now);
+                if (logs != null)
+                    log(numConsumers + producerID, now, EventLog.eventType.Arrival,
+                            batch[i], producerID);
+                gap += workload.nextGap(producerID);
+            }
+            policy.enqueueAll(batch, n);
+            Arrays.fill(batch, 0, n, null);
+
+            if (gap > 0)
+                clock.sleep(gap);
+        }
+    }
+
+    /**
+     * produceTrace() method
+     * Producer logic for a trace.  Creates the trace's jobs at their
+     * arrival times, counted from startTime, until the simulation
+     * counter or the trace runs out.
+     */
+    private void produceTrace(long startTime)
+    {
+        while(simulationCounter.getAndDecrement() > 0)
+        {
+            if (!trace.next())
+            {
+                simulationCounter.set(0);
+                break;
+            }
+
+            long delay = startTime + trace.getArrivalTime() * debugFactor
+                    - clock.now();
+            if (delay > 0)
+                clock.sleep(delay);
+
+            // Reserve room for the job.  Interrupted means stop.
+            boolean admitted;
+            try { admitted = reserveRoom(numConsumers); }
+                catch(InterruptedException e) { continue; }
+
+            long now = clock.now();
+            RRJob j = newJob(trace, now);
+            if (logs != null)
+                log(numConsumers, now, EventLog.eventType.Arrival, j, 0);
+            if (!admitted)
+                reject(j, numConsumers, now);
+            else if (admission != null)
+                startJobThread(j);
+            else
+                policy.enqueue(j);
+        }
+    }
+
+    // Reserve room for a new job, as the overflow policy says, logging any
+    // job dropped for it with writer.  Returns false if the new job is to
+    // be rejected.  In VirtualPerJob mode, which has no queue to drop
+    // from, a job that is not to wait is rejected.
+    private boolean reserveRoom(int writer) throws InterruptedException
+    {
+        if (shedder.getOverflow() == LoadShedder.overflowType.Block)
+        {
+            long blockedSince = clock.now();
+            if (admission != null)
+                admission.Pacquire();
+            else
+                policy.reserve();
+            shedder.blocked(clock.now() - blockedSince);
+            return true;
+        }
+        if (admission != null)
+            return admission.tryPacquire();
+
+        while(!policy.tryReserve())
+        {
+            RRJob oldest = shedder.getOverflow() == LoadShedder.overflowType.DropOldest
+                    ? policy.dropOldest() : null;
+            if (oldest == null)
+                return false;
+            drop(oldest, writer, clock.now());
+        }
+        return true;
+    }
+
+    // Turn away new job j at time now.
+    private void reject(RRJob j, int writer, long now)
+    {
+        shedder.reject(j.getServiceLength());
+        if (logs != null)
+            log(writer, now, EventLog.eventType.Shed, j, -1);
+    }
+
+    // Drop queued job j at time now, ahead of the jobs still queued.
+    private void drop(RRJob j, int writer, long now)
+    {
+        shedder.drop(j.getServiceLength(), policy.size());
+        if (logs != null)
+            log(writer, now, EventLog.eventType.Shed, j, j.getProcessorID());
+    }
+
+    // The time job j entered the ready queue: when it was created, or when
+    // it was last preempted.
+    private static long queuedSince(RRJob j)
+    {
+        return j.getProcessorID() == -1 ? j.getGenerationTime() : j.getCompletionTime();
+    }
+
+    // The time job h of a JobTable entered the ready queue.
+    private static long queuedSince(JobTable jobs, int h)
+    {
+        return jobs.getProcessorID(h) == -1 ? jobs.getGenerationTime(h)
+                : jobs.getCompletionTime(h);
+    }
+
+    // Drop queued job h of a JobTable at time now, ahead of queuedBehind
+    // jobs, and free its row.
+    private void drop(JobTable jobs, int h, int queuedBehind, int writer, long now)
+    {
+        shedder.drop(jobs.getServiceLength(h), queuedBehind);
+        if (logs != null)
+            log(writer, now, EventLog.eventType.Shed, jobs, h, jobs.getProcessorID(h));
+        jobs.free(h);
+    }
+
+    // Create producer producerID's next job, short for an even producer
+    // and long for an odd one, generated at time now.
+    private RRJob newJob(int producerID, long now)
+    {
+        RRJob j = new RRJob(producerID % 2 == 0 ? RRJob.jobType.ShortJob
+                : RRJob.jobType.LongJob, nextJobID(), now);
+        j.setServiceLength(workload.nextServiceLength(producerID));
+        return j;
+    }
+
+    // Take the ID of a new job.  With a shared buffer the processes take
+    // their IDs from the same counter, so no two of their jobs share one.
+    private int nextJobID()
+    {
+        int id = jobIDCounter.getAndIncrement();
+        return shared != null ? shared.nextJobID() : id;
+    }
+
+    // Count a job completed or shed by a consumer.  A Consumers process
+    // has no producers to count down the simulation, so it ends once its
+    // consumers have finished its number of jobs.
+    private void jobFinished()
+    {
+        if (role == SimulationConfig.roleType.Consumers)
+            simulationCounter.decrementAndGet();
+    }
+
+    // Create the job of the trace's current record, generated at time now.
+    private RRJob newJob(TraceReader trace, long now)
+    {
+        jobIDCounter.getAndIncrement();
+        RRJob j = new RRJob(trace.getType(), trace.getJobID(), now);
+        j.setServiceLength(trace.getServiceLength() * debugFactor);
+        return j;
+    }
+
+    // Move the trace to its next record.  Returns the time the job
+    // arrives, no earlier than now, or -1 at the end of the trace.
+    private long nextTraceArrival(long now)
+    {
+        if (!trace.next())
+            return -1;
+        return Math.max(now, trace.getArrivalTime() * debugFactor);
+    }
+
+    /**
+     * consume() method
+     * Consumer logic for one processor.  Runs a timeslice of the job the
+     * policy picks and hands it back to the policy.
+     */
+    private void consume(int processorID)
+    {
+        pinConsumer(processorID);
+
+        while(simulationCounter.get() > 0)  // while we still have an active counter
+        {
+            RRJob j;
+            try { j = policy.pickNext(processorID); }
+                catch(InterruptedException e) { continue; }
+
+            if (j == null)
+            {
+                // Nothing to run anywhere.  Wait a moment and look again.
+                LockSupport.parkNanos(idleParkNanos);
+                continue;
+            }
+
+            // CoDel may drop a job that has been queued too long.
+            long now = clock.now();
+            if (shedder.dropAtHead(now, now - queuedSince(j)))
+            {
+                drop(j, processorID, now);
+                jobFinished();
+                continue;
+            }
+
+            if (runSlice(j, processorID))
+            {
+                policy.onComplete(j, processorID);
+                jobFinished();
+            }
+            else
+                policy.onQuantumExpiry(j, processorID);
+        }
+    }
+
+    /**
+     * consumeBatch() method
+     * Consumer logic with batches.  Takes up to batchSize jobs from the
+     * policy at once, runs a timeslice of each in turn, and hands the
+     * preempted ones back together.
+     */
+    private void consumeBatch(int processorID)
+    {
+        pinConsumer(processorID);
+
+        RRJob[] batch = new RRJob[batchSize];
+        RRJob[] expired = new RRJob[batchSize];
+        while(simulationCounter.get() > 0)
+        {
+            int n;
+            try { n = policy.pickNext(processorID, batch, batchSize); }
+                catch(InterruptedException e) { continue; }
+
+            if (n == 0)
+            {
+                // Nothing to run anywhere.  Wait a moment and look again.
+                LockSupport.parkNanos(idleParkNanos);
+                continue;
+            }
+
+            int preempted = 0;
+            for(int i = 0; i < n; i++)
+            {
+                RRJob j = batch[i];
+                batch[i] = null;
+                long now = clock.now();
+                if (shedder.dropAtHead(now, now - queuedSince(j)))
+                {
+                    drop(j, processorID, now);
+                    jobFinished();
+                }
+                else if (runSlice(j, processorID))
+                {
+                    policy.onComplete(j, processorID);
+                    jobFinished();
+                }
+                else
+                    expired[preempted++] = j;
+            }
+            if (preempted > 0)
+            {
+                policy.onQuantumExpiry(expired, preempted, processorID);
+                Arrays.fill(expired, 0, preempted, null);
+            }
+        }
+    }
+
+    // Pin the calling consumer thread to its CPU, if consumers are pinned.
+    private void pinConsumer(int processorID)
+    {
+        if (pinnedCpus != null && !CpuAffinity.pin(pinnedCpus[processorID]))
+            System.out.println("Processor " + processorID + " cannot be pinned to CPU "
+                    + pinnedCpus[processorID]);
+    }
+
+    // Start a thread of its own for job j, counted in jobThreads.
+    private void startJobThread(RRJob j)
+    {
+        jobThreads.incrementAndGet();
+        threadFactory.newThread(() ->
+        {
+            try { runJob(j); }
+                finally { jobThreads.decrementAndGet(); }
+        }).start();
+    }
+
+    /**
+     * runJob() method
+     * Job thread logic for VirtualPerJob mode.  The job waits for a
+     * processor, runs one timeslice on it and gives it back, until it is
+     * done or the simulation ends.  The processor permits take the place
+     * of the policy's ready queue; only its timeslice applies.
+     */
+    private void runJob(RRJob j)
+    {
+        boolean done = false;
+        while(!done && simulationCounter.get() > 0)
+        {
+            try { processorPermits.Pacquire(); }
+                catch(InterruptedException e) { return; }
+
+            // The simulation may have ended while the job waited.
+            if (simulationCounter.get() <= 0)
+            {
+                processorPermits.Vrelease();
+                return;
+            }
+
+            // Holding a permit guarantees an idle processor.
+            Integer processorID = idleProcessors.poll();
+
+            // The first dispatch of a job frees its admission slot.
+            if (j.getProcessorID() == -1)
+                admission.Vrelease();
+
+            done = runSlice(j, processorID);
+            if (done)
+                policy.onComplete(j, processorID);
+
+            idleProcessors.add(processorID);
+            processorPermits.Vrelease();
+        }
+    }
+
+    /**
+     * runSlice() method
+     * Runs a job on a processor for one timeslice, or until it completes,
+     * and records it in the processor's statistics.  Returns true if the
+     * job completed; false if it was preempted, or if the run ended
+     * during the slice, which is then not recorded.
+     */
+    private boolean runSlice(RRJob j, int processorID)
+    {
+        StatShard stats = shards[processorID];  // The processor's statistics
+        int timeslice = policy.timeslice(j);
+        boolean completed;
+
+        int lastProcessorID = j.getProcessorID();
+        long servicedTime = clock.now();
+        stats.add(StatShard.RUNNING, 1);
+        startSlice(processorID, servicedTime);
+
+        // If processor affinity is set to true, the job first reloads
+        // whatever of its working set this processor's cache has lost
+        long penalty = 0;
+        if (cache != null)
+            penalty = cache.reloadCost(processorID, j.jobID,
+                    j.getType() == RRJob.jobType.ShortJob, lastProcessorID, servicedTime);
+
+        // Sleep for the reload and then for the timeslice, or for the
+        // service length if that is less.  A sleep cut short when
+        // stopThreads() interrupts the consumers at the end of the run is
+        // not a slice the processor ran, so the dispatch is only recorded
+        // once both sleeps have finished: an interrupted slice leaves the
+        // job, its processor's cache and the statistics as they were.
+        boolean expires = j.getServiceLength() > timeslice;
+        if ((penalty > 0 && !clock.sleep(penalty))
+                || !clock.sleep(expires ? timeslice : j.getServiceLength()))
+        {
+            stats.add(StatShard.RUNNING, -1);
+            return false;
+        }
+
+        // Count a migration if the job last ran on another processor
+        if (lastProcessorID != -1 && lastProcessorID != processorID)
+            stats.add(StatShard.MIGRATIONS, 1);
+
+        // Mark the serviced time and count the dispatch
+        j.countDispatch(processorID, servicedTime);
+        j.setServicedTime(servicedTime);
+
+        // Set the current processor
+        j.setProcessorID(processorID);
+        if (logs != null)
+            log(processorID, servicedTime, EventLog.eventType.Dispatch,
+                    j, processorID);
+        if (cache != null)
+            cache.dispatch(processorID, j.jobID,
+                    j.getType() == RRJob.jobType.ShortJob, lastProcessorID, servicedTime);
+
+        // If the job service length is greater than the timeslice
+        // Subtract the timeslice off the service length
+        if (expires)
+        {
+            j.setServiceLength(j.getServiceLength() - timeslice);
+            j.setCompletionTime(clock.now());
+            j.countPreemption();
+            completed = false;
+        }
+
+        // Otherwise (if the service time length is less than time timeslice,
+        // the job has run for the remainder of its service length.  Set the service length to zero then.
+        else
+        {
+            j.setServiceLength(0);
+
+            // If the job type is a short job, increment the short jobs completed counter
+            if(j.getType() == RRJob.jobType.ShortJob)
+            {
+                stats.add(StatShard.SHORT_COMPLETED, 1);
+            }
+
+            // Otherwise, if the job type is a long job, increment the long jobs completed counter
+            else if(j.getType() == RRJob.jobType.LongJob)
+            {
+                stats.add(StatShard.LONG_COMPLETED, 1);
+            }
+
+            // Mark completion time and update statistics
+            j.setCompletionTime(clock.now());
+            updateStats(j, processorID);
+            completed = true;
+        }
+
+        if (logs != null)
+            log(processorID, j.getCompletionTime(), completed
+                    ? EventLog.eventType.Completion : EventLog.eventType.Preemption,
+                    j, processorID);
+
+        // Mark the service time in the busy time of this processor
+        stats.add(StatShard.BUSY_TIME, j.getServiceTime());
+        recordInterval(j, processorID, completed);
+        stats.add(StatShard.RUNNING, -1);
+        return completed;
+    }
+
+    // Update the simulation statistics with the information from a job.
+    // This method should be called after the job completes, by the
+    // processor that ran it.
+    private void updateStats(RRJob j, int processorID)
+    {
+        // Get current simulation statistics.
+        long jServiceTime = j.getServiceTime();
+        long jEndTime = j.getCompletionTime();
+        long jWaitTime = jEndTime - j.getGenerationTime() - jServiceTime;
+        long jTurnaroundTime = jEndTime - j.getGenerationTime();
+
+        shards[processorID].recordJob(j.getType() == RRJob.jobType.ShortJob,
+                jWaitTime, jServiceTime, jTurnaroundTime);
+        if (results != null)
+            writeResults(processorID, j.jobID, j.getType(), j.getGenerationTime(),
+                    j.getFirstDispatchTime(), jEndTime, jWaitTime, jServiceTime,
+                    j.getPreemptions(), j.getProcessorsVisited());
+    }
+
+    // Mark a processor busy on a timeslice from time on, if there are
+    // interval reports.
+    private void startSlice(int processorID, long time)
+    {
+        if (interval > 0)
+            shards[processorID].startSlice(time - logEpoch);
+    }
+
+    // Record a timeslice of job j in the processor's current interval, if
+    // there are interval reports.
+    private void recordInterval(RRJob j, int processorID, boolean completed)
+    {
+        if (interval > 0)
+            shards[processorID].recordInterval(completed,
+                    j.getType() == RRJob.jobType.ShortJob,
+                    j.getCompletionTime() - j.getGenerationTime() - j.getServiceTime(),
+                    j.getCompletionTime() - logEpoch);
+    }
+
+    // Record a timeslice of job h of a JobTable in the processor's
+    // current interval, if there are interval reports.
+    private void recordInterval(JobTable jobs, int h, int processorID, boolean completed)
+    {
+        if (interval > 0)
+            shards[processorID].recordInterval(completed,
+                    jobs.getType(h) == RRJob.jobType.ShortJob,
+                    jobs.getCompletionTime(h) - jobs.getGenerationTime(h)
+                            - jobs.getServiceTime(h),
+                    jobs.getCompletionTime(h) - logEpoch);
+    }
+
+    // End the current interval at endTime and report it.  The processors
+    // go on recording into their next interval meanwhile.
+    private void reportInterval(long endTime)
+    {
+        IntervalStats[] ended = new IntervalStats[numConsumers];
+        for(int k = 0; k < numConsumers; k++)
+            ended[k] = shards[k].swapInterval(endTime);
+        intervalListener.accept(new IntervalReport(intervalStart, endTime,
+                debugFactor, ended));
+        intervalStart = endTime;
+    }
+
+    // Report the part of an interval left when the run ends at endTime.
+    private void reportLastInterval(long endTime)
+    {
+        if (interval > 0 && endTime > intervalStart)
+            reportInterval(endTime);
+    }
+
+    /**
+     * runEventSimulation() method
+     * Runs simulationLength jobs through the discrete-event engine and
+     * returns the total simulation time on the virtual clock.  Producers,
+     * processors and the policy behave as in the threaded version, but
+     * time only advances from one event to the next, so no thread ever
+     * sleeps.
+     */
+    public long runEventSimulation(int simulationLength)
+    {
+        virtualTime = 0;
+        logEpoch = 0;
+        workload = new WorkloadGenerator(config, numProducers);
+        realTime = false;
+        running = true;
+        eventSequence = 0;
+        events = new PriorityQueue<SimEvent>();
+        intervalStart = 0;
+
+        boolean[] processorBusy = new boolean[numConsumers];
+        ArrayDeque<Integer> blockedProducers = new ArrayDeque<Integer>();
+        boolean[] woken = new boolean[numProducers];
+        long[] blockedSince = new long[numProducers];
+        Arrays.fill(blockedSince, -1);
+        int readyJobs = 0;  // Jobs in the policy's ready queue
+        int jobsToGenerate = simulationLength;
+        int jobsCompleted = 0;
+        int jobsShed = 0;
+
+        // Even producers create short jobs, odd producers long jobs.
+        // Producer 0 alone replays a trace.
+        if (trace != null)
+        {
+            long arrival = nextTraceArrival(0);
+            if (arrival != -1)
+                schedule(arrival, SimEvent.eventType.Arrival, null, 0);
+        }
+        else
+            for(int p = 0; p < numProducers; p++)
+                schedule(0, SimEvent.eventType.Arrival, null, p);
+
+        while(jobsCompleted + jobsShed < simulationLength && !events.isEmpty())
+        {
+            SimEvent e = events.poll();
+            virtualTime = e.getTime();
+            while(interval > 0 && virtualTime >= intervalStart + interval)
+                reportInterval(intervalStart + interval);
+            RRJob j = e.getJob();
+            int id = e.getSourceID();
+
+            switch(e.getType())
+            {
+                // A producer creates a job if the ready queue has room,
+                // otherwise it blocks until a job is dispatched.  A woken
+                // producer that still finds no room keeps its place.
+                // Unless it is to block, the job is shed instead.
+                case Arrival:
+                    if (jobsToGenerate == 0)
+                        break;
+                    boolean admitted = policy.tryReserve();
+                    if (!admitted && shedder.getOverflow() == LoadShedder.overflowType.Block)
+                    {
+                        if (woken[id])
+                            blockedProducers.addFirst(id);
+                        else
+                            blockedProducers.addLast(id);
+                        woken[id] = false;
+                        if (blockedSince[id] == -1)
+                            blockedSince[id] = virtualTime;
+                        break;
+                    }
+                    woken[id] = false;
+                    if (blockedSince[id] != -1)
+                    {
+                        shedder.blocked(virtualTime - blockedSince[id]);
+                        blockedSince[id] = -1;
+                    }
+                    while(!admitted
+                            && shedder.getOverflow() == LoadShedder.overflowType.DropOldest)
+                    {
+                        RRJob oldest = readyJobs > 0 ? policy.dropOldest() : null;
+                        if (oldest == null)
+                            break;
+                        drop(oldest, numConsumers + id, virtualTime);
+                        readyJobs--;
+                        jobsShed++;
+                        admitted = policy.tryReserve();
+                    }
+                    jobsToGenerate--;
+
+                    j = trace != null ? newJob(trace, virtualTime)
+                            : newJob(id, virtualTime);
+                    if (logs != null)
+                        log(numConsumers + id, virtualTime,
+                                EventLog.eventType.Arrival, j, id);
+                    if (admitted)
+                    {
+                        policy.enqueue(j);
+                        readyJobs++;
+                        wakeIdleProcessor(processorBusy, j.jobID);
+                    }
+                    else
+                    {
+                        reject(j, numConsumers + id, virtualTime);
+                        jobsShed++;
+                    }
+
+                    // Producers generate after their gap, as in the threaded
+                    // version, and a trace at its next arrival time.
+                    if (trace != null)
+                    {
+                        long arrival = nextTraceArrival(virtualTime);
+                        if (arrival != -1)
+                            schedule(arrival, SimEvent.eventType.Arrival, null, id);
+                    }
+                    else
+                        schedule(virtualTime + workload.nextGap(id),
+                                SimEvent.eventType.Arrival, null, id);
+                    break;
+
+                // An idle processor takes the job the policy picks.
+                // CoDel may drop jobs that have been queued too long first.
+                case Dispatch:
+                    j = null;
+                    while(readyJobs > 0)
+                    {
+                        try { j = policy.pickNext(id); }
+                            catch(InterruptedException ie) {}
+                        if (j == null || !shedder.dropAtHead(virtualTime,
+                                virtualTime - queuedSince(j)))
+                            break;
+                        drop(j, id, virtualTime);
+                        readyJobs--;
+                        jobsShed++;
+                        j = null;
+                    }
+                    if (j == null)
+                    {
+                        processorBusy[id] = false;
+                        break;
+                    }
+                    readyJobs--;
+
+                    // A dispatch may free room in the ready queue, so
+                    // wake the longest blocked producer.
+                    if (!blockedProducers.isEmpty())
+                    {
+                        int p = blockedProducers.poll();
+                        woken[p] = true;
+                        schedule(virtualTime, SimEvent.eventType.Arrival, null, p);
+                    }
+
+                    if (j.getProcessorID() != -1 && j.getProcessorID() != id)
+                        shards[id].add(StatShard.MIGRATIONS, 1);
+                    long penalty = cache == null ? 0 : cache.dispatch(id, j.jobID,
+                            j.getType() == RRJob.jobType.ShortJob, j.getProcessorID(),
+                            virtualTime);
+
+                    j.countDispatch(id, virtualTime);
+                    j.setProcessorID(id);
+                    j.setServicedTime(virtualTime);
+                    shards[id].add(StatShard.RUNNING, 1);
+                    startSlice(id, virtualTime);
+
+                    if (logs != null)
+                        log(id, virtualTime, EventLog.eventType.Dispatch, j, id);
+
+                    if (j.getServiceLength() > policy.timeslice(j))
+                        schedule(virtualTime + penalty + policy.timeslice(j),
+                                SimEvent.eventType.QuantumExpiry, j, id);
+                    else
+                        schedule(virtualTime + penalty + j.getServiceLength(),
+                                SimEvent.eventType.Completion, j, id);
+                    break;
+
+                // The timeslice ran out.  The policy takes the job back.
+                case QuantumExpiry:
+                    j.setServiceLength(j.getServiceLength() - policy.timeslice(j));
+                    j.setCompletionTime(virtualTime);
+                    j.countPreemption();
+                    shards[id].add(StatShard.BUSY_TIME, j.getServiceTime());
+                    recordInterval(j, id, false);
+                    shards[id].add(StatShard.RUNNING, -1);
+                    if (logs != null)
+                        log(id, virtualTime, EventLog.eventType.Preemption, j, id);
+                    policy.onQuantumExpiry(j, id);
+                    readyJobs++;
+                    schedule(virtualTime, SimEvent.eventType.Dispatch, null, id);
+                    break;
+
+                // The job finished within its timeslice.
+                case Completion:
+                    j.setServiceLength(0);
+                    if(j.getType() == RRJob.jobType.ShortJob)
+                        shards[id].add(StatShard.SHORT_COMPLETED, 1);
+                    else
+                        shards[id].add(StatShard.LONG_COMPLETED, 1);
+
+                    j.setCompletionTime(virtualTime);
+                    updateStats(j, id);
+                    shards[id].add(StatShard.BUSY_TIME, j.getServiceTime());
+                    recordInterval(j, id, true);
+                    shards[id].add(StatShard.RUNNING, -1);
+                    if (logs != null)
+                        log(id, virtualTime, EventLog.eventType.Completion, j, id);
+                    policy.onComplete(j, id);
+                    jobsCompleted++;
+                    schedule(virtualTime, SimEvent.eventType.Dispatch, null, id);
+                    break;
+            }
+        }
+
+        running = false;
+        reportLastInterval(virtualTime);
+        return virtualTime;
+    }
+
+    /**
+     * runCompactEventSimulation() method
+     * Runs simulationLength jobs through the discrete-event engine with
+     * the jobs kept in a JobTable and returns the total simulation time on
+     * the virtual clock.  Jobs are int handles: the ready queue is the
+     * policy's HandleQueue and the events are kept in an EventHeap, so the
+     * run allocates nothing per job or per event, and the rows of
+     * completed jobs are reused.  It models the same system as
+     * runEventSimulation(), with one ready queue for all processors, so
+     * it throws IllegalArgumentException if config asks for work stealing.
+     */
+    public long runCompactEventSimulation(int simulationLength, JobTable jobs)
+    {
+        if (config.getWorkStealing())
+            throw new IllegalArgumentException(
+                    "The Compact engine has no per-processor run queues to steal from");
+
+        EventHeap heap = new EventHeap();
+        HandleQueue ready = policy.newHandleQueue(jobs);
+        HandleQueue blockedProducers = new HandleQueue();
+        boolean[] processorBusy = new boolean[numConsumers];
+        boolean[] woken = new boolean[numProducers];
+        long[] blockedSince = new long[numProducers];
+        Arrays.fill(blockedSince, -1);
+        long now = 0;
+        int jobsToGenerate = simulationLength;
+        int jobsCompleted = 0;
+        int jobsShed = 0;
+        logEpoch = 0;
+        workload = new WorkloadGenerator(config, numProducers);
+        virtualTime = 0;
+        realTime = false;
+        compactReady = ready;
+        intervalStart = 0;
+        running = true;
+        Checkpoint checkpoint = config.getCheckpoint() == null
+                ? null : new Checkpoint(config.getCheckpoint(), config);
+        long checkpointInterval = (long) config.getCheckpointInterval() * debugFactor;
+
+        // Resume where a snapshot left off, or start.  Even producers
+        // create short jobs, odd producers long jobs.  Producer 0 alone
+        // replays a trace.
+        if (config.getResume() != null)
+        {
+            try (DataInputStream in = Checkpoint.open(config.getResume(), config))
+            {
+                now = in.readLong();
+                jobsToGenerate = in.readInt();
+                jobsCompleted = in.readInt();
+                jobsShed = in.readInt();
+                for(int k = 0; k < numConsumers; k++)
+                    processorBusy[k] = in.readBoolean();
+                for(int p = 0; p < numProducers; p++)
+                {
+                    woken[p] = in.readBoolean();
+                    blockedSince[p] = in.readLong();
+                }
+                heap.restore(in);
+                ready.restore(in);
+                blockedProducers.restore(in);
+                jobs.restore(in);
+                restoreState(in);
+            }
+            catch(IOException e)
+            {
+                throw new UncheckedIOException(e);
+            }
+            virtualTime = now;
+        }
+        else if (trace != null)
+        {
+            long arrival = nextTraceArrival(0);
+            if (arrival != -1)
+                heap.add(arrival, SimEvent.eventType.Arrival, -1, 0);
+        }
+        else
+            for(int p = 0; p < numProducers; p++)
+                heap.add(0, SimEvent.eventType.Arrival, -1, p);
+        long nextCheckpoint = now + checkpointInterval;
+
+        while(jobsCompleted + jobsShed < simulationLength && heap.poll())
+        {
+            now = heap.getTime();
+            virtualTime = now;
+            while(interval > 0 && now >= intervalStart + interval)
+                reportInterval(intervalStart + interval);
+            int h = heap.getHandle();
+            int id = heap.getSourceID();
+
+            switch(heap.getType())
+            {
+                // A producer creates a job if the ready queue has room,
+                // counting preempted jobs as the JobBuffer does, otherwise
+                // it blocks until a job is dispatched.  Unless it is to
+                // block, the job is shed instead.
+                case Arrival:
+                    if (jobsToGenerate == 0)
+                        break;
+                    boolean admitted = ready.size() < bufferSize;
+                    if (!admitted && shedder.getOverflow() == LoadShedder.overflowType.Block)
+                    {
+                        if (woken[id])
+                            blockedProducers.addFirst(id);
+                        else
+                            blockedProducers.add(id);
+                        woken[id] = false;
+                        if (blockedSince[id] == -1)
+                            blockedSince[id] = now;
+                        break;
+                    }
+                    woken[id] = false;
+                    if (blockedSince[id] != -1)
+                    {
+                        shedder.blocked(now - blockedSince[id]);
+                        blockedSince[id] = -1;
+                    }
+                    while(!admitted && ready.size() > 0
+                            && shedder.getOverflow() == LoadShedder.overflowType.DropOldest)
+                    {
+                        h = ready.poll();
+                        drop(jobs, h, ready.size(), numConsumers + id, now);
+                        jobsShed++;
+                        admitted = ready.size() < bufferSize;
+                    }
+                    jobsToGenerate--;
+
+                    if (trace != null)
+                    {
+                        jobIDCounter.getAndIncrement();
+                        h = jobs.allocate(trace.getType(), trace.getJobID(), now);
+                        jobs.setServiceLength(h, trace.getServiceLength() * debugFactor);
+                    }
+                    else
+                    {
+                        h = jobs.allocate(id % 2 == 0 ? RRJob.jobType.ShortJob
+                                : RRJob.jobType.LongJob, jobIDCounter.getAndIncrement(), now);
+                        jobs.setServiceLength(h, workload.nextServiceLength(id));
+                    }
+                    if (logs != null)
+                        log(numConsumers + id, now, EventLog.eventType.Arrival, jobs, h, id);
+                    if (admitted)
+                    {
+                        ready.add(h);
+                        wakeIdleProcessor(heap, processorBusy, now, jobs.getJobID(h));
+                    }
+                    else
+                    {
+                        shedder.reject(jobs.getServiceLength(h));
+                        if (logs != null)
+                            log(numConsumers + id, now, EventLog.eventType.Shed, jobs, h, -1);
+                        jobs.free(h);
+                        jobsShed++;
+                    }
+
+                    if (trace != null)
+                    {
+                        long arrival = nextTraceArrival(now);
+                        if (arrival != -1)
+                            heap.add(arrival, SimEvent.eventType.Arrival, -1, id);
+                    }
+                    else
+                        heap.add(now + workload.nextGap(id),
+                                SimEvent.eventType.Arrival, -1, id);
+                    break;
+
+                // An idle processor takes the job at the head of the queue.
+                // CoDel may drop jobs that have been queued too long first.
+                case Dispatch:
+                    h = ready.poll();
+                    while(h != -1 && shedder.dropAtHead(now, now - queuedSince(jobs, h)))
+                    {
+                        drop(jobs, h, ready.size(), id, now);
+                        jobsShed++;
+                        h = ready.poll();
+                    }
+                    if (h == -1)
+                    {
+                        processorBusy[id] = false;
+                        break;
+                    }
+
+                    if (blockedProducers.size() > 0)
+                    {
+                        int p = blockedProducers.poll();
+                        woken[p] = true;
+                        heap.add(now, SimEvent.eventType.Arrival, -1, p);
+                    }
+
+                    if (jobs.getProcessorID(h) != -1 && jobs.getProcessorID(h) != id)
+                        shards[id].add(StatShard.MIGRATIONS, 1);
+                    long penalty = cache == null ? 0 : cache.dispatch(id, jobs.getJobID(h),
+                            jobs.getType(h) == RRJob.jobType.ShortJob, jobs.getProcessorID(h),
+                            now);
+
+                    jobs.countDispatch(h, id, now);
+                    jobs.setProcessorID(h, id);
+                    jobs.setServicedTime(h, now);
+                    shards[id].add(StatShard.RUNNING, 1);
+                    startSlice(id, now);
+
+                    if (logs != null)
+                        log(id, now, EventLog.eventType.Dispatch, jobs, h, id);
+
+                    int timeslice = policy.timeslice(jobs, h);
+                    if (jobs.getServiceLength(h) > timeslice)
+                        heap.add(now + penalty + timeslice,
+                                SimEvent.eventType.QuantumExpiry, h, id);
+                    else
+                        heap.add(now + penalty + jobs.getServiceLength(h),
+                                SimEvent.eventType.Completion, h, id);
+                    break;
+
+                // The timeslice ran out.  Back to the tail of the queue.
+                case QuantumExpiry:
+                    jobs.setServiceLength(h, jobs.getServiceLength(h)
+                            - policy.timeslice(jobs, h));
+                    jobs.setCompletionTime(h, now);
+                    jobs.countPreemption(h);
+                    shards[id].add(StatShard.BUSY_TIME, jobs.getServiceTime(h));
+                    recordInterval(jobs, h, id, false);
+                    shards[id].add(StatShard.RUNNING, -1);
+                    if (logs != null)
+                        log(id, now, EventLog.eventType.Preemption, jobs, h, id);
+                    ready.add(h);
+                    heap.add(now, SimEvent.eventType.Dispatch, -1, id);
+                    break;
+
+                // The job finished within its timeslice.  Its row is freed.
+                case Completion:
+                    jobs.setServiceLength(h, 0);
+                    if(jobs.getType(h) == RRJob.jobType.ShortJob)
+                        shards[id].add(StatShard.SHORT_COMPLETED, 1);
+                    else
+                        shards[id].add(StatShard.LONG_COMPLETED, 1);
+
+                    jobs.setCompletionTime(h, now);
+                    updateStats(jobs, h, id);
+                    shards[id].add(StatShard.BUSY_TIME, jobs.getServiceTime(h));
+                    recordInterval(jobs, h, id, true);
+                    shards[id].add(StatShard.RUNNING, -1);
+                    if (logs != null)
+                        log(id, now, EventLog.eventType.Completion, jobs, h, id);
+                    jobs.free(h);
+                    jobsCompleted++;
+                    heap.add(now, SimEvent.eventType.Dispatch, -1, id);
+                    break;
+            }
+
+            // Take a snapshot between events once one is due, in the
+            // order the resume above reads it.
+            if (checkpoint != null && now >= nextCheckpoint)
+            {
+                try
+                {
+                    DataOutputStream out = checkpoint.begin();
+                    out.writeLong(now);
+                    out.writeInt(jobsToGenerate);
+                    out.writeInt(jobsCompleted);
+                    out.writeInt(jobsShed);
+                    for(int k = 0; k < numConsumers; k++)
+                        out.writeBoolean(processorBusy[k]);
+                    for(int p = 0; p < numProducers; p++)
+                    {
+                        out.writeBoolean(woken[p]);
+                        out.writeLong(blockedSince[p]);
+                    }
+                    heap.save(out);
+                    ready.save(out);
+                    blockedProducers.save(out);
+                    jobs.save(out);
+                    saveState(out);
+                    checkpoint.commit();
+                }
+                catch(IOException e)
+                {
+                    throw new UncheckedIOException(e);
+                }
+                nextCheckpoint = now + checkpointInterval;
+            }
+        }
+
+        if (checkpoint != null)
+        {
+            try { checkpoint.close(); }
+                catch(IOException e) { throw new UncheckedIOException(e); }
+        }
+        compactReady = null;
+        running = false;
+        reportLastInterval(now);
+        return now;
+    }
+
+    // Write the state of a run kept in fields to a snapshot: the job IDs
+    // taken, the interval, the trace position, the random streams, the
+    // statistics, the caches and the load shedder.
+    private void saveState(DataOutput out) throws IOException
+    {
+        out.writeInt(jobIDCounter.get());
+        out.writeLong(intervalStart);
+        out.writeLong(trace == null ? -1 : trace.getRecordsRead());
+        workload.save(out);
+        for(int k = 0; k < numConsumers; k++)
+            shards[k].save(out);
+        if (cache != null)
+            cache.save(out);
+        shedder.save(out);
+    }
+
+    // Read the state saveState() wrote.
+    private void restoreState(DataInput in) throws IOException
+    {
+        jobIDCounter.set(in.readInt());
+        intervalStart = in.readLong();
+        long records = in.readLong();
+        if (trace != null && !trace.skipTo(records))
+            throw new IOException("The trace has no record " + records);
+        workload.restore(in);
+        for(int k = 0; k < numConsumers; k++)
+            shards[k].restore(in);
+        if (cache != null)
+            cache.restore(in);
+        shedder.restore(in);
+    }
+
+    // Update the simulation statistics with job h of a JobTable.
+    private void updateStats(JobTable jobs, int h, int processorID)
+    {
+        long jServiceTime = jobs.getServiceTime(h);
+        long jEndTime = jobs.getCompletionTime(h);
+        long jWaitTime = jEndTime - jobs.getGenerationTime(h) - jServiceTime;
+        long jTurnaroundTime = jEndTime - jobs.getGenerationTime(h);
+
+        shards[processorID].recordJob(jobs.getType(h) == RRJob.jobType.ShortJob,
+                jWaitTime, jServiceTime, jTurnaroundTime);
+        if (results != null)
+            writeResults(processorID, jobs.getJobID(h), jobs.getType(h),
+                    jobs.getGenerationTime(h), jobs.getFirstDispatchTime(h), jEndTime,
+                    jWaitTime, jServiceTime, jobs.getPreemptions(h),
+                    jobs.getProcessorsVisited(h));
+    }
+
+    // Write the results of a completed job with the processor's writer.
+    private void writeResults(int processorID, int jobID, RRJob.jobType type,
+            long generation, long firstDispatch, long completion, long wait,
+            long service, int preemptions, int processorsVisited)
+    {
+        results[processorID].add(jobID, type, generation - logEpoch,
+                firstDispatch - logEpoch, completion - logEpoch, wait, service,
+                preemptions, processorsVisited);
+    }
+
+    // Log an event of job j with one of the event log writers.
+    private void log(int writer, long time, EventLog.eventType event, RRJob j,
+            int sourceID)
+    {
+        logs[writer].log(time - logEpoch, event, j.jobID, j.getType(), sourceID,
+                j.getServiceLength());
+    }
+
+    // Log an event of job h of a JobTable with one of the event log writers.
+    private void log(int writer, long time, EventLog.eventType event,
+            JobTable jobs, int h, int sourceID)
+    {
+        logs[writer].log(time - logEpoch, event, jobs.getJobID(h), jobs.getType(h),
+                sourceID, jobs.getServiceLength(h));
+    }
+
+    // Add an event to the event queue of the discrete-event engine.
+    private void schedule(long time, SimEvent.eventType type, RRJob j, int id)
+    {
+        events.add(new SimEvent(time, eventSequence++, type, j, id));
+    }
+
+    // Schedule a dispatch on an idle processor, if there is one, for job
+    // jobID that has just been queued.
+    private void wakeIdleProcessor(boolean[] processorBusy, int jobID)
+    {
+        int k = idleProcessor(processorBusy, jobID);
+        if (k != -1)
+        {
+            processorBusy[k] = true;
+            schedule(virtualTime, SimEvent.eventType.Dispatch, null, k);
+        }
+    }
+
+    // Add a dispatch on an idle processor to an EventHeap, as above.
+    private void wakeIdleProcessor(EventHeap heap, boolean[] processorBusy,
+            long now, int jobID)
+    {
+        int k = idleProcessor(processorBusy, jobID);
+        if (k != -1)
+        {
+            processorBusy[k] = true;
+            heap.add(now, SimEvent.eventType.Dispatch, -1, k);
+        }
+    }
+
+    // The idle processor to wake for job jobID, or -1 if none is idle.  A
+    // processor is only idle while the ready queue is empty, so the one
+    // woken takes this job unless others arrive at the same time.  With
+    // processor caches it is the first idle one that holds the job's
+    // working set, and otherwise the first idle one.
+    private int idleProcessor(boolean[] processorBusy, int jobID)
+    {
+        int first = -1;
+        for(int k = 0; k < numConsumers; k++)
+        {
+            if (!processorBusy[k])
+            {
+                if (cache == null || cache.isWarm(k, jobID))
+                    return k;
+                if (first == -1)
+                    first = k;
+            }
+        }
+        return first;
+    }
+}
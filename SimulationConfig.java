@@ -0,0 +1,825 @@
+/* SimulationConfig.java
+ * The settings of one simulation, in place of the static final constants
+ * the schedulers used to be compiled with.  A configuration is immutable,
+ * so one can be shared by any number of simulations, and with() returns a
+ * changed copy.  Settings come from key=value pairs, given as arguments
+ * or in a properties file:
+ *
+ *   policy            RoundRobin or Fifo
+ *   engine            Threads, Events (discrete-event) or Compact
+ *                     (discrete-event, jobs in a JobTable)
+ *   threadMode        Platform, Virtual or VirtualPerJob, for Threads
+ *   jobTable          Heap or Direct, for Compact
+ *   jobs              Jobs to simulate
+ *   producers         Producers; even ones create short jobs, odd ones long
+ *   consumers         Processors: 1 for the single-processor version,
+ *                     2 for the multi-processor version
+ *   bufferSize        The max number of jobs in the buffer
+ *   timeslice         The round-robin timeslice
+ *   debugFactor       Multiplying factor of the service times and job
+ *                     frequencies, divided out of the statistics
+ *   shortServiceTime, longServiceTime
+ *                     Service lengths of short and long jobs
+ *   shortJobFreq, longJobFreq
+ *                     How long a producer waits after each job
+ *   seed              Seed of the random streams of the producers
+ *   affinity          Model processor caches (see CacheModel): a job pays
+ *                     to reload its working set where it is not warm
+ *   cacheJobs         Working sets each processor's cache holds
+ *   cacheDecay        Time over which a held working set goes 63% cold;
+ *                     0 if it stays warm
+ *   shortFootprint, longFootprint
+ *                     Time to reload the working set of a short or long
+ *                     job into a cold cache
+ *   lockFreeBuffer    Use the lock-free ring buffer
+ *   workStealing      Give each processor its own run queue; not for
+ *                     the Compact engine
+ *   trace             A job trace (see TraceReader) to replay in place
+ *                     of the producers; none if empty
+ *   eventLog          A file to log job events to (see EventLog); none
+ *                     if empty
+ *   jmx               Register a SimulationMonitor MBean while running
+ *   clock             Millis, for millisecond time units and Thread.sleep(),
+ *                     or Nanos, for System.nanoTime() and parked sleeps,
+ *                     for the Threads engine
+ *   timeUnitNanos     Nanoseconds in a time unit of the Nanos clock
+ *   spinNanos         Nanoseconds before the end of a sleep of the Nanos
+ *                     clock that it spins rather than parks
+ *   overflow          What an arrival that finds the buffer full does:
+ *                     Block, RejectNewest, DropOldest or CoDel (see
+ *                     LoadShedder)
+ *   codelTarget, codelInterval
+ *                     The queue delay CoDel aims for, and how long the
+ *                     delay may stay above it before CoDel drops jobs
+ *   batchSize         Jobs a producer publishes, or a consumer takes from
+ *                     the buffer, in one handoff, for the Threads engine
+ *                     in Platform or Virtual mode; a producer's batch is
+ *                     at most bufferSize
+ *   pin               None, or pin each consumer thread of the Threads
+ *                     engine in Platform mode to a CPU of cpus: Cpus in
+ *                     the order listed, Cores spread over physical cores,
+ *                     Sockets spread over sockets too (see CpuTopology)
+ *   cpus              The CPU list to pin to, such as 0-3,8; all online
+ *                     CPUs if empty
+ *   interval          Report throughput, utilization and wait times every
+ *                     interval time units (see IntervalReport); 0 for none
+ *   sharedQueue       A file, such as one in /dev/shm, to map the job
+ *                     buffer into, so producers and consumers in other
+ *                     processes on the host share it (see
+ *                     SharedJobBuffer); none if empty.  For the Threads
+ *                     engine in Platform or Virtual mode
+ *   sharedConsumers   The consumers of all the processes that share the
+ *                     sharedQueue, each taking batches of batchSize, for
+ *                     the room the first to open it leaves for requeued
+ *                     jobs; this process's consumers if 0
+ *   role              Which threads of the Threads engine this process
+ *                     runs: Both, Producers, or Consumers, which stop
+ *                     after completing or shedding jobs jobs.  Producers
+ *                     and Consumers need a sharedQueue
+ *   checkpoint        A file to write a snapshot of the run to every
+ *                     checkpointInterval time units (see Checkpoint);
+ *                     none if empty.  For the Compact engine
+ *   checkpointInterval
+ *                     Time units between snapshots
+ *   resume            A snapshot to resume the run from, written by a
+ *                     run with the same settings; none if empty.  For the
+ *                     Compact engine
+ *   results           A file to write the results of every completed job
+ *                     to, a column to a field (see JobResultsWriter);
+ *                     none if empty.  A resumed run writes only the jobs
+ *                     it completes after its snapshot
+ *
+ * The service lengths and job frequencies are a number or a Distribution,
+ * such as exponential:5 for Poisson arrivals or pareto:1.5:2.
+ */
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+public final class SimulationConfig
+{
+    public enum policyType {RoundRobin, Fifo};
+    public enum engineType {Threads, Events, Compact};
+    public enum tableType {Heap, Direct};
+    public enum clockType {Millis, Nanos};
+    public enum pinType {None, Cpus, Cores, Sockets};
+    public enum roleType {Both, Producers, Consumers};
+
+    // Every key, with its default: the round-robin simulation.
+    private static final String[][] DEFAULTS = {
+        {"policy", "RoundRobin"},
+        {"engine", "Threads"},
+        {"threadMode", "Platform"},
+        {"jobTable", "Heap"},
+        {"jobs", "50"},
+        {"producers", "2"},
+        {"consumers", "2"},
+        {"bufferSize", "10"},
+        {"timeslice", "8"},
+        {"debugFactor", "1"},
+        {"shortServiceTime", "5"},
+        {"longServiceTime", "50"},
+        {"shortJobFreq", "0"},
+        {"longJobFreq", "0"},
+        {"seed", "1"},
+        {"affinity", "false"},
+        {"cacheJobs", "4"},
+        {"cacheDecay", "100"},
+        {"shortFootprint", "1"},
+        {"longFootprint", "1"},
+        {"lockFreeBuffer", "false"},
+        {"workStealing", "false"},
+        {"trace", ""},
+        {"eventLog", ""},
+        {"jmx", "false"},
+        {"interval", "0"},
+        {"clock", "Millis"},
+        {"timeUnitNanos", "1000"},
+        {"spinNanos", "2000"},
+        {"overflow", "Block"},
+        {"codelTarget", "5"},
+        {"codelInterval", "100"},
+        {"batchSize", "1"},
+        {"pin", "None"},
+        {"cpus", ""},
+        {"sharedQueue", ""},
+        {"sharedConsumers", "0"},
+        {"role", "Both"},
+        {"checkpoint", ""},
+        {"checkpointInterval", "100000"},
+        {"resume", ""},
+        {"results", ""},
+    };
+
+    /**
+     * The defaults of RRScheduler: short jobs of 5 and long jobs of 50
+     * time units, produced back to back and run 8 units at a time.
+     */
+    public static final SimulationConfig ROUND_ROBIN =
+            new SimulationConfig(new Properties());
+
+    /**
+     * The defaults of OSScheduler: short jobs of 1 and long jobs of 10
+     * time units, produced every 2 and 5 units and run to completion,
+     * with 100 ms time units.
+     */
+    public static final SimulationConfig OPERATING_SYSTEM = ROUND_ROBIN
+            .with("policy", policyType.Fifo)
+            .with("debugFactor", 100)
+            .with("shortServiceTime", 1)
+            .with("longServiceTime", 10)
+            .with("shortJobFreq", 2)
+            .with("longJobFreq", 5);
+
+    private final Properties settings = new Properties();
+
+    private final policyType policy;
+    private final engineType engine;
+    private final Simulation.threadMode threadMode;
+    private final tableType jobTable;
+    private final int jobs;
+    private final int producers;
+    private final int consumers;
+    private final int bufferSize;
+    private final int timeslice;
+    private final int debugFactor;
+    private final Distribution shortServiceTime;
+    private final Distribution longServiceTime;
+    private final Distribution shortJobFreq;
+    private final Distribution longJobFreq;
+    private final long seed;
+    private final boolean affinity;
+    private final int cacheJobs;
+    private final int cacheDecay;
+    private final int shortFootprint;
+    private final int longFootprint;
+    private final boolean lockFreeBuffer;
+    private final boolean workStealing;
+    private final String trace;
+    private final String eventLog;
+    private final boolean jmx;
+    private final int interval;
+    private final clockType clock;
+    private final int timeUnitNanos;
+    private final int spinNanos;
+    private final LoadShedder.overflowType overflow;
+    private final int codelTarget;
+    private final int codelInterval;
+    private final int batchSize;
+    private final pinType pin;
+    private final int[] cpus;
+    private final String sharedQueue;
+    private final int sharedConsumers;
+    private final roleType role;
+    private final String checkpoint;
+    private final int checkpointInterval;
+    private final String resume;
+    private final String results;
+
+    /**
+     * SimulationConfig() constructor.
+     * Reads the settings in p, with the defaults for any that are missing.
+     * Throws IllegalArgumentException for an unknown key or a bad value.
+     */
+    public SimulationConfig(Properties p)
+    {
+        for(int i = 0; i < DEFAULTS.length; i++)
+            settings.setProperty(DEFAULTS[i][0], DEFAULTS[i][1]);
+        for(String key : p.stringPropertyNames())
+        {
+            if (!isKey(key))
+                throw new IllegalArgumentException("Unknown setting: " + key);
+            settings.setProperty(key, p.getProperty(key).trim());
+        }
+
+        policy = enumValue(policyType.class, "policy");
+        engine = enumValue(engineType.class, "engine");
+        threadMode = enumValue(Simulation.threadMode.class, "threadMode");
+        jobTable = enumValue(tableType.class, "jobTable");
+        jobs = intValue("jobs", 0);
+        producers = intValue("producers", 1);
+        consumers = intValue("consumers", 1);
+        bufferSize = intValue("bufferSize", 1);
+        timeslice = intValue("timeslice", 1);
+        debugFactor = intValue("debugFactor", 1);
+        shortServiceTime = Distribution.parse(settings.getProperty("shortServiceTime"));
+        longServiceTime = Distribution.parse(settings.getProperty("longServiceTime"));
+        shortJobFreq = Distribution.parse(settings.getProperty("shortJobFreq"));
+        longJobFreq = Distribution.parse(settings.getProperty("longJobFreq"));
+        seed = longValue("seed");
+        affinity = booleanValue("affinity");
+        cacheJobs = intValue("cacheJobs", 1);
+        cacheDecay = intValue("cacheDecay", 0);
+        shortFootprint = intValue("shortFootprint", 0);
+        longFootprint = intValue("longFootprint", 0);
+        lockFreeBuffer = booleanValue("lockFreeBuffer");
+        workStealing = booleanValue("workStealing");
+        trace = fileValue("trace");
+        eventLog = fileValue("eventLog");
+        jmx = booleanValue("jmx");
+        interval = intValue("interval", 0);
+        clock = enumValue(clockType.class, "clock");
+        timeUnitNanos = intValue("timeUnitNanos", 1);
+        spinNanos = intValue("spinNanos", 0);
+        overflow = enumValue(LoadShedder.overflowType.class, "overflow");
+        codelTarget = intValue("codelTarget", 0);
+        codelInterval = intValue("codelInterval", 1);
+        batchSize = intValue("batchSize", 1);
+        pin = enumValue(pinType.class, "pin");
+        cpus = settings.getProperty("cpus").isEmpty()
+                ? null : CpuTopology.parseList(settings.getProperty("cpus"));
+        if (cpus != null && cpus.length == 0)
+            throw new IllegalArgumentException("cpus lists no CPU");
+        sharedQueue = fileValue("sharedQueue");
+        sharedConsumers = intValue("sharedConsumers", 0);
+        role = enumValue(roleType.class, "role");
+        if (role != roleType.Both && sharedQueue == null)
+            throw new IllegalArgumentException("role " + role + " needs a sharedQueue");
+        if (sharedQueue != null && engine != engineType.Threads)
+            throw new IllegalArgumentException("Only the Threads engine can share a queue");
+        if (sharedConsumers != 0 && sharedConsumers < consumers)
+            throw new IllegalArgumentException(sharedConsumers
+                    + " sharedConsumers, fewer than this process's " + consumers);
+        if (sharedQueue != null && threadMode == Simulation.threadMode.VirtualPerJob)
+            throw new IllegalArgumentException("VirtualPerJob mode cannot share a queue");
+        checkpoint = fileValue("checkpoint");
+        checkpointInterval = intValue("checkpointInterval", 1);
+        resume = fileValue("resume");
+        results = fileValue("results");
+        if ((checkpoint != null || resume != null) && engine != engineType.Compact)
+            throw new IllegalArgumentException("Only the Compact engine takes checkpoints");
+        if (workStealing && engine == engineType.Compact)
+            throw new IllegalArgumentException("The Compact engine cannot steal work");
+    }
+
+    /**
+     * with() method.  Returns a copy of this configuration with one
+     * setting changed.
+     */
+    public SimulationConfig with(String key, Object value)
+    {
+        Properties p = new Properties();
+        p.putAll(settings);
+        p.setProperty(key, String.valueOf(value));
+        return new SimulationConfig(p);
+    }
+
+    /**
+     * with() method.  Returns a copy of this configuration with the
+     * settings in p changed.
+     */
+    public SimulationConfig with(Properties p)
+    {
+        Properties merged = new Properties();
+        merged.putAll(settings);
+        merged.putAll(p);
+        return new SimulationConfig(merged);
+    }
+
+    /**
+     * fromArgs() method.
+     * Returns the configurations of the runs the arguments ask for.  An
+     * argument is a key=value setting or -config followed by a properties
+     * file.  A -- starts the next run, which starts from the settings of
+     * the one before, so
+     *   engine=Events jobs=100000 -- timeslice=4 -- timeslice=16
+     * is three runs that differ only in the timeslice.
+     */
+    public static List<SimulationConfig> fromArgs(SimulationConfig base,
+            String[] args) throws IOException
+    {
+        List<SimulationConfig> runs = new ArrayList<SimulationConfig>();
+        SimulationConfig config = base;
+        Properties p = new Properties();
+
+        for(int i = 0; i <= args.length; i++)
+        {
+            if (i == args.length || args[i].equals("--"))
+            {
+                config = config.with(p);
+                runs.add(config);
+                p = new Properties();
+            }
+            else if (args[i].equals("-config") && i + 1 < args.length)
+                p.putAll(load(args[++i]));
+            else
+            {
+                int eq = args[i].indexOf('=');
+                if (eq < 1)
+                    throw new IllegalArgumentException("Expected key=value: " + args[i]);
+                p.setProperty(args[i].substring(0, eq), args[i].substring(eq + 1));
+            }
+        }
+        return runs;
+    }
+
+    /**
+     * load() method.  Reads the settings in a properties file.
+     */
+    public static Properties load(String file) throws IOException
+    {
+        Properties p = new Properties();
+        try (InputStream in = new FileInputStream(file))
+        {
+            p.load(in);
+        }
+        return p;
+    }
+
+    /**
+     * getPolicy() getter.  Returns the scheduling policy.
+     */
+    public policyType getPolicy()
+    {
+        return policy;
+    }
+
+    /**
+     * getEngine() getter.  Returns the simulation engine.
+     */
+    public engineType getEngine()
+    {
+        return engine;
+    }
+
+    /**
+     * getThreadMode() getter.  Returns the thread mode of the Threads engine.
+     */
+    public Simulation.threadMode getThreadMode()
+    {
+        return threadMode;
+    }
+
+    /**
+     * getJobTable() getter.  Returns the job table of the Compact engine.
+     */
+    public tableType getJobTable()
+    {
+        return jobTable;
+    }
+
+    /**
+     * getJobs() getter.  Returns the number of jobs to simulate.
+     */
+    public int getJobs()
+    {
+        return jobs;
+    }
+
+    /**
+     * getProducers() getter.  Returns the number of producers.
+     */
+    public int getProducers()
+    {
+        return producers;
+    }
+
+    /**
+     * getConsumers() getter.  Returns the number of consumers (processors).
+     */
+    public int getConsumers()
+    {
+        return consumers;
+    }
+
+    /**
+     * getBufferSize() getter.  Returns the buffer size.
+     */
+    public int getBufferSize()
+    {
+        return bufferSize;
+    }
+
+    /**
+     * getTimeslice() getter.  Returns the round-robin timeslice.
+     */
+    public int getTimeslice()
+    {
+        return timeslice;
+    }
+
+    /**
+     * getDebugFactor() getter.  Returns the debug factor.
+     */
+    public int getDebugFactor()
+    {
+        return debugFactor;
+    }
+
+    /**
+     * getAffinity() getter.  Returns true if processor caches are modelled.
+     */
+    public boolean getAffinity()
+    {
+        return affinity;
+    }
+
+    /**
+     * getCacheJobs() getter.  Returns the working sets a cache holds.
+     */
+    public int getCacheJobs()
+    {
+        return cacheJobs;
+    }
+
+    /**
+     * getCacheDecay() getter.
+     * Returns the time over which a held working set goes 63% cold,
+     * before the debug factor.
+     */
+    public int getCacheDecay()
+    {
+        return cacheDecay;
+    }
+
+    /**
+     * getShortFootprint() getter.
+     * Returns the time to reload a short job's working set, before the
+     * debug factor.
+     */
+    public int getShortFootprint()
+    {
+        return shortFootprint;
+    }
+
+    /**
+     * getLongFootprint() getter.
+     * Returns the time to reload a long job's working set, before the
+     * debug factor.
+     */
+    public int getLongFootprint()
+    {
+        return longFootprint;
+    }
+
+    /**
+     * getLockFreeBuffer() getter.  Returns true to use the lock-free ring buffer.
+     */
+    public boolean getLockFreeBuffer()
+    {
+        return lockFreeBuffer;
+    }
+
+    /**
+     * getWorkStealing() getter.  Returns true to give each processor its own run queue.
+     */
+    public boolean getWorkStealing()
+    {
+        return workStealing;
+    }
+
+    /**
+     * getTrace() getter.  Returns the job trace to replay, or null.
+     */
+    public String getTrace()
+    {
+        return trace;
+    }
+
+    /**
+     * getEventLog() getter.  Returns the file to log job events to, or null.
+     */
+    public String getEventLog()
+    {
+        return eventLog;
+    }
+
+    /**
+     * getJmx() getter.  Returns true to watch the simulation over JMX.
+     */
+    public boolean getJmx()
+    {
+        return jmx;
+    }
+
+    /**
+     * getInterval() getter.
+     * Returns the reporting interval, before the debug factor, or 0.
+     */
+    public int getInterval()
+    {
+        return interval;
+    }
+
+    /**
+     * getClock() getter.  Returns the clock of the Threads engine.
+     */
+    public clockType getClock()
+    {
+        return clock;
+    }
+
+    /**
+     * getTimeUnitNanos() getter.
+     * Returns the nanoseconds in a time unit of the Nanos clock.
+     */
+    public int getTimeUnitNanos()
+    {
+        return timeUnitNanos;
+    }
+
+    /**
+     * getSpinNanos() getter.
+     * Returns the nanoseconds before the end of a sleep of the Nanos clock
+     * that it spins rather than parks.
+     */
+    public int getSpinNanos()
+    {
+        return spinNanos;
+    }
+
+    /**
+     * getOverflow() getter.
+     * Returns what an arrival that finds the buffer full does.
+     */
+    public LoadShedder.overflowType getOverflow()
+    {
+        return overflow;
+    }
+
+    /**
+     * getCodelTarget() getter.
+     * Returns the queue delay CoDel aims for, before the debug factor.
+     */
+    public int getCodelTarget()
+    {
+        return codelTarget;
+    }
+
+    /**
+     * getCodelInterval() getter.
+     * Returns how long the queue delay may stay above the CoDel target,
+     * before the debug factor.
+     */
+    public int getCodelInterval()
+    {
+        return codelInterval;
+    }
+
+    /**
+     * getBatchSize() getter.  Returns the jobs moved in one handoff.
+     */
+    public int getBatchSize()
+    {
+        return batchSize;
+    }
+
+    /**
+     * getPin() getter.  Returns how consumer threads are pinned to CPUs.
+     */
+    public pinType getPin()
+    {
+        return pin;
+    }
+
+    /**
+     * getCpus() getter.
+     * Returns the CPUs consumers are pinned to, or null for all online CPUs.
+     */
+    public int[] getCpus()
+    {
+        return cpus == null ? null : cpus.clone();
+    }
+
+    /**
+     * getSharedQueue() getter.
+     * Returns the file the job buffer is mapped into, or null.
+     */
+    public String getSharedQueue()
+    {
+        return sharedQueue;
+    }
+
+    /**
+     * getSharedConsumers() getter.
+     * Returns the consumers of all the processes that share the queue.
+     */
+    public int getSharedConsumers()
+    {
+        return sharedConsumers == 0 ? consumers : sharedConsumers;
+    }
+
+    /**
+     * getRole() getter.  Returns which threads this process runs.
+     */
+    public roleType getRole()
+    {
+        return role;
+    }
+
+    /**
+     * getCheckpoint() getter.  Returns the file to write snapshots to, or null.
+     */
+    public String getCheckpoint()
+    {
+        return checkpoint;
+    }
+
+    /**
+     * getCheckpointInterval() getter.
+     * Returns the time units between snapshots, before the debug factor.
+     */
+    public int getCheckpointInterval()
+    {
+        return checkpointInterval;
+    }
+
+    /**
+     * getResume() getter.  Returns the snapshot to resume from, or null.
+     */
+    public String getResume()
+    {
+        return resume;
+    }
+
+    /**
+     * getResults() getter.
+     * Returns the file to write the results of completed jobs to, or null.
+     */
+    public String getResults()
+    {
+        return results;
+    }
+
+    /**
+     * getShortServiceTime() getter.
+     * Returns the distribution of short job service lengths, before the
+     * debug factor.
+     */
+    public Distribution getShortServiceTime()
+    {
+        return shortServiceTime;
+    }
+
+    /**
+     * getLongServiceTime() getter.
+     * Returns the distribution of long job service lengths, before the
+     * debug factor.
+     */
+    public Distribution getLongServiceTime()
+    {
+        return longServiceTime;
+    }
+
+    /**
+     * getShortJobFreq() getter.
+     * Returns the distribution of short job producer gaps, before the
+     * debug factor.
+     */
+    public Distribution getShortJobFreq()
+    {
+        return shortJobFreq;
+    }
+
+    /**
+     * getLongJobFreq() getter.
+     * Returns the distribution of long job producer gaps, before the
+     * debug factor.
+     */
+    public Distribution getLongJobFreq()
+    {
+        return longJobFreq;
+    }
+
+    /**
+     * getSeed() getter.  Returns the seed of the producers' random streams.
+     */
+    public long getSeed()
+    {
+        return seed;
+    }
+
+    /**
+     * get() getter.  Returns a setting as text.
+     */
+    public String get(String key)
+    {
+        return settings.getProperty(key);
+    }
+
+    /**
+     * toString() method.  Returns every setting as key=value, in the
+     * order of the table above.
+     */
+    public String toString()
+    {
+        StringBuilder sb = new StringBuilder();
+        for(int i = 0; i < DEFAULTS.length; i++)
+        {
+            if (i > 0)
+                sb.append(' ');
+            sb.append(DEFAULTS[i][0]).append('=')
+                    .append(settings.getProperty(DEFAULTS[i][0]));
+        }
+        return sb.toString();
+    }
+
+    private static boolean isKey(String key)
+    {
+        for(int i = 0; i < DEFAULTS.length; i++)
+            if (DEFAULTS[i][0].equals(key))
+                return true;
+        return false;
+    }
+
+    private int intValue(String key, int min)
+    {
+        String v = settings.getProperty(key);
+        int n;
+        try
+        {
+            n = Integer.parseInt(v);
+        }
+        catch(NumberFormatException e)
+        {
+            throw new IllegalArgumentException(key + " is not a number: " + v);
+        }
+        if (n < min)
+            throw new IllegalArgumentException(key + " must be at least " + min);
+        return n;
+    }
+
+    private long longValue(String key)
+    {
+        String v = settings.getProperty(key);
+        try
+        {
+            return Long.parseLong(v);
+        }
+        catch(NumberFormatException e)
+        {
+            throw new IllegalArgumentException(key + " is not a number: " + v);
+        }
+    }
+
+    private boolean booleanValue(String key)
+    {
+        String v = settings.getProperty(key);
+        if (!v.equals("true") && !v.equals("false"))
+            throw new IllegalArgumentException(key + " must be true or false: " + v);
+        return v.equals("true");
+    }
+
+    private String fileValue(String key)
+    {
+        String v = settings.getProperty(key);
+        return v.isEmpty() ? null : v;
+    }
+
+    private <T extends Enum<T>> T enumValue(Class<T> type, String key)
+    {
+        String v = settings.getProperty(key);
+        try
+        {
+            return Enum.valueOf(type, v);
+        }
+        catch(IllegalArgumentException e)
+        {
+            throw new IllegalArgumentException(key + " cannot be " + v);
+        }
+    }
+}
@@ -0,0 +1,116 @@
+/* SimulationMXBean.java
+ * The live metrics of a running Simulation, as SimulationMonitor serves
+ * them over JMX.  Every attribute is a sample of counters the simulation
+ * keeps anyway, read without locking, so watching a run does not slow it
+ * down.  Samples taken while the simulation runs may be a job apart from
+ * one another.  Times are on the simulation's clock: time units of its
+ * SimClock for the threaded engine, virtual time units for the event
+ * engines.
+ */
+
+public interface SimulationMXBean
+{
+    /**
+     * isRunning() getter.  Returns true while the simulation runs.
+     */
+    boolean isRunning();
+
+    /**
+     * getConfig() getter.  Returns the settings of the simulation.
+     */
+    String getConfig();
+
+    /**
+     * getSimulationTime() getter.  Returns the time the simulation has run.
+     */
+    long getSimulationTime();
+
+    /**
+     * getJobsGenerated() getter.  Returns the number of jobs created.
+     */
+    long getJobsGenerated();
+
+    /**
+     * getJobsCompleted() getter.  Returns the number of jobs completed.
+     */
+    long getJobsCompleted();
+
+    /**
+     * getShortJobsCompleted() getter.  Returns the short jobs completed.
+     */
+    long getShortJobsCompleted();
+
+    /**
+     * getLongJobsCompleted() getter.  Returns the long jobs completed.
+     */
+    long getLongJobsCompleted();
+
+    /**
+     * getJobsInSystem() getter.
+     * Returns the jobs created and not yet completed or shed.
+     */
+    long getJobsInSystem();
+
+    /**
+     * getReadyJobs() getter.
+     * Returns the jobs waiting to run: those in the system and not on a
+     * processor.
+     */
+    long getReadyJobs();
+
+    /**
+     * getBusyProcessors() getter.  Returns the processors running a job.
+     */
+    int getBusyProcessors();
+
+    /**
+     * getCompletionsPerSecond() getter.
+     * Returns the jobs completed per second of wall-clock time over the
+     * last second, sampled in the background, or 0 for the first second.
+     * A client that wants a rate over a window of its own can difference
+     * getJobsCompleted() instead.
+     */
+    double getCompletionsPerSecond();
+
+    /**
+     * getProcessorBusyTime() getter.
+     * Returns the time each processor has spent servicing jobs.
+     */
+    long[] getProcessorBusyTime();
+
+    /**
+     * getProcessorUtilization() getter.
+     * Returns the percentage of the simulation time each processor has
+     * been busy.
+     */
+    double[] getProcessorUtilization();
+
+    /**
+     * getSteals() getter.  Returns the jobs stolen from a peer's run queue.
+     */
+    long getSteals();
+
+    /**
+     * getMigrations() getter.
+     * Returns the dispatches of jobs that last ran on another processor.
+     */
+    long getMigrations();
+
+    /**
+     * getFreeBufferSlots() getter.
+     * Returns how many more new jobs the job buffer has room for.
+     */
+    int getFreeBufferSlots();
+
+    /**
+     * getAdmissionPermits() getter.  Returns the admission permits left in
+     * VirtualPerJob mode, or -1 in the other modes.
+     */
+    int getAdmissionPermits();
+
+    /**
+     * getProcessorPermits() getter.  Returns the idle processor permits in
+     * VirtualPerJob mode, or -1 in the other modes.
+     */
+    int getProcessorPermits();
+}
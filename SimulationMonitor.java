@@ -0,0 +1,223 @@
+/* SimulationMonitor.java
+ * Serves the live metrics of a Simulation over JMX, so a run can be
+ * watched in jconsole or scraped by a local agent while it is in
+ * progress.  Each monitor is registered with the platform MBean server as
+ * RRScheduler:type=Simulation,id=n, n counting from 1, and only reads
+ * what the simulation already counts (see SimulationMXBean).  While it is
+ * registered, a sampler thread works out the completion rate once every
+ * SAMPLE_MILLIS, so reading it is a volatile read and any number of
+ * clients can read it without disturbing each other.
+ */
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+public class SimulationMonitor implements SimulationMXBean
+{
+    private static final AtomicInteger monitorCounter = new AtomicInteger();
+
+    // Milliseconds between samples of the completion rate.
+    private static final long SAMPLE_MILLIS = 1000;
+
+    private final Simulation simulation;
+    private final ObjectName name;
+
+    // The completion rate of the last sample, and the thread sampling it
+    // while the monitor is registered.
+    private volatile double completionsPerSecond = 0;
+    private Thread sampler;
+
+    /**
+     * SimulationMonitor() constructor.  Creates a monitor of simulation.
+     */
+    public SimulationMonitor(Simulation simulation)
+    {
+        this.simulation = simulation;
+        try
+        {
+            name = new ObjectName("RRScheduler:type=Simulation,id="
+                    + monitorCounter.incrementAndGet());
+        }
+        catch(JMException e)
+        {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * getObjectName() getter.  Returns the name the monitor registers as.
+     */
+    public ObjectName getObjectName()
+    {
+        return name;
+    }
+
+    /**
+     * register() method.  Registers the monitor with the platform MBean
+     * server and starts sampling the completion rate.
+     */
+    public void register()
+    {
+        try
+        {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, name);
+        }
+        catch(JMException e)
+        {
+            throw new IllegalStateException("Cannot register " + name, e);
+        }
+        sampler = new Thread(() -> sampleRate(), "SimulationMonitor");
+        sampler.setDaemon(true);
+        sampler.start();
+    }
+
+    /**
+     * unregister() method.  Stops sampling and removes the monitor from
+     * the platform MBean server, if it is registered.
+     */
+    public void unregister()
+    {
+        if (sampler != null)
+        {
+            sampler.interrupt();
+            try { sampler.join(); }
+                catch(InterruptedException e) { Thread.currentThread().interrupt(); }
+            sampler = null;
+        }
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try
+        {
+            if (server.isRegistered(name))
+                server.unregisterMBean(name);
+        }
+        catch(JMException e)
+        {
+            throw new IllegalStateException("Cannot unregister " + name, e);
+        }
+    }
+
+    public boolean isRunning()
+    {
+        return simulation.isRunning();
+    }
+
+    public String getConfig()
+    {
+        return simulation.getConfig().toString();
+    }
+
+    public long getSimulationTime()
+    {
+        return simulation.getSimulationTime();
+    }
+
+    public long getJobsGenerated()
+    {
+        return simulation.getJobsGenerated();
+    }
+
+    public long getJobsCompleted()
+    {
+        return getShortJobsCompleted() + getLongJobsCompleted();
+    }
+
+    public long getShortJobsCompleted()
+    {
+        return simulation.getCounter(StatShard.SHORT_COMPLETED);
+    }
+
+    public long getLongJobsCompleted()
+    {
+        return simulation.getCounter(StatShard.LONG_COMPLETED);
+    }
+
+    public long getJobsInSystem()
+    {
+        // Count the completions first, so a job that arrives meanwhile
+        // can only make the result larger, never negative.
+        long completed = getJobsCompleted() + simulation.getJobsShed();
+        return Math.max(0, simulation.getJobsGenerated() - completed);
+    }
+
+    public long getReadyJobs()
+    {
+        return Math.max(0, getJobsInSystem() - getBusyProcessors());
+    }
+
+    public int getBusyProcessors()
+    {
+        return (int) simulation.getCounter(StatShard.RUNNING);
+    }
+
+    public double getCompletionsPerSecond()
+    {
+        return completionsPerSecond;
+    }
+
+    public long[] getProcessorBusyTime()
+    {
+        long[] busy = new long[simulation.getConfig().getConsumers()];
+        for(int k = 0; k < busy.length; k++)
+            busy[k] = simulation.getProcessorCounter(k, StatShard.BUSY_TIME);
+        return busy;
+    }
+
+    public double[] getProcessorUtilization()
+    {
+        long total = getSimulationTime();
+        long[] busy = getProcessorBusyTime();
+        double[] utilization = new double[busy.length];
+        for(int k = 0; k < busy.length; k++)
+            utilization[k] = total > 0 ? 100.0 * busy[k] / total : 0;
+        return utilization;
+    }
+
+    public long getSteals()
+    {
+        return simulation.getCounter(StatShard.STEALS);
+    }
+
+    public long getMigrations()
+    {
+        return simulation.getCounter(StatShard.MIGRATIONS);
+    }
+
+    public int getFreeBufferSlots()
+    {
+        return simulation.getFreeBufferSlots();
+    }
+
+    public int getAdmissionPermits()
+    {
+        return simulation.getAdmissionPermits();
+    }
+
+    public int getProcessorPermits()
+    {
+        return simulation.getProcessorPermits();
+    }
+
+    // Sampler thread: publish the completions per second of wall-clock
+    // time over each SAMPLE_MILLIS, until interrupted.
+    private void sampleRate()
+    {
+        long lastCompleted = getJobsCompleted();
+        long lastNanos = System.nanoTime();
+        try
+        {
+            while(true)
+            {
+                Thread.sleep(SAMPLE_MILLIS);
+                long completed = getJobsCompleted();
+                long nanos = System.nanoTime();
+                completionsPerSecond = (completed - lastCompleted) * 1e9 / (nanos - lastNanos);
+                lastCompleted = completed;
+                lastNanos = nanos;
+            }
+        }
+        catch(InterruptedException e) {}
+    }
+}
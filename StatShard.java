@@ -0,0 +1,237 @@
+/* StatShard.java
+ * The simulation statistics collected by one consumer (processor).
+ * Each consumer writes only to its own shard, so no update is ever lost
+ * and completions on different processors never touch the same cache
+ * line.  The counters are padded on both sides for that reason.  Since a
+ * shard has a single writer, a counter update is a plain read followed by
+ * an ordered store, with no atomic read-modify-write.  Shards are merged
+ * only when a report is taken.  For interval reports a shard also keeps
+ * two IntervalStats, recorded into in turn: ending an interval swaps
+ * them, so the processor never has to stop for the report.  A timeslice
+ * that spans the end of an interval is split there: the swap credits the
+ * ended interval with the part of the running slice before its end, and
+ * the processor records only the rest when the slice ends.
+ */
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+public class StatShard
+{
+    // Counters kept by every shard.
+    public static final int SHORT_COMPLETED = 0;  // Short jobs completed
+    public static final int LONG_COMPLETED = 1;   // Long jobs completed
+    public static final int JOBS_SERVED = 2;      // Jobs passed to updateStats
+    public static final int BUSY_TIME = 3;        // Time units spent servicing
+    public static final int STEALS = 4;           // Jobs stolen from a peer
+    public static final int MIGRATIONS = 5;       // Jobs that last ran elsewhere
+    public static final int RUNNING = 6;          // 1 while a job is running
+    public static final int CACHE_HITS = 7;       // Dispatches to a warm cache
+    public static final int CACHE_MISSES = 8;     // Dispatches to a cold cache
+    public static final int MIGRATION_COST = 9;   // Reload time of migrated jobs
+    private static final int COUNTERS = 10;
+
+    // Unused longs on each side of the counters, two cache lines' worth.
+    private static final int PAD = 16;
+
+    private final AtomicLongArray counters = new AtomicLongArray(COUNTERS + 2 * PAD);
+
+    // Wait, service and turnaround time histograms for each job type.
+    public final LatencyHistogram shortWaitTime = new LatencyHistogram(true);
+    public final LatencyHistogram longWaitTime = new LatencyHistogram(true);
+    public final LatencyHistogram shortServiceTime = new LatencyHistogram(true);
+    public final LatencyHistogram longServiceTime = new LatencyHistogram(true);
+    public final LatencyHistogram shortTurnaroundTime = new LatencyHistogram(true);
+    public final LatencyHistogram longTurnaroundTime = new LatencyHistogram(true);
+
+    // The interval statistics and the time each interval started.  The
+    // processor records into the current one, with recordingInterval set
+    // while it does.  sliceStart is the start of the slice the processor
+    // is running, or of the part of it in the current interval, or -1.
+    private final IntervalStats[] intervals = {new IntervalStats(), new IntervalStats()};
+    private final long[] intervalStarts = new long[2];
+    private volatile int currentInterval = 0;
+    private volatile boolean recordingInterval = false;
+    private final AtomicLong sliceStart = new AtomicLong(-1);
+
+    /**
+     * newShards() method.  Creates one shard for each of n consumers.
+     */
+    public static StatShard[] newShards(int n)
+    {
+        StatShard[] shards = new StatShard[n];
+        for(int i = 0; i < n; i++)
+            shards[i] = new StatShard();
+        return shards;
+    }
+
+    /**
+     * merge() method.  Returns a new shard holding the totals of shards.
+     * It can be taken while the consumers are still running.
+     */
+    public static StatShard merge(StatShard[] shards)
+    {
+        StatShard total = new StatShard();
+        for(int i = 0; i < shards.length; i++)
+        {
+            StatShard s = shards[i];
+            for(int c = 0; c < COUNTERS; c++)
+                total.counters.getAndAdd(PAD + c, s.get(c));
+
+            total.shortWaitTime.add(s.shortWaitTime);
+            total.longWaitTime.add(s.longWaitTime);
+            total.shortServiceTime.add(s.shortServiceTime);
+            total.longServiceTime.add(s.longServiceTime);
+            total.shortTurnaroundTime.add(s.shortTurnaroundTime);
+            total.longTurnaroundTime.add(s.longTurnaroundTime);
+        }
+        return total;
+    }
+
+    /**
+     * add() method.  Adds delta to a counter.  Only the consumer that owns
+     * the shard may call it.
+     */
+    public void add(int counter, long delta)
+    {
+        int i = PAD + counter;
+        counters.lazySet(i, counters.get(i) + delta);
+    }
+
+    /**
+     * get() getter.  Returns the value of a counter.
+     */
+    public long get(int counter)
+    {
+        return counters.get(PAD + counter);
+    }
+
+    /**
+     * recordJob() method.  Records the times of one completed job.
+     */
+    public void recordJob(boolean shortJob, long waitTime, long serviceTime,
+            long turnaroundTime)
+    {
+        add(JOBS_SERVED, 1);
+        if (shortJob)
+        {
+            shortWaitTime.record(waitTime);
+            shortServiceTime.record(serviceTime);
+            shortTurnaroundTime.record(turnaroundTime);
+        }
+        else
+        {
+            longWaitTime.record(waitTime);
+            longServiceTime.record(serviceTime);
+            longTurnaroundTime.record(turnaroundTime);
+        }
+    }
+
+    /**
+     * startSlice() method.
+     * Marks the processor busy on a timeslice from time on, for the
+     * interval statistics.  Only the consumer that owns the shard may
+     * call it.
+     */
+    public void startSlice(long time)
+    {
+        sliceStart.set(time);
+    }
+
+    /**
+     * recordInterval() method.
+     * Records the timeslice startSlice() began, which ended at endTime,
+     * in the current interval (see IntervalStats).  Only the consumer that
+     * owns the shard may call it.
+     */
+    public void recordInterval(boolean completed, boolean shortJob, long waitTime,
+            long endTime)
+    {
+        recordingInterval = true;
+        int c = currentInterval;
+        long start = sliceStart.getAndSet(-1);
+
+        // A swap that has not yet claimed the part of the slice before the
+        // current interval waits for this record, so add that part to the
+        // interval it ended.
+        if (start < intervalStarts[c])
+        {
+            intervals[1 - c].addBusyTime(intervalStarts[c] - start);
+            start = intervalStarts[c];
+        }
+        intervals[c].record(completed, shortJob, waitTime, Math.max(0, endTime - start));
+        recordingInterval = false;
+    }
+
+    /**
+     * swapInterval() method.
+     * Ends the current interval at endTime and returns its statistics,
+     * which stay valid until the next swap.  The processor goes on
+     * recording into the other one.  Only one thread may swap.
+     */
+    public IntervalStats swapInterval(long endTime)
+    {
+        int ended = currentInterval;
+        intervals[1 - ended].reset();
+        intervalStarts[1 - ended] = endTime;
+        currentInterval = 1 - ended;
+
+        // Claim the part of a running slice before endTime, unless the
+        // processor has just taken it to record.
+        long start = sliceStart.get();
+        boolean claimed = start != -1 && start < endTime
+                && sliceStart.compareAndSet(start, endTime);
+
+        // A record that began before the claim may still be writing to the
+        // ended interval.  It is a few stores, so wait it out.
+        while(recordingInterval)
+            Thread.onSpinWait();
+        if (claimed)
+            intervals[ended].addBusyTime(endTime - Math.max(start, intervalStarts[ended]));
+        return intervals[ended];
+    }
+
+    /**
+     * save() method.
+     * Writes the counters, the histograms and the current interval to out.
+     * Only the consumer that owns the shard, or a thread it has stopped
+     * for, may call it.
+     */
+    public void save(DataOutput out) throws IOException
+    {
+        for(int c = 0; c < COUNTERS; c++)
+            out.writeLong(get(c));
+        shortWaitTime.save(out);
+        longWaitTime.save(out);
+        shortServiceTime.save(out);
+        longServiceTime.save(out);
+        shortTurnaroundTime.save(out);
+        longTurnaroundTime.save(out);
+        intervals[currentInterval].save(out);
+        out.writeLong(intervalStarts[currentInterval]);
+        out.writeLong(sliceStart.get());
+    }
+
+    /**
+     * restore() method.
+     * Replaces the statistics with those save() wrote to in.  Nothing may
+     * record meanwhile.
+     */
+    public void restore(DataInput in) throws IOException
+    {
+        for(int c = 0; c < COUNTERS; c++)
+            counters.set(PAD + c, in.readLong());
+        shortWaitTime.restore(in);
+        longWaitTime.restore(in);
+        shortServiceTime.restore(in);
+        longServiceTime.restore(in);
+        shortTurnaroundTime.restore(in);
+        longTurnaroundTime.restore(in);
+        intervals[currentInterval].restore(in);
+        intervalStarts[currentInterval] = in.readLong();
+        sliceStart.set(in.readLong());
+    }
+}
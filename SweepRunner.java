@@ -0,0 +1,255 @@
+/* SweepRunner.java
+ * Runs a parameter sweep: many independent simulations, in parallel on a
+ * ForkJoinPool, with the results collected into one table.  Every run has
+ * a Simulation of its own, so runs share no state and need no locking.
+ *
+ * The arguments are SimulationConfig settings, where a value may be a
+ * comma-separated list.  The sweep is every combination of the lists, so
+ *   timeslice=2,4,8,16 bufferSize=5,10,20 consumers=1,2 jobs=100000
+ * is 24 runs.  -- starts another grid, which starts from the settings of
+ * the grid before, and -config reads settings from a properties file.
+ * -parallelism n sets the number of worker threads, one per processor by
+ * default.  Runs use the discrete-event engine unless engine= says
+ * otherwise; threaded runs sleep, so they gain little from the pool.
+ */
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+public class SweepRunner
+{
+    // Result columns, after the columns of the swept settings.
+    private static final String[] RESULT_COLUMNS = {
+        "throughput", "utilization%", "shortWait", "shortWaitP99",
+        "longWait", "longWaitP99", "turnaroundP99", "ms"
+    };
+
+    private final ForkJoinPool pool;
+
+    /**
+     * SweepRunner() constructor.
+     * Runs sweeps on parallelism worker threads.
+     */
+    public SweepRunner(int parallelism)
+    {
+        pool = new ForkJoinPool(parallelism);
+    }
+
+    /**
+     * run() method.
+     * Runs every configuration in configs, in parallel, and returns one
+     * row of results for each, in the same order.
+     */
+    public List<double[]> run(List<SimulationConfig> configs)
+    {
+        List<RunTask> tasks = new ArrayList<RunTask>();
+        for(SimulationConfig config : configs)
+            tasks.add(new RunTask(config));
+
+        for(RunTask task : tasks)
+            pool.execute(task);
+
+        List<double[]> rows = new ArrayList<double[]>();
+        for(RunTask task : tasks)
+            rows.add(task.join());
+        return rows;
+    }
+
+    /**
+     * shutdown() method.  Stops the worker threads.
+     */
+    public void shutdown()
+    {
+        pool.shutdown();
+    }
+
+    /**
+     * grid() method.
+     * Returns every combination of the settings in values, each applied to
+     * base.  A setting with one value is the same in all of them.
+     */
+    public static List<SimulationConfig> grid(SimulationConfig base,
+            Map<String, String[]> values)
+    {
+        List<SimulationConfig> configs = new ArrayList<SimulationConfig>();
+        configs.add(base);
+        for(Map.Entry<String, String[]> e : values.entrySet())
+        {
+            List<SimulationConfig> expanded = new ArrayList<SimulationConfig>();
+            for(SimulationConfig config : configs)
+                for(String value : e.getValue())
+                    expanded.add(config.with(e.getKey(), value));
+            configs = expanded;
+        }
+        return configs;
+    }
+
+    /**
+     * printTable() method.
+     * Prints one line per run: the settings in columns, then its results.
+     */
+    public static void printTable(List<SimulationConfig> configs, Set<String> columns,
+            List<double[]> rows)
+    {
+        StringBuilder sb = new StringBuilder();
+        for(String key : columns)
+            sb.append(String.format("%-14s", key));
+        for(int i = 0; i < RESULT_COLUMNS.length; i++)
+            sb.append(String.format("%14s", RESULT_COLUMNS[i]));
+        System.out.println(sb);
+
+        for(int r = 0; r < rows.size(); r++)
+        {
+            sb.setLength(0);
+            for(String key : columns)
+                sb.append(String.format("%-14s", configs.get(r).get(key)));
+            double[] row = rows.get(r);
+            for(int i = 0; i < row.length; i++)
+                sb.append(String.format("%14.3f", row[i]));
+            System.out.println(sb);
+        }
+    }
+
+    // Run one simulation and summarize it as a row of RESULT_COLUMNS.
+    private static double[] runOne(SimulationConfig config)
+    {
+        long start = System.nanoTime();
+        Simulation simulation = new Simulation(config);
+        long totalSimulationTime = simulation.run();
+        long elapsed = System.nanoTime() - start;
+
+        double scale = config.getDebugFactor();
+        StatShard stats = simulation.getStatistics();
+        double utilization = 0;
+        for(int k = 0; k < config.getConsumers(); k++)
+            utilization += simulation.getUtilization(k, totalSimulationTime);
+
+        LatencyHistogram turnaround = new LatencyHistogram();
+        turnaround.add(stats.shortTurnaroundTime);
+        turnaround.add(stats.longTurnaroundTime);
+
+        return new double[] {
+            simulation.getThroughput(stats, StatShard.SHORT_COMPLETED, totalSimulationTime)
+                    + simulation.getThroughput(stats, StatShard.LONG_COMPLETED,
+                            totalSimulationTime),
+            utilization / config.getConsumers(),
+            stats.shortWaitTime.getMean() / scale,
+            stats.shortWaitTime.getValueAtPercentile(99) / scale,
+            stats.longWaitTime.getMean() / scale,
+            stats.longWaitTime.getValueAtPercentile(99) / scale,
+            turnaround.getValueAtPercentile(99) / scale,
+            elapsed / 1e6
+        };
+    }
+
+    // One simulation run.
+    private static class RunTask extends RecursiveTask<double[]>
+    {
+        private static final long serialVersionUID = 1L;
+
+        private final SimulationConfig config;
+
+        RunTask(SimulationConfig config)
+        {
+            this.config = config;
+        }  // RunTask()
+
+        protected double[] compute()
+        {
+            return runOne(config);
+        }  // compute()
+    }
+
+    /**
+     * main() method.  Runs the sweep the arguments describe and prints
+     * its table.
+     */
+    public static void main(String[] args)
+    {
+        int parallelism = Runtime.getRuntime().availableProcessors();
+        SimulationConfig base = SimulationConfig.ROUND_ROBIN
+                .with("engine", SimulationConfig.engineType.Events);
+        List<SimulationConfig> configs = new ArrayList<SimulationConfig>();
+        Set<String> named = new LinkedHashSet<String>();
+
+        try
+        {
+            Map<String, String[]> values = new LinkedHashMap<String, String[]>();
+            for(int i = 0; i <= args.length; i++)
+            {
+                if (i == args.length || args[i].equals("--"))
+                {
+                    // Settings with one value carry over to the next grid.
+                    List<SimulationConfig> grid = grid(base, values);
+                    configs.addAll(grid);
+                    Properties fixed = new Properties();
+                    for(Map.Entry<String, String[]> e : values.entrySet())
+                        if (e.getValue().length == 1)
+                            fixed.setProperty(e.getKey(), e.getValue()[0]);
+                    base = base.with(fixed);
+                    named.addAll(values.keySet());
+                    values = new LinkedHashMap<String, String[]>();
+                }
+                else if (args[i].equals("-parallelism") && i + 1 < args.length)
+                    parallelism = Integer.parseInt(args[++i]);
+                else if (args[i].equals("-config") && i + 1 < args.length)
+                    base = base.with(SimulationConfig.load(args[++i]));
+                else
+                {
+                    int eq = args[i].indexOf('=');
+                    if (eq < 1)
+                        throw new IllegalArgumentException("Expected key=value: " + args[i]);
+                    values.put(args[i].substring(0, eq),
+                            args[i].substring(eq + 1).split(","));
+                }
+            }
+        }
+        catch(IOException | IllegalArgumentException e)
+        {
+            System.err.println("SweepRunner: " + e.getMessage());
+            System.exit(1);
+        }
+
+        // A column for each setting named that is not the same in every run.
+        Set<String> columns = new LinkedHashSet<String>();
+        for(String key : named)
+            for(SimulationConfig config : configs)
+                if (!config.get(key).equals(configs.get(0).get(key)))
+                    columns.add(key);
+
+        SweepRunner runner = new SweepRunner(parallelism);
+        long start = System.nanoTime();
+        List<double[]> rows = null;
+        try
+        {
+            rows = runner.run(configs);
+        }
+        catch(UncheckedIOException e)
+        {
+            System.err.println("SweepRunner: " + e.getMessage());
+            System.exit(1);
+        }
+        long elapsed = System.nanoTime() - start;
+        runner.shutdown();
+
+        printTable(configs, columns, rows);
+
+        // The sum of the run times over the elapsed time is the speedup, as
+        // long as there are no more threads than processors.
+        double runTime = 0;
+        for(double[] row : rows)
+            runTime += row[row.length - 1];
+        System.out.println(configs.size() + " runs on " + parallelism
+                + " threads in " + elapsed / 1000000 + " ms, speedup "
+                + String.format("%.2f", runTime / (elapsed / 1e6)));
+    }
+}
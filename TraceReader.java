@@ -0,0 +1,207 @@
+/* TraceReader.java
+ * Reads a binary job trace for replay in place of the producers.
+ * A trace is a HEADER_SIZE byte header (the MAGIC number, the VERSION and
+ * the number of records) and then fixed-width RECORD_SIZE byte records,
+ * all little-endian:
+ *
+ *   long arrivalTime    Time units from the start of the trace
+ *   int  serviceLength  Time units of service
+ *   int  jobID
+ *   int  type           RRJob.jobType ordinal: 0 short, 1 long
+ *
+ * The file is memory-mapped a window at a time, so a trace can be far
+ * larger than the heap, and records are read straight out of the mapping:
+ * next() moves to the next record, whose fields the getters return, with
+ * no parsing and no allocation.
+ */
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+public class TraceReader implements Closeable
+{
+    public static final int MAGIC = 0x52525452;  // "RRTR"
+    public static final int VERSION = 1;
+    public static final int HEADER_SIZE = 16;
+    public static final int RECORD_SIZE = 20;
+
+    // Offsets of the fields in a record.
+    private static final int ARRIVAL_TIME = 0;
+    private static final int SERVICE_LENGTH = 8;
+    private static final int JOB_ID = 12;
+    private static final int TYPE = 16;
+
+    // Records in a mapped window by default: just under 1 GB.
+    private static final int WINDOW_RECORDS = (1 << 30) / RECORD_SIZE;
+
+    private static final RRJob.jobType[] TYPES = RRJob.jobType.values();
+
+    private final FileChannel channel;
+    private final long recordCount;
+    private final int windowRecords;
+
+    // The mapped window, the index of its first record, and the offset of
+    // the current record in it.
+    private MappedByteBuffer window;
+    private long windowStart;
+    private int offset;
+    private long next = 0;  // Index of the record after the current one
+
+    /**
+     * TraceReader() constructor.  Opens a trace file.
+     */
+    public TraceReader(String file) throws IOException
+    {
+        this(file, WINDOW_RECORDS);
+    }
+
+    /**
+     * TraceReader() constructor.
+     * Opens a trace file, mapping windowRecords records of it at a time.
+     * Throws IOException if the file is not a trace.
+     */
+    public TraceReader(String file, int windowRecords) throws IOException
+    {
+        this.windowRecords = windowRecords;
+        channel = FileChannel.open(Paths.get(file), StandardOpenOption.READ);
+
+        try
+        {
+            if (channel.size() < HEADER_SIZE)
+                throw new IOException(file + " is not a job trace");
+            MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY,
+                    0, HEADER_SIZE);
+            header.order(ByteOrder.LITTLE_ENDIAN);
+            if (header.getInt(0) != MAGIC || header.getInt(4) != VERSION)
+                throw new IOException(file + " is not a job trace");
+            recordCount = header.getLong(8);
+            if (recordCount < 0
+                    || HEADER_SIZE + recordCount * RECORD_SIZE > channel.size())
+                throw new IOException(file + " is truncated");
+        }
+        catch(IOException e)
+        {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * next() method.  Moves to the next record.  Returns false at the end
+     * of the trace.  Throws UncheckedIOException if the next window of the
+     * file cannot be mapped.
+     */
+    public boolean next()
+    {
+        if (next == recordCount)
+            return false;
+        if (window == null || next - windowStart == windowRecords)
+            map(next);
+        offset = (int) (next - windowStart) * RECORD_SIZE;
+        next++;
+        return true;
+    }
+
+    /**
+     * getArrivalTime() getter.  Returns the arrival time of the current record.
+     */
+    public long getArrivalTime()
+    {
+        return window.getLong(offset + ARRIVAL_TIME);
+    }
+
+    /**
+     * getServiceLength() getter.  Returns the service length of the current record.
+     */
+    public int getServiceLength()
+    {
+        return window.getInt(offset + SERVICE_LENGTH);
+    }
+
+    /**
+     * getJobID() getter.  Returns the job ID of the current record.
+     */
+    public int getJobID()
+    {
+        return window.getInt(offset + JOB_ID);
+    }
+
+    /**
+     * getType() getter.  Returns the job type of the current record.
+     */
+    public RRJob.jobType getType()
+    {
+        return TYPES[window.getInt(offset + TYPE)];
+    }
+
+    /**
+     * getRecordsRead() getter.
+     * Returns the records next() has moved to, the current one included.
+     */
+    public long getRecordsRead()
+    {
+        return next;
+    }
+
+    /**
+     * skipTo() method.
+     * Moves to where next() would be after records calls on a new reader,
+     * mapping the window of the record it lands on.  Returns false if the
+     * trace has fewer records.
+     */
+    public boolean skipTo(long records)
+    {
+        if (records < 0 || records > recordCount)
+            return false;
+        if (records == 0)
+        {
+            next = 0;
+            window = null;
+            return true;
+        }
+        map(records - 1);
+        offset = 0;
+        next = records;
+        return true;
+    }
+
+    /**
+     * getRecordCount() getter.  Returns the number of records in the trace.
+     */
+    public long getRecordCount()
+    {
+        return recordCount;
+    }
+
+    /**
+     * close() method.  Closes the file.  The last window stays mapped until
+     * it is garbage collected.
+     */
+    public void close() throws IOException
+    {
+        channel.close();
+    }
+
+    // Map the window that starts at record first.
+    private void map(long first)
+    {
+        long records = Math.min(windowRecords, recordCount - first);
+        try
+        {
+            window = channel.map(FileChannel.MapMode.READ_ONLY,
+                    HEADER_SIZE + first * RECORD_SIZE, records * RECORD_SIZE);
+        }
+        catch(IOException e)
+        {
+            throw new UncheckedIOException(e);
+        }
+        window.order(ByteOrder.LITTLE_ENDIAN);
+        windowStart = first;
+    }
+}
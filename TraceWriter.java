@@ -0,0 +1,147 @@
+/* TraceWriter.java
+ * Writes a binary job trace in the format TraceReader describes.
+ * Records are gathered in a direct buffer and written through a
+ * FileChannel, and the header is filled in with the record count when
+ * the writer is closed.
+ */
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+public class TraceWriter implements Closeable
+{
+    // Records gathered before each write.
+    private static final int BUFFER_RECORDS = 4096;
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer
+            .allocateDirect(BUFFER_RECORDS * TraceReader.RECORD_SIZE)
+            .order(ByteOrder.LITTLE_ENDIAN);
+    private long recordCount = 0;
+
+    /**
+     * TraceWriter() constructor.  Creates or replaces a trace file.
+     */
+    public TraceWriter(String file) throws IOException
+    {
+        channel = FileChannel.open(Paths.get(file), StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+        channel.position(TraceReader.HEADER_SIZE);
+    }
+
+    /**
+     * add() method.  Appends a job to the trace.
+     */
+    public void add(long arrivalTime, int serviceLength, int jobID,
+            RRJob.jobType type) throws IOException
+    {
+        if (!buffer.hasRemaining())
+            flush();
+        buffer.putLong(arrivalTime);
+        buffer.putInt(serviceLength);
+        buffer.putInt(jobID);
+        buffer.putInt(type.ordinal());
+        recordCount++;
+    }
+
+    /**
+     * close() method.  Writes the remaining records and the header.
+     */
+    public void close() throws IOException
+    {
+        try
+        {
+            flush();
+            ByteBuffer header = ByteBuffer.allocate(TraceReader.HEADER_SIZE)
+                    .order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(TraceReader.MAGIC);
+            header.putInt(TraceReader.VERSION);
+            header.putLong(recordCount);
+            header.flip();
+            while (header.hasRemaining())
+                channel.write(header, header.position());
+        }
+        finally
+        {
+            channel.close();
+        }
+    }
+
+    private void flush() throws IOException
+    {
+        buffer.flip();
+        while (buffer.hasRemaining())
+            channel.write(buffer);
+        buffer.clear();
+    }
+
+    /**
+     * main() method.
+     * Writes a trace of jobs drawn by a WorkloadGenerator, from the
+     * producers and distributions of RRScheduler's settings with any
+     * key=value changes given:
+     *   TraceWriter file jobs [key=value...]
+     * The producers' jobs are merged in arrival order.
+     */
+    public static void main(String[] args)
+    {
+        if (args.length < 2)
+        {
+            System.err.println("usage: TraceWriter file jobs [key=value...]");
+            System.exit(1);
+        }
+
+        try
+        {
+            SimulationConfig config = SimulationConfig.ROUND_ROBIN;
+            for(int i = 2; i < args.length; i++)
+            {
+                int eq = args[i].indexOf('=');
+                if (eq < 1)
+                    throw new IllegalArgumentException("Expected key=value: " + args[i]);
+                config = config.with(args[i].substring(0, eq), args[i].substring(eq + 1));
+            }
+            long jobs = Long.parseLong(args[1]);
+
+            // A trace is in time units before the debug factor.
+            config = config.with("debugFactor", 1);
+
+            // The next arrival of each producer.  Ties go to the producer
+            // that has waited longest, as in the event engines.
+            int numProducers = config.getProducers();
+            WorkloadGenerator workload = new WorkloadGenerator(config, numProducers);
+            long[] nextTime = new long[numProducers];
+            long[] nextSequence = new long[numProducers];
+            for(int p = 0; p < numProducers; p++)
+                nextSequence[p] = p;
+            long sequence = numProducers;
+
+            try (TraceWriter out = new TraceWriter(args[0]))
+            {
+                for(long i = 0; i < jobs; i++)
+                {
+                    int p = 0;
+                    for(int q = 1; q < numProducers; q++)
+                        if (nextTime[q] < nextTime[p] || (nextTime[q] == nextTime[p]
+                                && nextSequence[q] < nextSequence[p]))
+                            p = q;
+
+                    out.add(nextTime[p], workload.nextServiceLength(p), (int) i,
+                            p % 2 == 0 ? RRJob.jobType.ShortJob : RRJob.jobType.LongJob);
+                    nextTime[p] += workload.nextGap(p);
+                    nextSequence[p] = sequence++;
+                }
+            }
+        }
+        catch(IOException | IllegalArgumentException e)
+        {
+            System.err.println("TraceWriter: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+}
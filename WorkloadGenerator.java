@@ -0,0 +1,118 @@
+/* WorkloadGenerator.java
+ * Draws the service lengths of new jobs and the gaps between them from
+ * the distributions of a SimulationConfig.  Even producers create short
+ * jobs and odd producers long ones, as in Simulation.  Each producer has
+ * a SplittableRandom stream of its own, split in producer order from one
+ * stream seeded by the config's seed, so producers never contend for a
+ * generator, a draw allocates nothing, and the same seed gives the same
+ * jobs bit for bit.  A producer's stream must only be used by one thread
+ * at a time.  SplittableRandom does not show its state, so a checkpoint
+ * saves the number of draws from each stream instead, and restoring one
+ * draws as many again from fresh streams.
+ */
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.SplittableRandom;
+
+public class WorkloadGenerator
+{
+    private final SplittableRandom[] streams;
+
+    // Service lengths and gaps each producer has drawn.
+    private final long[] serviceDraws;
+    private final long[] gapDraws;
+    private final Distribution shortServiceTime;
+    private final Distribution longServiceTime;
+    private final Distribution shortJobFreq;
+    private final Distribution longJobFreq;
+    private final int debugFactor;
+
+    /**
+     * WorkloadGenerator() constructor.
+     * Creates the streams of numProducers producers for config.
+     */
+    public WorkloadGenerator(SimulationConfig config, int numProducers)
+    {
+        shortServiceTime = config.getShortServiceTime();
+        longServiceTime = config.getLongServiceTime();
+        shortJobFreq = config.getShortJobFreq();
+        longJobFreq = config.getLongJobFreq();
+        debugFactor = config.getDebugFactor();
+
+        SplittableRandom root = new SplittableRandom(config.getSeed());
+        streams = new SplittableRandom[numProducers];
+        for(int i = 0; i < numProducers; i++)
+            streams[i] = root.split();
+        serviceDraws = new long[numProducers];
+        gapDraws = new long[numProducers];
+    }
+
+    /**
+     * nextServiceLength() method.
+     * Returns the service length of producer producerID's next job, in
+     * time units multiplied by the debug factor.  At least 1.
+     */
+    public int nextServiceLength(int producerID)
+    {
+        Distribution d = producerID % 2 == 0 ? shortServiceTime : longServiceTime;
+        serviceDraws[producerID]++;
+        double t = Math.rint(d.sample(streams[producerID]) * debugFactor);
+        return t < 1 ? 1 : (int) Math.min(t, Integer.MAX_VALUE);
+    }
+
+    /**
+     * nextGap() method.
+     * Returns how long producer producerID waits after its next job, in
+     * time units multiplied by the debug factor.
+     */
+    public long nextGap(int producerID)
+    {
+        Distribution d = producerID % 2 == 0 ? shortJobFreq : longJobFreq;
+        gapDraws[producerID]++;
+        return (long) Math.rint(d.sample(streams[producerID]) * debugFactor);
+    }
+
+    /**
+     * save() method.  Writes the draws each producer has made to out.
+     */
+    public void save(DataOutput out) throws IOException
+    {
+        out.writeInt(streams.length);
+        for(int i = 0; i < streams.length; i++)
+        {
+            out.writeLong(serviceDraws[i]);
+            out.writeLong(gapDraws[i]);
+        }
+    }
+
+    /**
+     * restore() method.
+     * Moves the fresh streams of a new generator to where those save()
+     * wrote to in were, by making the same draws.  Every producer draws
+     * the service length of a job and then the gap after it, so the draws
+     * are made in that order.
+     */
+    public void restore(DataInput in) throws IOException
+    {
+        if (in.readInt() != streams.length)
+            throw new IOException("Checkpoint of another number of producers");
+        for(int i = 0; i < streams.length; i++)
+        {
+            long services = in.readLong();
+            long gaps = in.readLong();
+            if (serviceDraws[i] != 0 || gapDraws[i] != 0 || services < 0 || gaps < 0
+                    || gaps > services || services > gaps + 1)
+                throw new IOException("Cannot replay " + services + " service and "
+                        + gaps + " gap draws of producer " + i);
+            while(gapDraws[i] < gaps)
+            {
+                nextServiceLength(i);
+                nextGap(i);
+            }
+            if (serviceDraws[i] < services)
+                nextServiceLength(i);
+        }
+    }
+}
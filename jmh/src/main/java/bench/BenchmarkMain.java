@@ -0,0 +1,69 @@
+/* BenchmarkMain.java
+ * Runs the benchmarks once per thread count and writes one JMH JSON
+ * result file per thread count, so runs on different commits can be
+ * compared with any JMH result viewer or a script.
+ *
+ * Usage: java -jar benchmarks.jar [threadCounts] [resultDir] [benchmarkRegex]
+ *            [JMH options]
+ *
+ * Everything from the first argument that starts with '-' on is passed to
+ * JMH as on its own command line, such as -wi 3 -i 5 -f 1.  A -rf or -rff
+ * given there takes the place of the JSON file per thread count.
+ */
+
+package bench;
+
+import java.io.File;
+import java.util.Arrays;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+public class BenchmarkMain
+{
+    public static void main(String[] args) throws RunnerException
+    {
+        // The positional arguments, and then the options for JMH.
+        int positional = 0;
+        while(positional < args.length && positional < 3
+                && !args[positional].startsWith("-"))
+            positional++;
+        CommandLineOptions jmhOptions;
+        try
+        {
+            jmhOptions = new CommandLineOptions(
+                    Arrays.copyOfRange(args, positional, args.length));
+        }
+        catch(CommandLineOptionException e)
+        {
+            System.err.println("BenchmarkMain: " + e.getMessage());
+            System.exit(1);
+            return;
+        }
+
+        String threadCounts = positional > 0 ? args[0] : "1,2,4,8";
+        File resultDir = new File(positional > 1 ? args[1] : "target/jmh-results");
+        String include = positional > 2 ? args[2] : "bench\\..*";
+        resultDir.mkdirs();
+
+        for(String count : threadCounts.split(","))
+        {
+            int threads = Integer.parseInt(count.trim());
+            ChainedOptionsBuilder options = new OptionsBuilder()
+                    .parent(jmhOptions)
+                    .threads(threads);
+            if (positional > 2 || jmhOptions.getIncludes().isEmpty())
+                options.include(include);
+            if (!jmhOptions.getResult().hasValue()
+                    && !jmhOptions.getResultFormat().hasValue())
+                options.resultFormat(ResultFormatType.JSON)
+                        .result(new File(resultDir, "threads-" + threads + ".json").getPath());
+            new Runner(options.build()).run();
+        }
+    }
+}
@@ -0,0 +1,112 @@
+/* BufferBench.java
+ * One job through a round-robin ready queue: reserve room, publish(),
+ * then take(), for each JobBuffer implementation.  roundTripBatch moves
+ * BATCH jobs through the batch versions, so the two compare per job once
+ * the batch time is divided by BATCH.  The shared buffer is mapped from a
+ * file in the temporary directory, /dev/shm if there is one.
+ */
+
+package bench;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Array;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BufferBench
+{
+    // The default bufferSize and consumers of RRScheduler.
+    private static final int BUFFER_SIZE = 10;
+    private static final int NUM_CONSUMERS = 2;
+    private static final int BATCH = 8;
+
+    @Param({"locked", "ring", "shared"})
+    public String buffer;
+
+    private Object jobBuffer;
+    private File sharedFile;
+
+    @State(Scope.Thread)
+    public static class ThreadJob
+    {
+        Object job;
+        Object[] batch;
+        Object[] taken;
+
+        @Setup
+        public void setup() throws Throwable
+        {
+            // RRJob arrays, as the simulation passes, since the shared
+            // buffer is a JobBuffer of RRJobs only.
+            job = (Object) Hooks.NEW_RR_JOB.invokeExact(Hooks.SHORT_JOB, 0);
+            batch = (Object[]) Array.newInstance(job.getClass(), BATCH);
+            taken = (Object[]) Array.newInstance(job.getClass(), BATCH);
+            for(int i = 0; i < BATCH; i++)
+                batch[i] = (Object) Hooks.NEW_RR_JOB.invokeExact(Hooks.SHORT_JOB, i);
+        }
+    }
+
+    @Setup
+    public void setup() throws Throwable
+    {
+        if (buffer.equals("ring"))
+            jobBuffer = (Object) Hooks.NEW_RING_BUFFER.invokeExact(BUFFER_SIZE,
+                    NUM_CONSUMERS);
+        else if (buffer.equals("shared"))
+        {
+            File shm = new File("/dev/shm");
+            sharedFile = File.createTempFile("bufferbench", ".queue",
+                    shm.isDirectory() ? shm : null);
+            sharedFile.delete();
+            jobBuffer = (Object) Hooks.OPEN_SHARED_BUFFER.invokeExact(
+                    (Object) sharedFile.getPath(), BUFFER_SIZE, NUM_CONSUMERS);
+        }
+        else
+            jobBuffer = (Object) Hooks.NEW_LOCKED_BUFFER.invokeExact(BUFFER_SIZE);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException
+    {
+        if (sharedFile != null)
+            Files.deleteIfExists(sharedFile.toPath());
+    }
+
+    @Benchmark
+    public Object roundTrip(ThreadJob t) throws Throwable
+    {
+        Hooks.RESERVE.invokeExact(jobBuffer);
+        Hooks.PUBLISH.invokeExact(jobBuffer, t.job);
+        return (Object) Hooks.TAKE.invokeExact(jobBuffer);
+    }
+
+    @Benchmark
+    public Object roundTripBatch(ThreadJob t) throws Throwable
+    {
+        Hooks.RESERVE_N.invokeExact(jobBuffer, BATCH);
+        Hooks.PUBLISH_ALL.invokeExact(jobBuffer, (Object) t.batch, BATCH);
+        for(int n = 0; n < BATCH; )
+            n += (int) Hooks.TAKE_BATCH.invokeExact(jobBuffer, (Object) t.taken, BATCH - n);
+        return t.taken[0];
+    }
+}
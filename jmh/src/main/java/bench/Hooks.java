@@ -0,0 +1,156 @@
+/* Hooks.java
+ * Method handles into the simulator classes.  The simulator lives in the
+ * default package, which a named package cannot import, and JMH does not
+ * accept benchmark classes in the default package.  Handles held in static
+ * final fields are constants to the JIT, so calls through them inline just
+ * like direct calls.  Every reference type is erased to Object.
+ */
+
+package bench;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+
+final class Hooks
+{
+    // Semaphore(int), Pacquire(), Vrelease()
+    static final MethodHandle NEW_SEMAPHORE;
+    static final MethodHandle P_ACQUIRE;
+    static final MethodHandle V_RELEASE;
+
+    // RRScheduler(int, boolean), OSScheduler()
+    static final MethodHandle NEW_RR_SCHEDULER;
+    static final MethodHandle NEW_OS_SCHEDULER;
+
+    // SimulationConfig.ROUND_ROBIN.with(String, Object),
+    // Simulation(SimulationConfig), Simulation.updateStats(RRJob, int)
+    static final MethodHandle ROUND_ROBIN_WITH;
+    static final MethodHandle NEW_SIMULATION;
+    static final MethodHandle UPDATE_STATS;
+
+    // JobBuffer.reserve(), publish(), take(),
+    // LockedJobBuffer(int), RingJobBuffer(int, int)
+    static final MethodHandle RESERVE;
+    static final MethodHandle PUBLISH;
+    static final MethodHandle TAKE;
+    static final MethodHandle NEW_LOCKED_BUFFER;
+
+    // JobBuffer.reserve(int), publishAll(), take(Object[], int)
+    static final MethodHandle RESERVE_N;
+    static final MethodHandle PUBLISH_ALL;
+    static final MethodHandle TAKE_BATCH;
+    static final MethodHandle NEW_RING_BUFFER;
+
+    // SharedJobBuffer.open(String, int, int)
+    static final MethodHandle OPEN_SHARED_BUFFER;
+
+    // RRJob(jobType, int), RRJob(jobType, int, long) and its setters
+    static final MethodHandle NEW_RR_JOB;
+    static final MethodHandle NEW_RR_JOB_AT;
+    static final MethodHandle SET_SERVICE_LENGTH;
+    static final MethodHandle SET_SERVICED_TIME;
+    static final MethodHandle SET_COMPLETION_TIME;
+
+    // RRJob.jobType.ShortJob and RRJob.jobType.LongJob
+    static final Object SHORT_JOB;
+    static final Object LONG_JOB;
+
+    static
+    {
+        try
+        {
+            Class<?> semaphore = Class.forName("Semaphore");
+            Class<?> rrScheduler = Class.forName("RRScheduler");
+            Class<?> osScheduler = Class.forName("OSScheduler");
+            Class<?> simulation = Class.forName("Simulation");
+            Class<?> simulationConfig = Class.forName("SimulationConfig");
+            Class<?> jobBuffer = Class.forName("JobBuffer");
+            Class<?> rrJob = Class.forName("RRJob");
+            Class<?> jobType = Class.forName("RRJob$jobType");
+
+            NEW_SEMAPHORE = constructor(semaphore, int.class);
+            P_ACQUIRE = method(semaphore, "Pacquire", void.class);
+            V_RELEASE = method(semaphore, "Vrelease", void.class);
+
+            NEW_RR_SCHEDULER = constructor(rrScheduler, int.class, boolean.class);
+            NEW_OS_SCHEDULER = constructor(osScheduler);
+
+            ROUND_ROBIN_WITH = method(simulationConfig, "with", simulationConfig,
+                    String.class, Object.class).bindTo(
+                    simulationConfig.getField("ROUND_ROBIN").get(null));
+            NEW_SIMULATION = constructor(simulation, simulationConfig);
+            UPDATE_STATS = method(simulation, "updateStats", void.class, rrJob,
+                    int.class);
+
+            RESERVE = method(jobBuffer, "reserve", void.class);
+            PUBLISH = method(jobBuffer, "publish", void.class, Object.class);
+            TAKE = method(jobBuffer, "take", Object.class);
+            RESERVE_N = method(jobBuffer, "reserve", void.class, int.class);
+            PUBLISH_ALL = method(jobBuffer, "publishAll", void.class, Object[].class,
+                    int.class);
+            TAKE_BATCH = method(jobBuffer, "take", int.class, Object[].class, int.class);
+            NEW_LOCKED_BUFFER = constructor(Class.forName("LockedJobBuffer"), int.class);
+            NEW_RING_BUFFER = constructor(Class.forName("RingJobBuffer"),
+                    int.class, int.class);
+            Class<?> sharedJobBuffer = Class.forName("SharedJobBuffer");
+            OPEN_SHARED_BUFFER = erase(lookup(sharedJobBuffer).findStatic(sharedJobBuffer,
+                    "open", MethodType.methodType(sharedJobBuffer, String.class,
+                    int.class, int.class)));
+
+            NEW_RR_JOB = constructor(rrJob, jobType, int.class);
+            NEW_RR_JOB_AT = constructor(rrJob, jobType, int.class, long.class);
+            SET_SERVICE_LENGTH = method(rrJob, "setServiceLength", void.class, int.class);
+            SET_SERVICED_TIME = method(rrJob, "setServicedTime", void.class, long.class);
+            SET_COMPLETION_TIME = method(rrJob, "setCompletionTime", void.class, long.class);
+
+            SHORT_JOB = jobType.getEnumConstants()[0];
+            LONG_JOB = jobType.getEnumConstants()[1];
+        }
+        catch(ReflectiveOperationException e)
+        {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private Hooks()
+    {
+    }
+
+    /**
+     * quiet() method.  Discards standard output, so the statistics each
+     * simulation prints do not flood the benchmark log.
+     */
+    static void quiet()
+    {
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+    }
+
+    private static MethodHandles.Lookup lookup(Class<?> c)
+            throws IllegalAccessException
+    {
+        return MethodHandles.privateLookupIn(c, MethodHandles.lookup());
+    }
+
+    private static MethodHandle constructor(Class<?> c, Class<?>... params)
+            throws ReflectiveOperationException
+    {
+        return erase(lookup(c).findConstructor(c,
+                MethodType.methodType(void.class, params)));
+    }
+
+    private static MethodHandle method(Class<?> c, String name,
+            Class<?> returnType, Class<?>... params)
+            throws ReflectiveOperationException
+    {
+        return erase(lookup(c).findVirtual(c, name,
+                MethodType.methodType(returnType, params)));
+    }
+
+    private static MethodHandle erase(MethodHandle handle)
+    {
+        return handle.asType(handle.type().erase());
+    }
+}
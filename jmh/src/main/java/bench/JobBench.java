@@ -0,0 +1,73 @@
+/* JobBench.java
+ * RRJob allocation as the producers do it, and updateStats() on one
+ * Simulation shared by all benchmark threads, as the consumers share it.
+ * The Simulation has a processor for each benchmark thread, and each
+ * thread records as its own processor.
+ */
+
+package bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.BenchmarkParams;
+import org.openjdk.jmh.infra.ThreadParams;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JobBench
+{
+    private Object simulation;
+
+    @State(Scope.Thread)
+    public static class ThreadJob
+    {
+        int nextID;
+        int processorID;
+        Object job;
+
+        @Setup
+        public void setup(ThreadParams params) throws Throwable
+        {
+            processorID = params.getThreadIndex();
+            job = (Object) Hooks.NEW_RR_JOB_AT.invokeExact(Hooks.LONG_JOB, 0, 100L);
+            Hooks.SET_SERVICED_TIME.invokeExact(job, 130L);
+            Hooks.SET_COMPLETION_TIME.invokeExact(job, 138L);
+        }
+    }
+
+    @Setup
+    public void setup(BenchmarkParams params) throws Throwable
+    {
+        Object config = (Object) Hooks.ROUND_ROBIN_WITH.invokeExact((Object) "consumers",
+                (Object) params.getThreads());
+        simulation = (Object) Hooks.NEW_SIMULATION.invokeExact(config);
+    }
+
+    @Benchmark
+    public Object allocateJob(ThreadJob t) throws Throwable
+    {
+        Object j = (Object) Hooks.NEW_RR_JOB.invokeExact(Hooks.SHORT_JOB, t.nextID++);
+        Hooks.SET_SERVICE_LENGTH.invokeExact(j, 5);
+        return j;
+    }
+
+    @Benchmark
+    public void updateStats(ThreadJob t) throws Throwable
+    {
+        Hooks.UPDATE_STATS.invokeExact(simulation, t.job, t.processorID);
+    }
+}
@@ -0,0 +1,65 @@
+/* SchedulerBench.java
+ * End-to-end jobs per second.  Each invocation is a complete simulation:
+ * RRScheduler on the discrete-event engine, and the threaded RRScheduler
+ * and OSScheduler, whose figures are bound by their sleeps.
+ */
+
+package bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+public class SchedulerBench
+{
+    // Jobs per discrete-event run, and SIMULATION_LENGTH of the threaded runs.
+    private static final int EVENT_JOBS = 100000;
+    private static final int THREADED_JOBS = 50;
+
+    @Setup
+    public void setup()
+    {
+        Hooks.quiet();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(EVENT_JOBS)
+    @Warmup(iterations = 3, time = 1)
+    @Measurement(iterations = 5, time = 1)
+    public Object rrEventEngine() throws Throwable
+    {
+        return (Object) Hooks.NEW_RR_SCHEDULER.invokeExact(EVENT_JOBS, true);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(THREADED_JOBS)
+    @Warmup(iterations = 1, time = 1)
+    @Measurement(iterations = 3, time = 1)
+    public Object rrThreaded() throws Throwable
+    {
+        return (Object) Hooks.NEW_RR_SCHEDULER.invokeExact(THREADED_JOBS, false);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(THREADED_JOBS)
+    @Warmup(iterations = 1, time = 1)
+    @Measurement(iterations = 3, time = 1)
+    public Object osThreaded() throws Throwable
+    {
+        return (Object) Hooks.NEW_OS_SCHEDULER.invokeExact();
+    }
+}
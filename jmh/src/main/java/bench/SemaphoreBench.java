@@ -0,0 +1,48 @@
+/* SemaphoreBench.java
+ * Pacquire()/Vrelease() pairs on one shared Semaphore.  With a single
+ * permit every thread contends for it; with more permits, up to that
+ * many threads pass at once.
+ */
+
+package bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SemaphoreBench
+{
+    @Param({"1", "4"})
+    public int permits;
+
+    private Object semaphore;
+
+    @Setup
+    public void setup() throws Throwable
+    {
+        semaphore = (Object) Hooks.NEW_SEMAPHORE.invokeExact(permits);
+    }
+
+    @Benchmark
+    public void acquireRelease() throws Throwable
+    {
+        Hooks.P_ACQUIRE.invokeExact(semaphore);
+        Hooks.V_RELEASE.invokeExact(semaphore);
+    }
+}
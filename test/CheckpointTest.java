@@ -0,0 +1,91 @@
+/* CheckpointTest.java
+ * A run of the compact engine resumed from a snapshot ends with the same
+ * statistics, and reports the same intervals after the snapshot, as the
+ * same run left alone.
+ */
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class CheckpointTest
+{
+    // A run long enough for several snapshots, with Poisson arrivals that
+    // overload it now and then, CoDel shedding and processor caches, so
+    // the snapshot has to carry every kind of state.
+    private static final SimulationConfig RUN = SimulationConfig.ROUND_ROBIN
+            .with("engine", "Compact")
+            .with("jobs", 20000)
+            .with("consumers", 3)
+            .with("shortJobFreq", "exponential:3")
+            .with("longJobFreq", "exponential:30")
+            .with("overflow", "CoDel")
+            .with("affinity", true)
+            .with("interval", 500);
+
+    @TempDir
+    Path dir;
+
+    @Test
+    public void resumedRunMatchesUninterruptedRun()
+    {
+        String snapshot = dir.resolve("run.snapshot").toString();
+
+        List<IntervalReport> fullReports = new ArrayList<IntervalReport>();
+        Simulation full = new Simulation(RUN);
+        full.setIntervalListener(fullReports::add);
+        long fullTime = full.run();
+
+        Simulation checkpointed = new Simulation(RUN.with("checkpoint", snapshot)
+                .with("checkpointInterval", 15000));
+        checkpointed.setIntervalListener(r -> {});
+        assertEquals(fullTime, checkpointed.run());
+        assertTrue(new File(snapshot).length() > 0);
+
+        List<IntervalReport> resumedReports = new ArrayList<IntervalReport>();
+        Simulation resumed = new Simulation(RUN.with("resume", snapshot));
+        resumed.setIntervalListener(resumedReports::add);
+        assertEquals(fullTime, resumed.run());
+
+        // The resumed run starts part way through.
+        assertTrue(resumedReports.size() > 0);
+        assertTrue(resumedReports.size() < fullReports.size());
+        int skipped = fullReports.size() - resumedReports.size();
+        for(int i = 0; i < resumedReports.size(); i++)
+            assertEquals(fullReports.get(skipped + i).toString(),
+                    resumedReports.get(i).toString());
+
+        assertSameStatistics(full.getStatistics(), resumed.getStatistics());
+        assertEquals(full.getJobsShed(), resumed.getJobsShed());
+    }
+
+    // Every counter and histogram of two sets of statistics agree.
+    private static void assertSameStatistics(StatShard expected, StatShard actual)
+    {
+        for(int c = StatShard.SHORT_COMPLETED; c <= StatShard.MIGRATION_COST; c++)
+            assertEquals(expected.get(c), actual.get(c), "counter " + c);
+        assertSameHistogram(expected.shortWaitTime, actual.shortWaitTime);
+        assertSameHistogram(expected.longWaitTime, actual.longWaitTime);
+        assertSameHistogram(expected.shortServiceTime, actual.shortServiceTime);
+        assertSameHistogram(expected.longServiceTime, actual.longServiceTime);
+        assertSameHistogram(expected.shortTurnaroundTime, actual.shortTurnaroundTime);
+        assertSameHistogram(expected.longTurnaroundTime, actual.longTurnaroundTime);
+    }
+
+    private static void assertSameHistogram(LatencyHistogram expected,
+            LatencyHistogram actual)
+    {
+        assertEquals(expected.getCount(), actual.getCount());
+        assertEquals(expected.getMin(), actual.getMin());
+        assertEquals(expected.getMax(), actual.getMax());
+        assertEquals(expected.getMean(), actual.getMean());
+        assertEquals(expected.toPercentileString(1), actual.toPercentileString(1));
+    }
+}
@@ -0,0 +1,114 @@
+/* JobResultsTest.java
+ * What JobResultsWriter writes, JobResultsReader reads back: every column
+ * of every job, across blocks, Writers and the reader's mapped windows.
+ */
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class JobResultsTest
+{
+    private static final JobResultsWriter.column[] COLUMNS =
+            JobResultsWriter.column.values();
+
+    // More jobs than fit in one block of a Writer.
+    private static final int JOBS = 40000;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    public void readsBackWhatWasWritten() throws IOException
+    {
+        String file = dir.resolve("results").toString();
+        long[][] expected = writeJobs(file, 2);
+
+        for(long window : new long[] {1L << 30, 4096})
+        {
+            try (JobResultsReader in = new JobResultsReader(file, window))
+            {
+                // The Writers' blocks are interleaved, so sort by job ID,
+                // which the jobs were given in order.
+                long[][] actual = new long[COLUMNS.length][];
+                for(JobResultsWriter.column c : COLUMNS)
+                {
+                    long[] values = new long[JOBS];
+                    int[] n = {0};
+                    assertEquals(JOBS, in.scan(c, v -> values[n[0]++] = v));
+                    actual[c.ordinal()] = values;
+                }
+                long[][] sorted = new long[COLUMNS.length][JOBS];
+                long[] ids = actual[JobResultsWriter.column.JobID.ordinal()];
+                for(int i = 0; i < JOBS; i++)
+                    for(int c = 0; c < COLUMNS.length; c++)
+                        sorted[c][(int) ids[i]] = actual[c][i];
+
+                for(JobResultsWriter.column c : COLUMNS)
+                    assertArrayEquals(expected[c.ordinal()], sorted[c.ordinal()],
+                            c.toString());
+            }
+        }
+    }
+
+    @Test
+    public void emptyFileHasNoBlocks() throws IOException
+    {
+        String file = dir.resolve("empty").toString();
+        new JobResultsWriter(file).close();
+        try (JobResultsReader in = new JobResultsReader(file))
+        {
+            assertFalse(in.nextBlock());
+        }
+    }
+
+    @Test
+    public void rejectsOtherFiles() throws IOException
+    {
+        Path file = dir.resolve("other");
+        Files.write(file, new byte[] {1, 2, 3, 4, 5, 6, 7, 8});
+        assertThrows(IOException.class, () -> new JobResultsReader(file.toString()));
+    }
+
+    // Write JOBS jobs to file, job i by Writer i % writers, and return
+    // each column's values by job ID.
+    private static long[][] writeJobs(String file, int writers) throws IOException
+    {
+        long[][] expected = new long[COLUMNS.length][JOBS];
+        Random random = new Random(1);
+        try (JobResultsWriter out = new JobResultsWriter(file))
+        {
+            JobResultsWriter.Writer[] w = new JobResultsWriter.Writer[writers];
+            for(int k = 0; k < writers; k++)
+                w[k] = out.newWriter();
+
+            long time = 0;
+            for(int i = 0; i < JOBS; i++)
+            {
+                // Mostly in order, with times that go back now and then and
+                // an occasional very large value.
+                time += random.nextInt(100) - 10;
+                long service = random.nextInt(10) == 0 ? Long.MAX_VALUE / 4
+                        : random.nextInt(50);
+                RRJob.jobType type = i % 3 == 0 ? RRJob.jobType.LongJob
+                        : RRJob.jobType.ShortJob;
+                long[] job = {i, type.ordinal(), time, time + 5, time + 5 + service,
+                        -random.nextInt(3), service, random.nextInt(4), 1 + random.nextInt(3)};
+                for(int c = 0; c < COLUMNS.length; c++)
+                    expected[c][i] = job[c];
+                w[i % writers].add(i, type, job[2], job[3], job[4], job[5], job[6],
+                        (int) job[7], (int) job[8]);
+            }
+        }
+        return expected;
+    }
+}
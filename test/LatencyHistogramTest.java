@@ -0,0 +1,113 @@
+/* LatencyHistogramTest.java
+ * The bucket math of LatencyHistogram: small values exactly, the rest to
+ * within a bucket, with count, min, max and mean kept exactly through
+ * add() and save() / restore().
+ */
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+import org.junit.jupiter.api.Test;
+
+public class LatencyHistogramTest
+{
+    @Test
+    public void smallValuesAreExact()
+    {
+        for(long v = 0; v < 32; v++)
+        {
+            LatencyHistogram h = new LatencyHistogram();
+            h.record(v);
+            h.record(v + 100000);
+            assertEquals(v, h.getValueAtPercentile(50));
+        }
+    }
+
+    @Test
+    public void valuesFallWithinTheirBucket()
+    {
+        for(boolean singleWriter : new boolean[] {false, true})
+        {
+            // Powers of two and their neighbours, where buckets begin and end.
+            for(int shift = 5; shift < 62; shift++)
+            {
+                for(long v : new long[] {(1L << shift) - 1, 1L << shift,
+                        (1L << shift) + 1, (3L << shift) / 2})
+                {
+                    LatencyHistogram h = new LatencyHistogram(singleWriter);
+                    h.record(v);
+                    h.record(Long.MAX_VALUE / 2);
+                    long p = h.getValueAtPercentile(50);
+                    assertTrue(p >= v && p - v <= v / 32, v + " read back as " + p);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void keepsCountMinMaxMean()
+    {
+        LatencyHistogram h = new LatencyHistogram();
+        assertEquals(0, h.getCount());
+        assertEquals(Long.MAX_VALUE, h.getMin());
+        assertEquals(0, h.getValueAtPercentile(50));
+
+        for(long v = 1; v <= 1000; v++)
+            h.record(v * 7);
+        h.record(-5);
+        assertEquals(1001, h.getCount());
+        assertEquals(0, h.getMin());
+        assertEquals(7000, h.getMax());
+        assertEquals(7.0 * 1000 * 1001 / 2 / 1001, h.getMean(), 1e-9);
+        assertEquals(7000, h.getValueAtPercentile(100));
+        long p50 = h.getValueAtPercentile(50);
+        assertTrue(p50 >= 3500 && p50 <= 3500 * 33 / 32, "p50 " + p50);
+    }
+
+    @Test
+    public void addsAndRestores() throws IOException
+    {
+        LatencyHistogram a = new LatencyHistogram(true);
+        LatencyHistogram b = new LatencyHistogram(true);
+        LatencyHistogram both = new LatencyHistogram();
+        for(long v = 0; v < 5000; v++)
+        {
+            a.record(v * v);
+            b.record(v * 13 + 40);
+            both.record(v * v);
+            both.record(v * 13 + 40);
+        }
+        LatencyHistogram sum = new LatencyHistogram();
+        sum.add(a);
+        sum.add(b);
+        assertSameValues(both, sum);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        sum.save(new DataOutputStream(bytes));
+        LatencyHistogram restored = new LatencyHistogram();
+        restored.record(123456);
+        restored.restore(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+        assertSameValues(both, restored);
+
+        restored.reset();
+        assertEquals(0, restored.getCount());
+        assertEquals(Long.MAX_VALUE, restored.getMin());
+    }
+
+    // Two histograms hold the same values, to the precision of a bucket.
+    private static void assertSameValues(LatencyHistogram expected, LatencyHistogram actual)
+    {
+        assertEquals(expected.getCount(), actual.getCount());
+        assertEquals(expected.getMin(), actual.getMin());
+        assertEquals(expected.getMax(), actual.getMax());
+        assertEquals(expected.getMean(), actual.getMean());
+        for(double p : new double[] {0, 10, 50, 90, 99, 99.9, 100})
+            assertEquals(expected.getValueAtPercentile(p), actual.getValueAtPercentile(p));
+    }
+}
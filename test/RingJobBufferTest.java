@@ -0,0 +1,182 @@
+/* RingJobBufferTest.java
+ * Producers and consumers hammering a small RingJobBuffer at once, singly
+ * and in batches, with every job requeued once: every job comes out
+ * exactly twice and the buffer ends empty, with all its room given back.
+ */
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+public class RingJobBufferTest
+{
+    static final int PRODUCERS = 4;
+    static final int CONSUMERS = 4;
+    static final int JOBS_EACH = 50000;
+    static final int BATCH = 8;
+
+    // Far fewer slots than jobs, so the ring laps many times and both
+    // sides keep finding it full or empty.
+    static final int CAPACITY = 64;
+    static final int HEADROOM = CONSUMERS * BATCH;
+
+    @Test
+    public void keepsOrderAndCapacity() throws InterruptedException
+    {
+        RingJobBuffer<RRJob> buffer = new RingJobBuffer<RRJob>(2, 1);
+        RRJob a = new RRJob(RRJob.jobType.ShortJob, 0);
+        RRJob b = new RRJob(RRJob.jobType.ShortJob, 1);
+        assertTrue(buffer.tryReserve());
+        buffer.publish(a);
+        assertTrue(buffer.tryReserve());
+        buffer.publish(b);
+        assertFalse(buffer.tryReserve());
+        assertEquals(0, buffer.remainingCapacity());
+
+        // A requeued job goes to the tail, in the headroom.
+        assertSame(a, buffer.take());
+        buffer.requeue(a);
+        assertEquals(2, buffer.size());
+        assertSame(b, buffer.poll());
+        assertSame(a, buffer.poll());
+        assertNull(buffer.poll());
+        assertEquals(2, buffer.remainingCapacity());
+    }
+
+    @Test
+    @Timeout(60)
+    public void everyJobFinishesOnce() throws Exception
+    {
+        RingJobBuffer<RRJob> buffer = new RingJobBuffer<RRJob>(CAPACITY, HEADROOM);
+        conserve(buffer, buffer);
+        assertEquals(CAPACITY, buffer.remainingCapacity());
+    }
+
+    /**
+     * conserve() method.
+     * Runs PRODUCERS producers on in and CONSUMERS consumers on out, two
+     * views of one buffer, and checks every job is taken exactly twice,
+     * once before its requeue and once after, and none is left over.
+     * Even producers and consumers work a job at a time, odd ones in
+     * batches.
+     */
+    static void conserve(JobBuffer<RRJob> in, JobBuffer<RRJob> out) throws Exception
+    {
+        int jobs = PRODUCERS * JOBS_EACH;
+        AtomicIntegerArray taken = new AtomicIntegerArray(jobs);
+        AtomicLong finished = new AtomicLong();
+        ExecutorService threads = Executors.newFixedThreadPool(PRODUCERS + CONSUMERS);
+        List<Future<?>> producers = new ArrayList<Future<?>>();
+        List<Future<?>> consumers = new ArrayList<Future<?>>();
+        try
+        {
+            for(int c = 0; c < CONSUMERS; c++)
+            {
+                boolean batched = c % 2 == 1;
+                consumers.add(threads.submit(() -> consume(out, batched, taken, finished)));
+            }
+            for(int p = 0; p < PRODUCERS; p++)
+            {
+                int first = p * JOBS_EACH;
+                boolean batched = p % 2 == 1;
+                producers.add(threads.submit(() -> produce(in, first, batched)));
+            }
+            for(Future<?> f : producers)
+                f.get();
+            while (finished.get() < jobs)
+                Thread.sleep(1);
+
+            // One job that every consumer puts back as it stops.
+            in.reserve();
+            in.publish(new RRJob(RRJob.jobType.ShortJob, -1));
+            for(Future<?> f : consumers)
+                f.get();
+        }
+        finally
+        {
+            threads.shutdownNow();
+            threads.awaitTermination(10, TimeUnit.SECONDS);
+        }
+
+        for(int i = 0; i < jobs; i++)
+            assertEquals(2, taken.get(i), "job " + i);
+        assertEquals(-1, out.poll().jobID);
+        assertNull(out.poll());
+        assertEquals(0, out.size());
+    }
+
+    private static Void produce(JobBuffer<RRJob> in, int first, boolean batched)
+            throws InterruptedException
+    {
+        RRJob[] batch = new RRJob[BATCH];
+        for(int i = first; i < first + JOBS_EACH; )
+        {
+            if (!batched)
+            {
+                in.reserve();
+                in.publish(new RRJob(RRJob.jobType.ShortJob, i++));
+                continue;
+            }
+            int n = Math.min(BATCH, first + JOBS_EACH - i);
+            for(int k = 0; k < n; k++)
+                batch[k] = new RRJob(RRJob.jobType.ShortJob, i++);
+            in.reserve(n);
+            in.publishAll(batch, n);
+        }
+        return null;
+    }
+
+    private static Void consume(JobBuffer<RRJob> out, boolean batched,
+            AtomicIntegerArray taken, AtomicLong finished) throws InterruptedException
+    {
+        RRJob[] batch = new RRJob[BATCH];
+        RRJob[] again = new RRJob[BATCH];
+        while (true)
+        {
+            int n;
+            if (batched)
+                n = out.take(batch, BATCH);
+            else
+            {
+                batch[0] = out.take();
+                n = 1;
+            }
+
+            int requeued = 0;
+            boolean stop = false;
+            for(int k = 0; k < n; k++)
+            {
+                RRJob j = batch[k];
+                if (j.jobID < 0)
+                {
+                    again[requeued++] = j;
+                    stop = true;
+                }
+                else if (taken.incrementAndGet(j.jobID) == 1)
+                    again[requeued++] = j;
+                else
+                    finished.getAndIncrement();
+            }
+            if (batched)
+                out.requeueAll(again, requeued);
+            else if (requeued > 0)
+                out.requeue(again[0]);
+            if (stop)
+                return null;
+        }
+    }
+}
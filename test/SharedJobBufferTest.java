@@ -0,0 +1,62 @@
+/* SharedJobBufferTest.java
+ * Two SharedJobBuffers opened on one file, as two processes would, are
+ * one queue: a job published on one is taken from the other with every
+ * field, and producers on one and consumers on the other lose nothing.
+ */
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import org.junit.jupiter.api.io.TempDir;
+
+public class SharedJobBufferTest
+{
+    @TempDir
+    Path dir;
+
+    @Test
+    public void carriesEveryField() throws Exception
+    {
+        String file = dir.resolve("queue").toString();
+        SharedJobBuffer in = SharedJobBuffer.open(file, 4, 2);
+        // The second open finds the file laid out, and ignores its sizes.
+        SharedJobBuffer out = SharedJobBuffer.open(file, 100, 100);
+        assertEquals(in.getEpoch(), out.getEpoch());
+        assertEquals(0, in.nextJobID());
+        assertEquals(1, out.nextJobID());
+        assertEquals(4, out.remainingCapacity());
+
+        RRJob j = new RRJob(RRJob.jobType.LongJob, 42, 1234567L);
+        j.setServiceLength(17);
+        j.setProcessorID(3);
+        in.reserve();
+        in.publish(j);
+        assertEquals(1, out.size());
+
+        RRJob k = out.take();
+        assertEquals(42, k.jobID);
+        assertEquals(RRJob.jobType.LongJob, k.getType());
+        assertEquals(17, k.getServiceLength());
+        assertEquals(3, k.getProcessorID());
+        assertEquals(j.getGenerationTime(), k.getGenerationTime());
+        assertNull(in.poll());
+        assertEquals(4, in.remainingCapacity());
+    }
+
+    @Test
+    @Timeout(60)
+    public void everyJobFinishesOnce() throws Exception
+    {
+        String file = dir.resolve("queue").toString();
+        SharedJobBuffer in = SharedJobBuffer.open(file, RingJobBufferTest.CAPACITY,
+                RingJobBufferTest.HEADROOM);
+        SharedJobBuffer out = SharedJobBuffer.open(file, RingJobBufferTest.CAPACITY,
+                RingJobBufferTest.HEADROOM);
+        RingJobBufferTest.conserve(in, out);
+        assertEquals(RingJobBufferTest.CAPACITY, in.remainingCapacity());
+    }
+}
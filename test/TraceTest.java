@@ -0,0 +1,100 @@
+/* TraceTest.java
+ * What TraceWriter writes, TraceReader reads back, record by record and
+ * across its mapped windows, and skipTo() moves to any record.
+ */
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class TraceTest
+{
+    // More records than the writer buffers at once.
+    private static final int RECORDS = 10000;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    public void readsBackWhatWasWritten() throws IOException
+    {
+        String file = writeTrace();
+        for(int window : new int[] {RECORDS, 7, 1})
+        {
+            try (TraceReader in = new TraceReader(file, window))
+            {
+                assertEquals(RECORDS, in.getRecordCount());
+                for(int i = 0; i < RECORDS; i++)
+                {
+                    assertTrue(in.next());
+                    assertRecord(in, i);
+                    assertEquals(i + 1, in.getRecordsRead());
+                }
+                assertFalse(in.next());
+            }
+        }
+    }
+
+    @Test
+    public void skipsToARecord() throws IOException
+    {
+        String file = writeTrace();
+        try (TraceReader in = new TraceReader(file, 64))
+        {
+            assertTrue(in.skipTo(5000));
+            assertTrue(in.next());
+            assertRecord(in, 5000);
+            assertTrue(in.skipTo(RECORDS));
+            assertFalse(in.next());
+            assertFalse(in.skipTo(RECORDS + 1));
+        }
+    }
+
+    @Test
+    public void rejectsTruncatedTrace() throws IOException
+    {
+        Path file = Path.of(writeTrace());
+        byte[] bytes = Files.readAllBytes(file);
+        Files.write(file, java.util.Arrays.copyOf(bytes, bytes.length - 1));
+        assertThrows(IOException.class, () -> new TraceReader(file.toString()));
+    }
+
+    // Write a trace of RECORDS records, record i made from i.
+    private String writeTrace() throws IOException
+    {
+        String file = dir.resolve("trace").toString();
+        try (TraceWriter out = new TraceWriter(file))
+        {
+            for(int i = 0; i < RECORDS; i++)
+                out.add(arrivalTime(i), i % 97 + 1, i, type(i));
+        }
+        return file;
+    }
+
+    private static void assertRecord(TraceReader in, int i)
+    {
+        assertEquals(arrivalTime(i), in.getArrivalTime());
+        assertEquals(i % 97 + 1, in.getServiceLength());
+        assertEquals(i, in.getJobID());
+        assertEquals(type(i), in.getType());
+    }
+
+    // Arrival times that need all of a long.
+    private static long arrivalTime(int i)
+    {
+        return i * 3L + ((long) i << 33);
+    }
+
+    private static RRJob.jobType type(int i)
+    {
+        return i % 2 == 0 ? RRJob.jobType.ShortJob : RRJob.jobType.LongJob;
+    }
+}